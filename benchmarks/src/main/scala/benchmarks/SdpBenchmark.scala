@@ -0,0 +1,23 @@
+package benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import org.openjdk.jmh.annotations._
+import sdp.SdpMessage
+
+/** Parsing of a WebRTC offer.
+  *
+  * Run with: `sbt "benchmarks/jmh:run .*SdpBenchmark.*"`
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class SdpBenchmark {
+  @Benchmark
+  def parse(): Either[Seq[String], SdpMessage] = {
+    SdpMessage(SipMessages.Sdp)
+  }
+}
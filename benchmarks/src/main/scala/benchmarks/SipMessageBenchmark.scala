@@ -0,0 +1,93 @@
+package benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import org.mjsip.sip.message.{BasicSipMessage, SipMessage}
+import org.mjsip.sip.provider.{DialogId, TransactionServerId}
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+
+/** Parsing, typed header access, serialisation and id computation of single SIP messages.
+  *
+  * Run with: `sbt "benchmarks/jmh:run -prof gc .*SipMessageBenchmark.*"`
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class SipMessageBenchmark {
+  @Param(Array("false", "true"))
+  var byteParser: Boolean = _
+
+  private var invite: SipMessage = _
+  private var ok: SipMessage = _
+
+  @Setup
+  def setup(): Unit = {
+    BasicSipMessage.BYTE_PARSER = byteParser
+    invite = new SipMessage(SipMessages.Invite, 0, SipMessages.Invite.length)
+    ok = new SipMessage(SipMessages.Ok, 0, SipMessages.Ok.length)
+  }
+
+  @Benchmark
+  def parseInvite(): SipMessage = {
+    new SipMessage(SipMessages.Invite, 0, SipMessages.Invite.length)
+  }
+
+  @Benchmark
+  def parseRegister(): SipMessage = {
+    new SipMessage(SipMessages.Register, 0, SipMessages.Register.length)
+  }
+
+  @Benchmark
+  def parseOk(): SipMessage = {
+    new SipMessage(SipMessages.Ok, 0, SipMessages.Ok.length)
+  }
+
+  /** Parses a message and reads the header fields needed to route it to a transaction. */
+  @Benchmark
+  def parseAndReadHeaders(bh: Blackhole): Unit = {
+    val msg = new SipMessage(SipMessages.Invite, 0, SipMessages.Invite.length)
+    readHeaders(msg, bh)
+  }
+
+  /** Reads the same header fields again from an already parsed message. */
+  @Benchmark
+  def readHeadersAgain(bh: Blackhole): Unit = {
+    readHeaders(invite, bh)
+  }
+
+  /** Copies and serialises a message, as for a message that has not been sent yet. */
+  @Benchmark
+  def getBytesFirstSend(): Array[Byte] = {
+    new SipMessage(invite).getBytes
+  }
+
+  /** Serialises a message that has already been sent, as for retransmissions. */
+  @Benchmark
+  def getBytesRetransmission(): Array[Byte] = {
+    invite.getBytes
+  }
+
+  @Benchmark
+  def transactionServerId(): TransactionServerId = {
+    new TransactionServerId(invite)
+  }
+
+  @Benchmark
+  def dialogId(): DialogId = {
+    new DialogId(ok)
+  }
+
+  private def readHeaders(msg: SipMessage, bh: Blackhole): Unit = {
+    bh.consume(msg.getViaHeader.getBranch)
+    bh.consume(msg.getFromHeader.getTag)
+    bh.consume(msg.getToHeader.getTag)
+    bh.consume(msg.getCallIdHeader.getCallId)
+    bh.consume(msg.getCSeqHeader.getSequenceNumber)
+    bh.consume(msg.getContactHeader.getNameAddress)
+    bh.consume(msg.getMaxForwardsHeader.getNumber)
+  }
+}
@@ -0,0 +1,106 @@
+package benchmarks
+
+/** Representative SIP messages used by the benchmarks. */
+object SipMessages {
+  private def toBytes(lines: String*): Array[Byte] = lines.mkString("\r\n").getBytes
+
+  val Sdp: String =
+    """v=0
+      |o=- 4370282919448584608 2 IN IP4 127.0.0.1
+      |s=-
+      |t=0 0
+      |a=group:BUNDLE 0
+      |a=msid-semantic: WMS 9bf06c31-2337-4f2b-9982-8d3204a8b243
+      |m=video 46076 UDP/TLS/RTP/SAVPF 96 97 102 121
+      |c=IN IP4 52.136.233.255
+      |a=rtcp:46022 IN IP4 52.136.233.255
+      |a=candidate:1840965416 1 udp 2113937151 7b4a5f84-1a2f-4b79-a360-9f9a649a0e1e.local 38183 typ host generation 0 network-cost 999
+      |a=candidate:842163049 1 udp 1677729535 37.194.191.140 38183 typ srflx raddr 0.0.0.0 rport 0 generation 0 network-cost 999
+      |a=candidate:205451522 1 udp 33562367 52.136.233.255 46076 typ relay raddr 37.194.191.140 rport 38183 generation 0 network-cost 999
+      |a=ice-ufrag:csua
+      |a=ice-pwd:dj8Uv7IhPo1CzoJB9oz7AAys
+      |a=ice-options:trickle
+      |a=fingerprint:sha-256 42:4B:22:10:49:9B:35:FC:3F:FF:B5:22:46:87:8F:22:DB:B0:A7:0C:11:BB:58:4C:C3:CD:3B:B1:F9:AD:66:49
+      |a=setup:actpass
+      |a=mid:0
+      |a=extmap:1 urn:ietf:params:rtp-hdrext:toffset
+      |a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time
+      |a=sendrecv
+      |a=msid:9bf06c31-2337-4f2b-9982-8d3204a8b243 645ecf9e-1fd0-40d1-aff4-c52894ee872c
+      |a=rtcp-mux
+      |a=rtcp-rsize
+      |a=rtpmap:96 VP8/90000
+      |a=rtcp-fb:96 goog-remb
+      |a=rtcp-fb:96 transport-cc
+      |a=rtcp-fb:96 ccm fir
+      |a=rtcp-fb:96 nack
+      |a=rtcp-fb:96 nack pli
+      |a=rtpmap:97 rtx/90000
+      |a=fmtp:97 apt=96
+      |a=rtpmap:102 H264/90000
+      |a=fmtp:102 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42001f
+      |a=rtpmap:121 rtx/90000
+      |a=fmtp:121 apt=102
+      |a=ssrc-group:FID 3562348850 1273747165
+      |a=ssrc:3562348850 cname:VIHA9unqptpis1x1
+      |a=ssrc:1273747165 cname:VIHA9unqptpis1x1
+      |""".stripMargin
+
+  def invite(callId: String, branch: String): Array[Byte] = invite(callId, branch, Sdp.replace("\n", "\r\n"))
+
+  /** An INVITE without body, for benchmarks that keep many parsed requests in memory. */
+  def inviteWithoutBody(callId: String, branch: String): Array[Byte] = invite(callId, branch, "")
+
+  private def invite(callId: String, branch: String, sdp: String): Array[Byte] = {
+    toBytes(
+      "INVITE sip:robot@robolive.example.com SIP/2.0",
+      s"Via: SIP/2.0/UDP 192.0.2.10:5060;branch=$branch",
+      "Max-Forwards: 70",
+      "Route: <sip:proxy.robolive.example.com;lr>",
+      "From: \"Operator\" <sip:operator@robolive.example.com>;tag=1928301774",
+      "To: <sip:robot@robolive.example.com>",
+      s"Call-ID: $callId",
+      "CSeq: 314159 INVITE",
+      "Contact: <sip:operator@192.0.2.10:5060;transport=udp>",
+      "Allow: INVITE, ACK, CANCEL, BYE, OPTIONS, INFO, MESSAGE",
+      "Supported: replaces, timer",
+      "User-Agent: robolive",
+      "Content-Type: application/sdp",
+      s"Content-Length: ${sdp.getBytes.length}",
+      "",
+      sdp,
+    )
+  }
+
+  val Invite: Array[Byte] = invite("a84b4c76e66710@192.0.2.10", "z9hG4bK776asdhds")
+
+  val Register: Array[Byte] = toBytes(
+    "REGISTER sip:robolive.example.com SIP/2.0",
+    "Via: SIP/2.0/UDP 192.0.2.20:5060;branch=z9hG4bKnashds7;rport",
+    "Max-Forwards: 70",
+    "From: <sip:robot@robolive.example.com>;tag=456248",
+    "To: <sip:robot@robolive.example.com>",
+    "Call-ID: 843817637684230@998sdasdh09",
+    "CSeq: 1826 REGISTER",
+    "Contact: <sip:robot@192.0.2.20:5060>;expires=3600",
+    "Expires: 3600",
+    "User-Agent: robolive",
+    "Content-Length: 0",
+    "",
+    "",
+  )
+
+  val Ok: Array[Byte] = toBytes(
+    "SIP/2.0 200 OK",
+    "Via: SIP/2.0/UDP 192.0.2.10:5060;branch=z9hG4bK776asdhds;rport=5060;received=192.0.2.10",
+    "Record-Route: <sip:proxy.robolive.example.com;lr>",
+    "From: \"Operator\" <sip:operator@robolive.example.com>;tag=1928301774",
+    "To: <sip:robot@robolive.example.com>;tag=a6c85cf",
+    "Call-ID: a84b4c76e66710@192.0.2.10",
+    "CSeq: 314159 INVITE",
+    "Contact: <sip:robot@192.0.2.20:5060>",
+    "Content-Length: 0",
+    "",
+    "",
+  )
+}
@@ -0,0 +1,99 @@
+package benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import org.mjsip.sip.message.SipMessage
+import org.mjsip.sip.provider.{SipProvider, SipProviderListener, SipTransport, TransactionServerId}
+import org.openjdk.jmh.annotations._
+
+/** Lookup of the listener of a received request among many registered ones.
+  *
+  * A large pool of requests is parsed again before each iteration, and each invocation looks up the next
+  * request of the pool, so that nothing computed for a previous lookup of the same request (parsed header
+  * fields, ids) is reused within the iteration; only `SipProvider.getListener` is measured.
+  *
+  * Run with: `sbt "benchmarks/jmh:run .*SipProviderBenchmark.*"`
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 20, time = 100, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = Array("-Xmx4g"))
+class SipProviderBenchmark {
+  import SipProviderBenchmark._
+
+  @Param(Array("10000"))
+  var listeners: Int = _
+
+  /** Number of requests parsed for each iteration; it should be larger than the number of lookups run in
+    * an (100 ms) iteration, otherwise a warning is printed at the end of the iteration. */
+  @Param(Array("1000000"))
+  var poolSize: Int = _
+
+  private var provider: LookupSipProvider = _
+  private var requests: Array[Array[Byte]] = _
+  private var pool: Array[SipMessage] = _
+  private var next: Int = 0
+  private var wrapped: Boolean = false
+
+  private val listener = new SipProviderListener {
+    override def onReceivedMessage(sip_provider: SipProvider, msg: SipMessage): Unit = ()
+  }
+
+  @Setup(Level.Trial)
+  def setup(): Unit = {
+    provider = new LookupSipProvider
+    requests = Array.tabulate(listeners) { i =>
+      SipMessages.inviteWithoutBody(s"call-$i@192.0.2.10", s"z9hG4bK-$i")
+    }
+    requests.foreach { bytes =>
+      provider.addSelectiveListener(new TransactionServerId(parse(bytes)), listener)
+    }
+  }
+
+  /** Parses a new pool of requests, outside of the measured code. */
+  @Setup(Level.Iteration)
+  def parsePool(): Unit = {
+    pool = Array.tabulate(poolSize) { i => parse(requests(i % requests.length)) }
+    next = 0
+    wrapped = false
+  }
+
+  @TearDown(Level.Iteration)
+  def checkPool(): Unit = {
+    if (wrapped) System.err.println(s"WARNING: the pool of $poolSize requests has been reused within the iteration")
+  }
+
+  @TearDown(Level.Trial)
+  def tearDown(): Unit = {
+    provider.halt()
+  }
+
+  /** Looks up the transaction listener of a received request. */
+  @Benchmark
+  def lookupListener(): SipProviderListener = {
+    val request = pool(next)
+    next += 1
+    if (next == pool.length) {
+      next = 0
+      wrapped = true
+    }
+    provider.lookup(request)
+  }
+}
+
+object SipProviderBenchmark {
+  /** SipProvider without transports, that exposes the listener lookup. */
+  class LookupSipProvider extends SipProvider("192.0.2.20", 5060, Array.empty[SipTransport]) {
+    def lookup(msg: SipMessage): SipProviderListener = getListener(msg)
+  }
+
+  private def parse(bytes: Array[Byte]): SipMessage = {
+    val msg = new SipMessage(bytes, 0, bytes.length)
+    msg.setRemoteAddress("192.0.2.10")
+    msg.setRemotePort(5060)
+    msg.setTransportProtocol("udp")
+    msg
+  }
+}
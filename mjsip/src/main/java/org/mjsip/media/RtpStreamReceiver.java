@@ -32,12 +32,13 @@ import org.mjsip.rtp.RtpSocket;
 import org.zoolu.net.SocketAddress;
 import org.zoolu.net.UdpSocket;
 import org.zoolu.util.Encoder;
+import org.zoolu.util.Threads;
 
 
 /** RtpStreamReceiver is a generic RTP receiver.
   * It receives packets from RTP and writes media into a given OutputStream.
   */
-public class RtpStreamReceiver extends Thread implements RtpControlledReceiver {
+public class RtpStreamReceiver implements Runnable, RtpControlledReceiver {
 	
 	/** Whether working in debug mode. */
 	public static boolean DEBUG=false;
@@ -238,6 +239,12 @@ public class RtpStreamReceiver extends Thread implements RtpControlledReceiver {
 	}
 
 
+	/** Starts running in a new thread (see {@link Threads}). */
+	public void start() {
+		Threads.start(this,"rtp-receiver");
+	}
+
+
 	/** Runs it in a new Thread. */
 	public void run() {
 		
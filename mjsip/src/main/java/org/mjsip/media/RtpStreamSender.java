@@ -33,12 +33,13 @@ import org.zoolu.net.SocketAddress;
 import org.zoolu.net.UdpSocket;
 import org.zoolu.util.Encoder;
 import org.zoolu.util.Random;
+import org.zoolu.util.Threads;
 
 
 /** RtpStreamSender is a generic RTP sender.
   * It takes media from a given InputStream and sends it through RTP packets to a remote destination.
   */
-public class RtpStreamSender extends Thread implements RtpControlledSender {
+public class RtpStreamSender implements Runnable, RtpControlledSender {
 	
 	/** Inter-time of RTCP Sending Report (SR) packets [millisecs]. */
 	public static long RTCP_SR_TIME=5000;
@@ -268,6 +269,12 @@ public class RtpStreamSender extends Thread implements RtpControlledSender {
 	}
 
 
+	/** Starts running in a new thread (see {@link Threads}). */
+	public void start() {
+		Threads.start(this,"rtp-sender");
+	}
+
+
 	/** Runs it in a new Thread. */
 	public void run() {
 		
@@ -27,6 +27,7 @@ import java.util.Vector;
 
 import org.zoolu.net.SocketAddress;
 import org.zoolu.net.UdpPacket;
+import org.zoolu.util.Threads;
 
 
 /** UdpMultiRelay implements an UDP multiple relay agent. 
@@ -45,7 +46,7 @@ import org.zoolu.net.UdpPacket;
   *   <li> filtered: packets are not sent to the same node they come from</li>
   * </ul>
   */
-public class UdpMultiRelay extends Thread {
+public class UdpMultiRelay implements Runnable {
 	
 	/** Local socket */
 	UdpConnectedSocket socket;  
@@ -66,7 +67,7 @@ public class UdpMultiRelay extends Thread {
 	UdpMultiRelayListener listener;   
 
 	/** Whether it is running */
-	boolean stop;
+	volatile boolean stop;
 	/** Maximum time that the UDP relay can remain active after been halted */
 	int socket_to=3000; // 3sec 
 
@@ -144,6 +145,12 @@ public class UdpMultiRelay extends Thread {
 		return socket_to;
 	}
 		 
+	/** Starts running in a new thread (see {@link Threads}). */
+	public void start() {
+		Threads.start(this,"udp-multi-relay");
+	}
+
+
 	/** Redirect packets from source addr/port to destination addr/port  */
 	public void run() {
 		try    {
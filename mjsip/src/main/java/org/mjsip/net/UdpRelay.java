@@ -27,13 +27,14 @@ import java.io.InterruptedIOException;
 import org.zoolu.net.IpAddress;
 import org.zoolu.net.UdpPacket;
 import org.zoolu.net.UdpSocket;
+import org.zoolu.util.Threads;
 
 
 /** UdpRelay implements a direct UDP datagram relay agent. 
   * It receives UDP packets at a local port and relays them toward a remote UDP socket
   * (destination address/port).
   */
-public class UdpRelay extends Thread {
+public class UdpRelay implements Runnable {
 	
 	// The maximum IP packet size
 	//public static final int MAX_PKT_SIZE=2000;
@@ -50,7 +51,7 @@ public class UdpRelay extends Thread {
 	/** Destination port */
 	int dest_port;  
 	/** Whether it is running */
-	boolean stop;
+	volatile boolean stop;
 	/** Maximum time that the UDP relay can remain active after been halted (in milliseconds) */
 	int socket_to=3000; // 3sec 
 	/** Maximum time that the UDP relay remains active without receiving UDP datagrams (in seconds) */
@@ -132,6 +133,12 @@ public class UdpRelay extends Thread {
 		return socket_to;
 	}
 		 
+	/** Starts running in a new thread (see {@link Threads}). */
+	public void start() {
+		Threads.start(this,"udp-relay");
+	}
+
+
 	/** Redirect packets received from remote source addr/port to destination addr/port  */
 	public void run() {
 		//System.out.println("DEBUG: starting UdpRelay "+toString()+" (it expires after "+alive_to+" sec)");     
@@ -0,0 +1,701 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.server;
+
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import org.mjsip.sip.address.NameAddress;
+import org.zoolu.util.TimingWheel;
+
+
+
+/** JournaledLocationServiceImpl is a LocationService that keeps all bindings in memory
+  * and stores changes in an append-only journal, instead of rewriting the whole DB at each {@link #sync()}.
+  * <p>
+  * Changes are appended to file <i>location_db</i>.journal by a writer thread, that commits (writes and forces to disk)
+  * all the changes collected since the previous commit at once (group commit).
+  * A commit is requested by {@link #sync()}, and anyway performed at least every {@link #COMMIT_TIME} milliseconds.
+  * <br>
+  * When the journal grows bigger than the last snapshot (and at least {@link #MIN_COMPACTION_SIZE} bytes), it is compacted:
+  * a new snapshot of all bindings is written to file <i>location_db</i>.snapshot and the journal is restarted.
+  * <p>
+  * At startup, the snapshot is loaded and the journal is replayed on top of it.
+  * A truncated or corrupted record at the end of the journal (e.g. caused by a crash) is discarded.
+  * <p>
+  * Note that {@link #sync()} does not wait for the commit; in case of crash,
+  * changes made within the last commit time may be lost.
+  * <p>
+  * Contact expiration times are kept in an expiry index, formed by a timing wheel with one-second ticks.
+  * Expired contacts are removed as soon as they expire (within one tick), with a work that is proportional only
+  * to the number of expired contacts, and a {@link LocationServiceListener} is notified for each of them.
+  * As a consequence, {@link #getUserContactURIs(String)} returns only contacts that are not expired,
+  * without comparing their expiration dates.
+  */
+public class JournaledLocationServiceImpl implements LocationService {
+	
+	/** Maximum time between two commits, in milliseconds */
+	public static final long COMMIT_TIME=100;
+
+	/** Minimum journal size for compaction, in bytes */
+	public static final long MIN_COMPACTION_SIZE=1024*1024;
+
+	/** Record type: add user */
+	static final byte OP_ADD_USER=1;
+	/** Record type: remove user */
+	static final byte OP_REMOVE_USER=2;
+	/** Record type: remove all users */
+	static final byte OP_REMOVE_ALL_USERS=3;
+	/** Record type: add contact */
+	static final byte OP_ADD_CONTACT=4;
+	/** Record type: remove contact */
+	static final byte OP_REMOVE_CONTACT=5;
+
+	/** Tick time of the expiry index, in milliseconds */
+	static final long EXPIRY_TICK_TIME=1000;
+
+	/** Number of slots of the expiry index (about one hour, with one-second ticks) */
+	static final int EXPIRY_SLOTS=4096;
+
+
+	/** LocationService name. */
+	String file_name=null;
+
+	/** Snapshot file */
+	File snapshot_file;
+
+	/** Journal file */
+	File journal_file;
+
+	/** Previous journal file, kept during compaction */
+	File old_journal_file;
+
+	/** Users bindings. Set of pairs of { (String)user , (UserBindingInfo)binding }. */
+	ConcurrentHashMap users=new ConcurrentHashMap();
+
+	/** Expiry index. Set of pairs of { (String)key , (ContactExpiry)expiry }, with key formed by user name and contact URI. */
+	ConcurrentHashMap expiries=new ConcurrentHashMap();
+
+	/** Timing wheel of the expiry index */
+	TimingWheel expiry_wheel=new TimingWheel(EXPIRY_TICK_TIME,EXPIRY_SLOTS,true,null,"location-expiry");
+
+	/** Number of expired contacts that have been removed */
+	long expired_count=0;
+
+	/** LocationService listener */
+	LocationServiceListener listener=null;
+	
+	/** Records not yet committed */
+	ByteArrayOutputStream pending=new ByteArrayOutputStream();
+
+	/** Whether a commit has been requested */
+	boolean commit_requested=false;
+
+	/** Journal output stream */
+	FileOutputStream journal=null;
+
+	/** Journal size, in bytes */
+	long journal_size=0;
+
+	/** Size of the last snapshot, in bytes */
+	long snapshot_size=0;
+
+	/** Number of commits */
+	long commit_count=0;
+
+	/** Number of compactions */
+	long compaction_count=0;
+
+	/** Writer thread */
+	Thread writer=null;
+
+	/** Whether it has been closed */
+	volatile boolean stop=false;
+
+	/** Whether the journal cannot be written anymore */
+	volatile boolean failed=false;
+
+
+
+	/** Expiration of a contact. */
+	class ContactExpiry implements Runnable {
+		
+		/** User name */
+		String user;
+		/** Contact URI */
+		String uri;
+		/** Expiration time, in milliseconds */
+		long expire;
+		/** Scheduler entry */
+		TimingWheel.Entry entry=new TimingWheel.Entry(this);
+
+		/** Creates a new ContactExpiry. */
+		ContactExpiry(String user, String uri, long expire) {
+			this.user=user;
+			this.uri=uri;
+			this.expire=expire;
+		}
+
+		/** When the contact expires. */
+		public void run() {
+			processContactExpiry(this);
+		}
+	}
+
+
+	
+	/** Creates a new JournaledLocationServiceImpl.
+	  * @param file_name the base name of the snapshot and journal files; if null, the bindings are kept only in memory */
+	public JournaledLocationServiceImpl(String file_name) {
+		this.file_name=file_name;
+		if (file_name==null) {
+			System.err.println("WARNING: no file has been provided for location DB: only temporary memory (RAM) will be used.");
+			return;
+		}
+		// else
+		snapshot_file=new File(file_name+".snapshot");
+		journal_file=new File(file_name+".journal");
+		old_journal_file=new File(file_name+".journal.old");
+		// contacts that expire during the replay are removed only after the replay has completed
+		// and the writer has been started, so that the removals are journaled
+		synchronized (this) {
+			try {
+				if (snapshot_file.exists()) snapshot_size=replay(snapshot_file,false);
+				if (old_journal_file.exists()) replay(old_journal_file,false);
+				journal_size=(journal_file.exists())? replay(journal_file,true) : 0;
+				journal=new FileOutputStream(journal_file,true);
+			}
+			catch (IOException e) {
+				throw new RuntimeException("Error trying to load location DB \""+file_name+"\": "+e);
+			}
+			writer=new Thread(new Runnable() {
+				public void run() {
+					writeJournal();
+				}
+			},"location-journal");
+			writer.setDaemon(true);
+			writer.start();
+		}
+	}
+
+
+	/** Sets the LocationService listener.
+	  * @param listener the listener notified when contacts expire */
+	public void setListener(LocationServiceListener listener) {
+		this.listener=listener;
+	}
+
+
+	/** Commits all pending changes and stops the writer thread.
+	  * Contacts are no longer removed when they expire. */
+	public void close() {
+		synchronized (this) {
+			for (Enumeration e=expiries.elements(); e.hasMoreElements(); ) ((ContactExpiry)e.nextElement()).entry.cancel();
+		}
+		if (writer==null || stop) return;
+		// else
+		synchronized (this) {
+			stop=true;
+			notifyAll();
+		}
+		try { writer.join(); } catch (InterruptedException e) {}
+	}
+
+
+	/** Gets the number of commits. */
+	public long getCommitCount() {
+		return commit_count;
+	}
+
+
+	/** Gets the number of compactions. */
+	public long getCompactionCount() {
+		return compaction_count;
+	}
+
+
+	/** Gets the number of expired contacts that have been removed. */
+	public synchronized long getExpiredCount() {
+		return expired_count;
+	}
+
+
+	/** Gets the current journal size, in bytes. */
+	public long getJournalSize() {
+		return journal_size;
+	}
+
+
+	// **************** Methods of interface Registry ****************
+
+	/** Syncronizes the database.
+	  * <p> It requests the commit of all pending changes to the journal, without waiting for it. */
+	public void sync() {
+		if (writer==null) return;
+		// else
+		synchronized (this) {
+			if (pending.size()==0) return;
+			// else
+			commit_requested=true;
+			notifyAll();
+		}
+	}
+
+	/** Returns the numbers of users in the database.
+	  * @return the numbers of user entries */
+	public int size() {
+		return users.size();
+	}
+	
+	/** Returns an enumeration of the users in this database.
+	  * @return the list of user names as an Enumeration of String */
+	public Enumeration getUsers() {
+		return users.keys();
+	}
+		
+	/** Whether a user is present in the database and can be used as key.
+	  * @param user the user name
+	  * @return true if the user name is present as key */
+	public boolean hasUser(String user) {
+		return (users.containsKey(user));
+	}
+	
+	/** Adds a new user at the database.
+	  * @param user the user name
+	  * @return this object */
+	public synchronized Repository addUser(String user) {
+		if (hasUser(user)) return this;
+		// else
+		apply(OP_ADD_USER,user,null,0);
+		append(OP_ADD_USER,user,null,0);
+		return this;
+	}
+		
+	/** Removes the user from the database.
+	  * @param user the user name
+	  * @return this object */
+	public synchronized Repository removeUser(String user) {
+		if (!hasUser(user)) return this;
+		//else
+		apply(OP_REMOVE_USER,user,null,0);
+		append(OP_REMOVE_USER,user,null,0);
+		return this;
+	}
+  
+	/** Removes all users from the database.
+	  * @return this object */
+	public synchronized Repository removeAllUsers() {
+		apply(OP_REMOVE_ALL_USERS,null,null,0);
+		append(OP_REMOVE_ALL_USERS,null,null,0);
+		return this;
+	}
+
+	/** Gets the String value of this Object.
+	  * @return the String value */
+	public String toString() {
+		StringBuffer sb=new StringBuffer();
+		for (Enumeration i=users.elements(); i.hasMoreElements(); ) {
+			sb.append(((UserBindingInfo)i.nextElement()).toString());
+		}
+		return sb.toString();
+	}
+
+
+	// **************** Methods of interface LocationService ****************
+
+	/** Whether the user has contact <i>uri</i>.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return true if is the contact present */
+	public boolean hasUserContact(String user, String uri) {
+		UserBindingInfo ur=getUserBindingInfo(user);
+		return ur!=null && ur.hasContact(uri);
+	}
+
+	/** Adds a contact.
+	  * @param user the user name
+	  * @param name_address the contact NameAddress
+	  * @param expire the contact expire Date
+	  * @return this object */
+	public synchronized LocationService addUserContact(String user, NameAddress name_address, Date expire) {
+		if (!hasUser(user)) addUser(user);
+		// the contact is not changed if already present
+		if (hasUserContact(user,name_address.getAddress().toString())) return this;
+		// else
+		String contact=name_address.toString();
+		apply(OP_ADD_CONTACT,user,contact,expire.getTime());
+		append(OP_ADD_CONTACT,user,contact,expire.getTime());
+		return this;
+	}
+
+	/** Removes a contact.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return this object */
+	public synchronized LocationService removeUserContact(String user, String uri) {
+		if (!hasUserContact(user,uri)) return this;
+		//else
+		apply(OP_REMOVE_CONTACT,user,uri,0);
+		append(OP_REMOVE_CONTACT,user,uri,0);
+		return this;
+	}   
+	
+	/** Gets the user contacts that are not expired.
+	  * Expired contacts have been already removed by the expiry index.
+	  * @param user the user name
+	  * @return the list of contact URIs as Enumeration of String */
+	public Enumeration getUserContactURIs(String user) {
+		UserBindingInfo ur=getUserBindingInfo(user);
+		return (ur!=null)? ur.getContacts() : null;
+	}
+
+	/** Gets NameAddress value of the user contact.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return the contact NameAddress */
+	public NameAddress getUserContactNameAddress(String user, String uri) {
+		UserBindingInfo ur=getUserBindingInfo(user);
+		return (ur!=null)? ur.getNameAddress(uri) : null;
+	}
+
+	/** Gets expiration date of the user contact.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return the contact expire Date */
+	public Date getUserContactExpirationDate(String user, String uri) {
+		ContactExpiry ce=(ContactExpiry)expiries.get(getExpiryKey(user,uri));
+		return (ce!=null)? new Date(ce.expire) : null;
+	}
+	
+	/** Whether the contact is expired.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return true if it has expired */
+	public boolean isUserContactExpired(String user, String uri) {
+		ContactExpiry ce=(ContactExpiry)expiries.get(getExpiryKey(user,uri));
+		return ce==null || ce.expire<=System.currentTimeMillis();
+	}
+	
+	/** Adds a 'static' contact that never expires.
+	  * A static contact is a sort of 'alias' for the user's AOR.
+	  * @param user the user name
+	  * @param name_address the contact NameAddress
+	  * @return this object */
+	public LocationService addUserStaticContact(String user, NameAddress name_address) {
+		return addUserContact(user,name_address,new Date(LocationServiceImpl.NEVER));
+	}
+
+	/** Whether the contact is 'static', that is it never expires.
+	  * A static contact is a sort of 'alias' for the user's AOR.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return true if it static */
+	public boolean isUserContactStatic(String user, String uri) {
+		return getUserContactExpirationDate(user,uri).getTime()>=LocationServiceImpl.NEVER;
+	}
+
+
+	// ***************************** Private methods *****************************
+
+	/** Gets a user record. */
+	private UserBindingInfo getUserBindingInfo(String user) {
+		return (UserBindingInfo)users.get(user);  
+	}
+
+	/** Applies a change to the memory image of the DB.
+	  * Adding a contact replaces the contact, if already present. */
+	private void apply(byte op, String user, String contact, long expire) {
+		switch (op) {
+			case OP_ADD_USER : {
+				if (!users.containsKey(user)) users.put(user,new UserBindingInfo(user));
+				break;
+			}
+			case OP_REMOVE_USER : {
+				UserBindingInfo ur=(UserBindingInfo)users.remove(user);
+				if (ur!=null) for (Enumeration e=ur.getContacts(); e.hasMoreElements(); ) unindex(user,(String)e.nextElement());
+				break;
+			}
+			case OP_REMOVE_ALL_USERS : {
+				users.clear();
+				for (Enumeration e=expiries.elements(); e.hasMoreElements(); ) ((ContactExpiry)e.nextElement()).entry.cancel();
+				expiries.clear();
+				break;
+			}
+			case OP_ADD_CONTACT : {
+				UserBindingInfo ur=getUserBindingInfo(user);
+				if (ur==null) users.put(user,ur=new UserBindingInfo(user));
+				NameAddress name_address=new NameAddress(contact);
+				String uri=name_address.getAddress().toString();
+				ur.removeContact(uri);
+				ur.addContact(name_address,new Date(expire));
+				index(user,uri,expire);
+				break;
+			}
+			case OP_REMOVE_CONTACT : {
+				UserBindingInfo ur=getUserBindingInfo(user);
+				if (ur!=null) ur.removeContact(contact);
+				unindex(user,contact);
+				break;
+			}
+		}
+	}
+
+	/** Gets the key of a contact in the expiry index. */
+	private static String getExpiryKey(String user, String uri) {
+		return user+" "+uri;
+	}
+
+	/** Adds a contact to the expiry index, replacing the previous expiration time.
+	  * Static contacts are indexed but never scheduled. */
+	private void index(String user, String uri, long expire) {
+		ContactExpiry ce=new ContactExpiry(user,uri,expire);
+		ContactExpiry old=(ContactExpiry)expiries.put(getExpiryKey(user,uri),ce);
+		if (old!=null) old.entry.cancel();
+		if (expire<LocationServiceImpl.NEVER) expiry_wheel.schedule(ce.entry,expire-System.currentTimeMillis());
+	}
+
+	/** Removes a contact from the expiry index. */
+	private void unindex(String user, String uri) {
+		ContactExpiry ce=(ContactExpiry)expiries.remove(getExpiryKey(user,uri));
+		if (ce!=null) ce.entry.cancel();
+	}
+
+	/** When a contact expires. Removes the contact and notifies the listener. */
+	private void processContactExpiry(ContactExpiry ce) {
+		NameAddress name_address;
+		synchronized (this) {
+			// the contact may have been removed or refreshed in the meantime
+			if (expiries.get(getExpiryKey(ce.user,ce.uri))!=ce) return;
+			// else
+			name_address=getUserContactNameAddress(ce.user,ce.uri);
+			removeUserContact(ce.user,ce.uri);
+			expired_count++;
+		}
+		if (listener!=null) listener.onUserContactExpired(this,ce.user,name_address);
+	}
+
+	/** Appends a change to the records to be committed. */
+	private synchronized void append(byte op, String user, String contact, long expire) {
+		if (writer==null || failed) return;
+		// else
+		try {
+			writeRecord(new DataOutputStream(pending),op,user,contact,expire);
+		}
+		catch (IOException e) {
+			// never thrown by ByteArrayOutputStream
+		}
+	}
+
+	/** Writes a record.
+	  * A record is formed by the length of the record body, the body, and its CRC-32. */
+	private static void writeRecord(DataOutputStream out, byte op, String user, String contact, long expire) throws IOException {
+		ByteArrayOutputStream buf=new ByteArrayOutputStream();
+		DataOutputStream body=new DataOutputStream(buf);
+		body.writeByte(op);
+		if (op!=OP_REMOVE_ALL_USERS) body.writeUTF(user);
+		if (op==OP_ADD_CONTACT || op==OP_REMOVE_CONTACT) body.writeUTF(contact);
+		if (op==OP_ADD_CONTACT) body.writeLong(expire);
+		byte[] data=buf.toByteArray();
+		CRC32 crc=new CRC32();
+		crc.update(data,0,data.length);
+		out.writeInt(data.length);
+		out.write(data);
+		out.writeInt((int)crc.getValue());
+	}
+
+	/** Replays all records of a file.
+	  * @param file the snapshot or journal file
+	  * @param truncate whether a truncated or corrupted tail has to be removed from the file
+	  * @return the size of the valid part of the file */
+	private long replay(File file, boolean truncate) throws IOException {
+		DataInputStream in=new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		long valid_size=0;
+		try {
+			while (true) {
+				int len=in.readInt();
+				if (len<=0 || len>0xffff*2+16) break;
+				// else
+				byte[] data=new byte[len];
+				in.readFully(data);
+				CRC32 crc=new CRC32();
+				crc.update(data,0,len);
+				if (in.readInt()!=(int)crc.getValue()) break;
+				// else
+				DataInputStream body=new DataInputStream(new ByteArrayInputStream(data));
+				byte op=body.readByte();
+				String user=(op!=OP_REMOVE_ALL_USERS)? body.readUTF() : null;
+				String contact=(op==OP_ADD_CONTACT || op==OP_REMOVE_CONTACT)? body.readUTF() : null;
+				long expire=(op==OP_ADD_CONTACT)? body.readLong() : 0;
+				apply(op,user,contact,expire);
+				valid_size+=len+8;
+			}
+		}
+		catch (EOFException e) {}
+		finally {
+			in.close();
+		}
+		if (valid_size<file.length()) {
+			System.err.println("WARNING: discarded "+(file.length()-valid_size)+" bytes at the end of file \""+file+"\"");
+			if (truncate) {
+				RandomAccessFile raf=new RandomAccessFile(file,"rw");
+				raf.setLength(valid_size);
+				raf.close();
+			}
+		}
+		return valid_size;
+	}
+
+	/** Writer thread. Commits pending records and compacts the journal. */
+	private void writeJournal() {
+		while (true) {
+			byte[] data=null;
+			boolean last;
+			synchronized (this) {
+				if (!commit_requested && !stop) try { wait(COMMIT_TIME); } catch (InterruptedException e) {}
+				commit_requested=false;
+				last=stop;
+				if (pending.size()>0) {
+					data=pending.toByteArray();
+					pending.reset();
+				}
+			}
+			if (data!=null) {
+				try {
+					commit(data);
+				}
+				catch (IOException e) {
+					System.err.println("WARNING: error trying to write on location journal \""+journal_file+"\": "+e);
+					rollback(data);
+					if (failed) return;
+					// else
+					if (!last) continue;
+				}
+			}
+			try {
+				if (last) {
+					journal.close();
+					return;
+				}
+				// else
+				if (journal_size>MIN_COMPACTION_SIZE && journal_size>snapshot_size) compact();
+			}
+			catch (IOException e) {
+				System.err.println("WARNING: error trying to compact location journal \""+journal_file+"\": "+e);
+			}
+		}
+	}
+
+	/** Writes records to the journal and forces them to disk. */
+	private void commit(byte[] data) throws IOException {
+		journal.write(data);
+		journal.getChannel().force(false);
+		journal_size+=data.length;
+		commit_count++;
+	}
+
+	/** Removes a batch of records that has not been committed.
+	  * The journal is truncated to its last committed size, so that no torn record is followed by other records,
+	  * and the batch is put back in front of the pending records, for being committed again.
+	  * If the journal cannot be truncated, it is no longer written. */
+	private void rollback(byte[] data) {
+		try {
+			journal.getChannel().truncate(journal_size);
+		}
+		catch (IOException e) {
+			System.err.println("WARNING: error trying to truncate location journal \""+journal_file+"\": "+e+": journal disabled");
+			failed=true;
+			return;
+		}
+		synchronized (this) {
+			ByteArrayOutputStream records=new ByteArrayOutputStream();
+			records.write(data,0,data.length);
+			records.write(pending.toByteArray(),0,pending.size());
+			pending=records;
+		}
+	}
+
+	/** Writes a new snapshot and restarts the journal.
+	  * <p>
+	  * Changes made while the snapshot is being written are also written into the new journal;
+	  * since replaying them is idempotent, the new snapshot and journal always lead to the current state.
+	  * <p>
+	  * If a previous compaction has failed before writing the snapshot, the previous journal is still present
+	  * and it is kept, since it is needed until a new snapshot has been written. */
+	private void compact() throws IOException {
+		if (!old_journal_file.exists()) {
+			journal.close();
+			Files.move(journal_file.toPath(),old_journal_file.toPath(),StandardCopyOption.REPLACE_EXISTING);
+			journal=new FileOutputStream(journal_file);
+			journal_size=0;
+		}
+		File tmp_file=new File(file_name+".snapshot.tmp");
+		FileOutputStream fout=new FileOutputStream(tmp_file);
+		DataOutputStream out=new DataOutputStream(new BufferedOutputStream(fout));
+		try {
+			writeSnapshot(out);
+			out.flush();
+			fout.getChannel().force(true);
+		}
+		finally {
+			out.close();
+		}
+		snapshot_size=tmp_file.length();
+		Files.move(tmp_file.toPath(),snapshot_file.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+		old_journal_file.delete();
+		compaction_count++;
+	}
+
+	/** Writes all bindings as records. */
+	private void writeSnapshot(DataOutputStream out) throws IOException {
+		for (Enumeration u=users.elements(); u.hasMoreElements(); ) {
+			UserBindingInfo ur=(UserBindingInfo)u.nextElement();
+			String user=ur.getName();
+			writeRecord(out,OP_ADD_USER,user,null,0);
+			for (Enumeration c=ur.getContacts(); c.hasMoreElements(); ) {
+				String uri=(String)c.nextElement();
+				NameAddress name_address=ur.getNameAddress(uri);
+				Date expire=ur.getExpirationDate(uri);
+				// the contact may have been removed in the meantime
+				if (name_address!=null && expire!=null) writeRecord(out,OP_ADD_CONTACT,user,name_address.toString(),expire.getTime());
+			}
+		}
+	}
+	
+}
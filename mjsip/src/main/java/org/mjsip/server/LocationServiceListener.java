@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.server;
+
+
+
+import org.mjsip.sip.address.NameAddress;
+
+
+
+/** A LocationServiceListener listens for LocationService events.
+  */
+public interface LocationServiceListener {
+	
+	/** When a user contact expires and it is removed from the location service.
+	  * @param location_service the location service
+	  * @param user the user name
+	  * @param contact the expired contact */
+	public void onUserContactExpired(LocationService location_service, String user, NameAddress contact);
+}
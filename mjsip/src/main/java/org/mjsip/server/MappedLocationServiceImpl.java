@@ -0,0 +1,561 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.server;
+
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.Vector;
+
+import org.mjsip.sip.address.GenericURI;
+import org.mjsip.sip.address.NameAddress;
+import org.mjsip.sip.header.ContactHeader;
+
+
+
+/** MappedLocationServiceImpl is a LocationService stored in a memory-mapped file.
+  * <p>
+  * The file <i>location_db</i>.map is formed by a header and an array of fixed-size user records,
+  * that is also an open-addressing hash table (with linear probing) keyed by user name.
+  * Each record contains the user name and up to {@link #MAX_CONTACTS} contacts, with their expiration times.
+  * <p>
+  * Records and contacts are written first, and become valid only when their state byte is set;
+  * they are removed just by resetting their state byte. Since no valid data is overwritten in place,
+  * a crash of the process never leaves a partially written record or contact that looks valid.
+  * <p>
+  * Bindings are read and written directly in the mapped file, so that no load is needed at startup
+  * (other than mapping the file), and no save is needed for surviving a crash of the process:
+  * changes are in the operating system page cache as soon as they are made.
+  * The mapping is forced to disk only when the file grows and when the location service is closed,
+  * therefore {@link #sync()} does nothing.
+  * <p>
+  * When the table becomes too full, it is rebuilt in a new file, with double capacity.
+  * User names longer than {@link #MAX_USER_LENGTH} bytes and contacts longer than
+  * {@link #MAX_CONTACT_LENGTH} bytes (URI plus display name) cannot be stored.
+  */
+public class MappedLocationServiceImpl implements LocationService {
+	
+	/** Maximum number of contacts per user */
+	public static final int MAX_CONTACTS=4;
+
+	/** Maximum length of a user name, in bytes */
+	public static final int MAX_USER_LENGTH=124;
+
+	/** Maximum length of a contact (URI plus display name), in bytes */
+	public static final int MAX_CONTACT_LENGTH=212;
+
+	/** Initial number of records */
+	static final int INITIAL_CAPACITY=1024;
+
+	/** File identifier ("MJLS") */
+	static final int MAGIC=0x4d4a4c53;
+
+	/** File format version */
+	static final int VERSION=2;
+
+	/** Size of a contact, in bytes: valid flag (1), expire (8), URI length (2), display name length (2), URI and display name */
+	static final int CONTACT_SIZE=13+MAX_CONTACT_LENGTH;
+
+	/** Size of a record, in bytes: state (1), reserved (1), user length (2), user name, and contacts */
+	static final int RECORD_SIZE=4+MAX_USER_LENGTH+MAX_CONTACTS*CONTACT_SIZE;
+
+	/** Size of the file header, in bytes: magic, version, record size, capacity, used records, deleted records */
+	static final int HEADER_SIZE=RECORD_SIZE;
+
+	/** Record state: free */
+	static final byte FREE=0;
+	/** Record state: used */
+	static final byte USED=1;
+	/** Record state: deleted (it can be reused, but it does not stop probing) */
+	static final byte DELETED=2;
+
+	/** UTF-8 charset */
+	static final Charset UTF8=Charset.forName("UTF-8");
+
+
+	/** LocationService name. */
+	String file_name=null;
+
+	/** Mapped file */
+	File file;
+
+	/** Mapped buffer */
+	MappedByteBuffer buf;
+
+	/** Number of records */
+	int capacity;
+
+	/** Number of used records */
+	int used;
+
+	/** Number of deleted records */
+	int deleted;
+
+
+	
+	/** Creates a new MappedLocationServiceImpl.
+	  * @param file_name the base name of the mapped file; if null, a temporary file is used */
+	public MappedLocationServiceImpl(String file_name) {
+		this.file_name=file_name;
+		try {
+			if (file_name==null) {
+				System.err.println("WARNING: no file has been provided for location DB: only a temporary file will be used.");
+				file=File.createTempFile("location",".map");
+				file.deleteOnExit();
+				file.delete();
+			}
+			else file=new File(file_name+".map");
+			if (file.exists() && file.length()>0) {
+				buf=map(file,file.length());
+				if (buf.getInt(0)!=MAGIC || buf.getInt(4)!=VERSION || buf.getInt(8)!=RECORD_SIZE) throw new IOException("invalid file format");
+				// else
+				capacity=buf.getInt(12);
+				used=buf.getInt(16);
+				deleted=buf.getInt(20);
+			}
+			else {
+				buf=create(file,INITIAL_CAPACITY);
+				capacity=INITIAL_CAPACITY;
+			}
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Error trying to map location DB \""+file+"\": "+e);
+		}
+	}
+
+
+	/** Forces all changes to disk. */
+	public synchronized void close() {
+		buf.force();
+	}
+
+
+	/** Gets the number of records of the hash table. */
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+
+
+	// **************** Methods of interface Registry ****************
+
+	/** Syncronizes the database.
+	  * <p> It does nothing, since all changes are already in the mapped file. */
+	public void sync() {
+	}
+
+	/** Returns the numbers of users in the database.
+	  * @return the numbers of user entries */
+	public synchronized int size() {
+		return used;
+	}
+	
+	/** Returns an enumeration of the users in this database.
+	  * @return the list of user names as an Enumeration of String */
+	public synchronized Enumeration getUsers() {
+		Vector users=new Vector();
+		for (int i=0; i<capacity; i++) {
+			int pos=getPosition(i);
+			if (buf.get(pos)==USED) users.addElement(getString(pos+2,pos+4));
+		}
+		return users.elements();
+	}
+		
+	/** Whether a user is present in the database and can be used as key.
+	  * @param user the user name
+	  * @return true if the user name is present as key */
+	public synchronized boolean hasUser(String user) {
+		return findRecord(user.getBytes(UTF8))>=0;
+	}
+	
+	/** Adds a new user at the database.
+	  * @param user the user name
+	  * @return this object */
+	public synchronized Repository addUser(String user) {
+		byte[] name=user.getBytes(UTF8);
+		if (name.length>MAX_USER_LENGTH) {
+			System.err.println("WARNING: user name too long: \""+user+"\": not added");
+			return this;
+		}
+		// else
+		if (findRecord(name)>=0) return this;
+		// else
+		if ((used+deleted+1)*4>capacity*3 && !rebuild((used+1)*2>capacity? capacity*2 : capacity)) {
+			System.err.println("WARNING: location DB \""+file+"\" is full: user \""+user+"\" not added");
+			return this;
+		}
+		// else
+		int pos=findFreeRecord(buf,capacity,name);
+		if (buf.get(pos)==DELETED) deleted--;
+		writeRecord(buf,pos,name);
+		used++;
+		writeHeader();
+		return this;
+	}
+		
+	/** Removes the user from the database.
+	  * @param user the user name
+	  * @return this object */
+	public synchronized Repository removeUser(String user) {
+		int pos=findRecord(user.getBytes(UTF8));
+		if (pos<0) return this;
+		//else
+		buf.put(pos,DELETED);
+		used--;
+		deleted++;
+		writeHeader();
+		return this;
+	}
+  
+	/** Removes all users from the database.
+	  * @return this object */
+	public synchronized Repository removeAllUsers() {
+		for (int i=0; i<capacity; i++) buf.put(getPosition(i),FREE);
+		used=0;
+		deleted=0;
+		writeHeader();
+		return this;
+	}
+
+	/** Gets the String value of this Object.
+	  * @return the String value */
+	public synchronized String toString() {
+		StringBuffer sb=new StringBuffer();
+		for (Enumeration u=getUsers(); u.hasMoreElements(); ) {
+			String user=(String)u.nextElement();
+			sb.append("To: ").append(user).append("\r\n");
+			for (Enumeration c=getUserContactURIs(user); c.hasMoreElements(); ) {
+				String uri=(String)c.nextElement();
+				ContactHeader ch=new ContactHeader(getUserContactNameAddress(user,uri));
+				if (isUserContactStatic(user,uri)) ch.setParameter("expires","\"NEVER\"");
+				else ch.setExpires(getUserContactExpirationDate(user,uri));
+				sb.append(ch.toString());
+			}
+		}
+		return sb.toString();
+	}
+
+
+	// **************** Methods of interface LocationService ****************
+
+	/** Whether the user has contact <i>uri</i>.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return true if is the contact present */
+	public synchronized boolean hasUserContact(String user, String uri) {
+		int pos=findRecord(user.getBytes(UTF8));
+		return pos>=0 && findContact(pos,uri.getBytes(UTF8))>=0;
+	}
+
+	/** Adds a contact.
+	  * @param user the user name
+	  * @param name_address the contact NameAddress
+	  * @param expire the contact expire Date
+	  * @return this object */
+	public synchronized LocationService addUserContact(String user, NameAddress name_address, Date expire) {
+		if (!hasUser(user)) addUser(user);
+		int pos=findRecord(user.getBytes(UTF8));
+		if (pos<0) return this;
+		// else
+		byte[] uri=name_address.getAddress().toString().getBytes(UTF8);
+		// the contact is not changed if already present
+		if (findContact(pos,uri)>=0) return this;
+		// else
+		byte[] display_name=(name_address.hasDisplayName())? name_address.getDisplayName().getBytes(UTF8) : new byte[0];
+		int i=0;
+		while (i<MAX_CONTACTS && buf.get(getContactPosition(pos,i))!=0) i++;
+		if (i>=MAX_CONTACTS || uri.length+display_name.length>MAX_CONTACT_LENGTH) {
+			System.err.println("WARNING: too many or too long contacts for user \""+user+"\": contact "+name_address+" not added");
+			return this;
+		}
+		// else
+		int cpos=getContactPosition(pos,i);
+		buf.putLong(cpos+1,expire.getTime());
+		buf.putShort(cpos+9,(short)uri.length);
+		buf.putShort(cpos+11,(short)display_name.length);
+		putBytes(cpos+13,uri);
+		putBytes(cpos+13+uri.length,display_name);
+		// the contact becomes valid only when its flag is set
+		buf.put(cpos,(byte)1);
+		return this;
+	}
+
+	/** Removes a contact.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return this object */
+	public synchronized LocationService removeUserContact(String user, String uri) {
+		int pos=findRecord(user.getBytes(UTF8));
+		if (pos<0) return this;
+		//else
+		int i=findContact(pos,uri.getBytes(UTF8));
+		if (i<0) return this;
+		// else
+		buf.put(getContactPosition(pos,i),(byte)0);
+		return this;
+	}   
+	
+	/** Gets the user contacts that are not expired.
+	  * @param user the user name
+	  * @return the list of contact URIs as Enumeration of String */
+	public synchronized Enumeration getUserContactURIs(String user) {
+		int pos=findRecord(user.getBytes(UTF8));
+		if (pos<0) return null;
+		//else
+		Vector uris=new Vector();
+		for (int i=0; i<MAX_CONTACTS; i++) {
+			int cpos=getContactPosition(pos,i);
+			if (buf.get(cpos)!=0) uris.addElement(getString(cpos+9,cpos+13));
+		}
+		return uris.elements();
+	}
+
+	/** Gets NameAddress value of the user contact.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return the contact NameAddress */
+	public synchronized NameAddress getUserContactNameAddress(String user, String uri) {
+		int cpos=getContactPosition(user,uri);
+		if (cpos<0) return null;
+		// else
+		int uri_len=buf.getShort(cpos+9);
+		int name_len=buf.getShort(cpos+11);
+		String display_name=(name_len>0)? new String(getBytes(cpos+13+uri_len,name_len),UTF8) : null;
+		return new NameAddress(display_name,new GenericURI(uri));
+	}
+
+	/** Gets expiration date of the user contact.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return the contact expire Date */
+	public synchronized Date getUserContactExpirationDate(String user, String uri) {
+		int cpos=getContactPosition(user,uri);
+		return (cpos>=0)? new Date(buf.getLong(cpos+1)) : null;
+	}
+	
+	/** Whether the contact is expired.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return true if it has expired */
+	public synchronized boolean isUserContactExpired(String user, String uri) {
+		int cpos=getContactPosition(user,uri);
+		return cpos<0 || buf.getLong(cpos+1)<=System.currentTimeMillis();
+	}
+	
+	/** Adds a 'static' contact that never expires.
+	  * A static contact is a sort of 'alias' for the user's AOR.
+	  * @param user the user name
+	  * @param name_address the contact NameAddress
+	  * @return this object */
+	public LocationService addUserStaticContact(String user, NameAddress name_address) {
+		return addUserContact(user,name_address,new Date(LocationServiceImpl.NEVER));
+	}
+
+	/** Whether the contact is 'static', that is it never expires.
+	  * A static contact is a sort of 'alias' for the user's AOR.
+	  * @param user the user name
+	  * @param uri the contact URI
+	  * @return true if it static */
+	public boolean isUserContactStatic(String user, String uri) {
+		return getUserContactExpirationDate(user,uri).getTime()>=LocationServiceImpl.NEVER;
+	}
+
+
+	// ***************************** Private methods *****************************
+
+	/** Maps a file.
+	  * @param file the file
+	  * @param size the file size */
+	private static MappedByteBuffer map(File file, long size) throws IOException {
+		RandomAccessFile raf=new RandomAccessFile(file,"rw");
+		try {
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE,0,size);
+		}
+		finally {
+			// the mapping remains valid after the file has been closed
+			raf.close();
+		}
+	}
+
+	/** Creates and maps a new empty file.
+	  * @param file the file
+	  * @param capacity the number of records */
+	private static MappedByteBuffer create(File file, int capacity) throws IOException {
+		long size=HEADER_SIZE+(long)capacity*RECORD_SIZE;
+		if (size>Integer.MAX_VALUE) throw new IOException("location DB too big ("+capacity+" records)");
+		// else
+		MappedByteBuffer buf=map(file,size);
+		buf.putInt(0,MAGIC);
+		buf.putInt(4,VERSION);
+		buf.putInt(8,RECORD_SIZE);
+		buf.putInt(12,capacity);
+		return buf;
+	}
+
+	/** Writes the record counters into the file header. */
+	private void writeHeader() {
+		buf.putInt(16,used);
+		buf.putInt(20,deleted);
+	}
+
+	/** Rebuilds the hash table in a new file, removing deleted records.
+	  * @param new_capacity the new number of records
+	  * @return true if the table has been rebuilt, false in case of error */
+	private boolean rebuild(int new_capacity) {
+		try {
+			File tmp_file=new File(file.getPath()+".tmp");
+			tmp_file.delete();
+			MappedByteBuffer new_buf=create(tmp_file,new_capacity);
+			for (int i=0; i<capacity; i++) {
+				int pos=getPosition(i);
+				if (buf.get(pos)!=USED) continue;
+				// else
+				byte[] name=getBytes(pos+4,buf.getShort(pos+2));
+				int new_pos=findFreeRecord(new_buf,new_capacity,name);
+				if (new_pos<0) throw new IOException("too many records ("+used+") for the new capacity ("+new_capacity+")");
+				// else
+				writeRecord(new_buf,new_pos,name);
+				for (int j=1; j<RECORD_SIZE; j++) new_buf.put(new_pos+j,buf.get(pos+j));
+			}
+			new_buf.putInt(16,used);
+			new_buf.force();
+			Files.move(tmp_file.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+			buf=new_buf;
+			capacity=new_capacity;
+			deleted=0;
+			return true;
+		}
+		catch (IOException e) {
+			System.err.println("WARNING: error trying to rebuild location DB \""+file+"\": "+e);
+			return false;
+		}
+	}
+
+	/** Gets the position of a record. */
+	private static int getPosition(int index) {
+		return HEADER_SIZE+index*RECORD_SIZE;
+	}
+
+	/** Gets the position of a contact within a record. */
+	private static int getContactPosition(int pos, int index) {
+		return pos+4+MAX_USER_LENGTH+index*CONTACT_SIZE;
+	}
+
+	/** Gets the position of a user contact.
+	  * @return the position of the contact, or -1 if not found */
+	private int getContactPosition(String user, String uri) {
+		int pos=findRecord(user.getBytes(UTF8));
+		if (pos<0) return -1;
+		// else
+		int i=findContact(pos,uri.getBytes(UTF8));
+		return (i>=0)? getContactPosition(pos,i) : -1;
+	}
+
+	/** Gets the hash of a user name. */
+	private static int hash(byte[] name) {
+		int h=0;
+		for (int i=0; i<name.length; i++) h=31*h+name[i];
+		return h^(h>>>16);
+	}
+
+	/** Finds the record of a user.
+	  * @return the record position, or -1 if not found */
+	private int findRecord(byte[] name) {
+		int mask=capacity-1;
+		for (int i=0, index=hash(name)&mask; i<capacity; i++, index=(index+1)&mask) {
+			int pos=getPosition(index);
+			byte state=buf.get(pos);
+			if (state==FREE) return -1;
+			if (state==USED && equals(pos+2,pos+4,name)) return pos;
+		}
+		return -1;
+	}
+
+	/** Finds the first free or deleted slot for a new record.
+	  * @return the record position, or -1 if all slots are used */
+	private static int findFreeRecord(MappedByteBuffer buf, int capacity, byte[] name) {
+		int mask=capacity-1;
+		for (int i=0, index=hash(name)&mask; i<capacity; i++, index=(index+1)&mask) {
+			int pos=getPosition(index);
+			if (buf.get(pos)!=USED) return pos;
+		}
+		return -1;
+	}
+
+	/** Writes a new record, with no contacts, in a free or deleted slot. */
+	private static void writeRecord(MappedByteBuffer buf, int pos, byte[] name) {
+		for (int i=0; i<MAX_CONTACTS; i++) buf.put(getContactPosition(pos,i),(byte)0);
+		buf.putShort(pos+2,(short)name.length);
+		for (int i=0; i<name.length; i++) buf.put(pos+4+i,name[i]);
+		// the record becomes valid only when its state is set
+		buf.put(pos,USED);
+	}
+
+	/** Finds a contact within a record.
+	  * @return the contact index, or -1 if not found */
+	private int findContact(int pos, byte[] uri) {
+		for (int i=0; i<MAX_CONTACTS; i++) {
+			int cpos=getContactPosition(pos,i);
+			if (buf.get(cpos)!=0 && equals(cpos+9,cpos+13,uri)) return i;
+		}
+		return -1;
+	}
+
+	/** Whether a stored string is equal to an array of bytes.
+	  * @param len_pos the position of the string length
+	  * @param pos the position of the string bytes
+	  * @param data the array of bytes */
+	private boolean equals(int len_pos, int pos, byte[] data) {
+		if (buf.getShort(len_pos)!=data.length) return false;
+		// else
+		for (int i=0; i<data.length; i++) if (buf.get(pos+i)!=data[i]) return false;
+		return true;
+	}
+
+	/** Gets a stored string.
+	  * @param len_pos the position of the string length
+	  * @param pos the position of the string bytes */
+	private String getString(int len_pos, int pos) {
+		return new String(getBytes(pos,buf.getShort(len_pos)),UTF8);
+	}
+
+	/** Gets bytes from the mapped buffer. */
+	private byte[] getBytes(int pos, int len) {
+		byte[] data=new byte[len];
+		for (int i=0; i<len; i++) data[i]=buf.get(pos+i);
+		return data;
+	}
+
+	/** Puts bytes into the mapped buffer. */
+	private void putBytes(int pos, byte[] data) {
+		for (int i=0; i<data.length; i++) buf.put(pos+i,data[i]);
+	}
+	
+}
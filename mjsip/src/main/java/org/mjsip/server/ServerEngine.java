@@ -84,9 +84,9 @@ public abstract class ServerEngine implements SipProviderListener {
 	protected AuthenticationServer as;
 	
 	/** List of already supported location services */
-	protected static final String[] LOCATION_SERVICES={ "local", "ldap" };
+	protected static final String[] LOCATION_SERVICES={ "local", "ldap", "journal", "mapped" };
 	/** List of location service Classes (ordered as in <i>LOCATION_SERVICES</i>) */
-	protected static final String[] LOCATION_SERVICE_CLASSES={ "local.server.LocationServiceImpl", "local.ldap.LdapLocationServiceImpl" };
+	protected static final String[] LOCATION_SERVICE_CLASSES={ "local.server.LocationServiceImpl", "local.ldap.LdapLocationServiceImpl", "org.mjsip.server.JournaledLocationServiceImpl", "org.mjsip.server.MappedLocationServiceImpl" };
 
 	/** List of already supported authentication services */
 	protected static final String[] AUTHENTICATION_SERVICES={ "local", "ldap" };
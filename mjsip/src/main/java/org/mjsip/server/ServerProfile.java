@@ -45,9 +45,13 @@ public class ServerProfile extends Configure {
 	public boolean is_open_proxy=true;
 	/** The type of location service.
 	  * You can specify the location service type (e.g. local, ldap, radius, mysql)
-	  * or the class name (e.g. local.server.LocationServiceImpl). */
+	  * or the class name (e.g. local.server.LocationServiceImpl).
+	  * Type 'journal' keeps the bindings in memory and stores changes in an append-only journal (see {@link JournaledLocationServiceImpl}).
+	  * Type 'mapped' keeps the bindings in a memory-mapped file (see {@link MappedLocationServiceImpl}). */
 	public String location_service="local";
-	/** The name of the location DB. */
+	/** The name of the location DB.
+	  * With location service 'journal', it is the base name of files <i>location_db</i>.snapshot and <i>location_db</i>.journal;
+	  * with location service 'mapped', it is the base name of file <i>location_db</i>.map. */
 	public String location_db="users.db";
 	/** Whether location DB has to be cleaned at startup. */
 	public boolean clean_location_db=false;
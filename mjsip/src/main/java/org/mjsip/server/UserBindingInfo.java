@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2005 Luca Veltri - University of Parma - Italy
+ * 
+ * This source code is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * This source code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this source code; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * 
+ * Author(s):
+ * Luca Veltri (luca.veltri@unipr.it)
+ */
+
+package org.mjsip.server;
+
+
+
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+import org.mjsip.sip.address.NameAddress;
+import org.mjsip.sip.header.ContactHeader;
+
+
+
+/** User's binding info.
+  * This class represents a user record of the location DB.
+  * <p> A UserBindingInfo contains the user name, and a set of
+  * contact information (i.e. contact and expire-time).
+  * <p> Method getContacts() returns an Enumeration of String values
+  * rapresenting the various contact SipURIs.
+  * Such values can be used as keys for getting for each contact
+  * both the contact NameAddress and the expire Date. 
+  */
+class UserBindingInfo {
+	
+	/** User name */
+	String name;
+	
+	/** Hashtable of ContactHeader with String as key. */
+	Hashtable contact_list;
+
+
+	/** Costructs a new UserBindingInfo for user <i>name</i>.
+	  * @param name the user name */
+	public UserBindingInfo(String name) {
+		this.name=name;
+		contact_list=new Hashtable();
+	}
+	
+	/** Gets the user name.
+	  * @return the user name */
+	public String getName() {
+		return name;
+	}
+  
+	/** Gets the user contacts.
+	  * @return the user contacts as an Enumeration of String */
+	public Enumeration getContacts() {
+		return contact_list.keys();
+	}
+
+	/** Whether the user has any registered contact.
+	  * @param uri the contact URI (String) 
+	  * @return true if one or more contacts are present */
+	public boolean hasContact(String uri) {
+		return contact_list.containsKey(uri);
+	}
+	
+	/** Adds a new contact.
+	  * @param contact the contact address (NameAddress) 
+	  * @param expire the expire value (Date) 
+	  * @return this object */
+	public UserBindingInfo addContact(NameAddress contact, Date expire) {
+		String key=contact.getAddress().toString();
+		if (!contact_list.containsKey(key)) contact_list.put(key,(new ContactHeader(contact)).setExpires(expire));
+		return this;
+	}
+ 
+	/** Removes a contact.
+	  * @param uri the contact URI (String) 
+	  * @return this object */
+	public UserBindingInfo removeContact(String uri) {
+		if (contact_list.containsKey(uri)) contact_list.remove(uri);
+		return this;
+	}  
+	
+	/** Gets NameAddress of a contact.
+	  * @param uri the contact URI (String) 
+	  * @return the contact NameAddress, or null if the contact is not present */
+	public NameAddress getNameAddress(String uri) {
+		if (contact_list.containsKey(uri)) return ((ContactHeader)contact_list.get(uri)).getNameAddress();
+		else return null;
+	}
+
+	/** Whether the contact is expired.
+	  * @param uri the contact URI (String) 
+	  * @return true if the contact is expired or contact does not exist */
+	public boolean isExpired(String uri) {
+		if (contact_list.containsKey(uri)) return ((ContactHeader)contact_list.get(uri)).isExpired();
+		else return true;
+	}
+	
+	/** Gets expiration date.
+	  * @param uri the contact URI (String) 
+	  * @return the expire Date */
+	public Date getExpirationDate(String uri) {
+		if (contact_list.containsKey(uri)) return ((ContactHeader)contact_list.get(uri)).getExpiresDate();
+		else return null;
+	}
+
+	/** Removes all contacts.
+	  * @return this object */
+	/*public UserBindingInfo removeContacts() {
+		contact_list.clear();
+		return this;
+	}*/
+
+	/** Gets the String value of this Object.
+	  * @return the String value */
+	public String toString() {
+		String str="To: "+name+"\r\n";
+		for (Enumeration i=getContacts(); i.hasMoreElements(); ) {
+			ContactHeader ch=(ContactHeader)contact_list.get(i.nextElement());
+			if (ch.getExpiresDate().getTime()>=LocationServiceImpl.NEVER) (ch=new ContactHeader(ch)).removeExpires().setParameter("expires","\"NEVER\"");
+			str+=ch.toString();
+		}
+		return str;
+	}
+}
+
@@ -47,6 +47,7 @@ import org.zoolu.util.ExceptionPrinter;
 import org.zoolu.util.Flags;
 import org.zoolu.util.LogLevel;
 import org.zoolu.util.Parser;
+import org.zoolu.util.Timer;
 
 
 
@@ -385,6 +386,8 @@ public class SessionBorderController extends Proxy {
 		SipStack.init(file);
 		ServerProfile server_profile=new ServerProfile(file);
 		SessionBorderControllerProfile sbc_profile=new SessionBorderControllerProfile(file);
+		// regulated relays pace the packets through timers, that are rounded up to the timer tick
+		if (sbc_profile.interpacket_time>0) Timer.TICK_TIME=1;
 
 		if (first_port>0 && last_port>=first_port) {
 			Vector media_ports=new Vector();
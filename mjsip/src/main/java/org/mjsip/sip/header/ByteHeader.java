@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.header;
+
+
+
+
+/** ByteHeader is a Header whose name and value are kept as byte ranges
+  * of a received message, and are decoded into Strings only when they are read.
+  * <p>
+  * It is created by the {@link org.mjsip.sip.provider.SipByteParser} for each header field
+  * found in the message; the underlying byte array must not be modified afterwards.
+  */
+public class ByteHeader extends Header {
+	
+	/** Buffer containing the header field */
+	byte[] buf;
+
+	/** Offset of the header name within the buffer */
+	int name_off;
+
+	/** Length of the header name */
+	int name_len;
+
+	/** Offset of the header value within the buffer */
+	int value_off;
+
+	/** Length of the header value */
+	int value_len;
+
+
+
+	/** Creates a new ByteHeader.
+	  * @param buf the buffer containing the header field
+	  * @param name_off the offset of the (trimmed) header name
+	  * @param name_len the length of the header name
+	  * @param value_off the offset of the (trimmed) header value
+	  * @param value_len the length of the header value */
+	public ByteHeader(byte[] buf, int name_off, int name_len, int value_off, int value_len) {
+		super();
+		this.buf=buf;
+		this.name_off=name_off;
+		this.name_len=name_len;
+		this.value_off=value_off;
+		this.value_len=value_len;
+	}
+
+	/** Creates and returns a copy of the Header */
+	public Object clone() {
+		return new Header(getName(),getValue());
+	}
+
+	/** Gets name of Header */
+	public String getName() {
+		if (name==null) name=SipHeaders.intern(buf,name_off,name_len);
+		return name; 
+	}
+
+	/** Gets value of Header */
+	public String getValue() {
+		if (value==null) value=new String(buf,value_off,value_len);
+		return value;
+	}
+
+	/** Sets value of Header */
+	public void setValue(String hvalue) {
+		value=hvalue; 
+	}
+
+	/** Gets the length of the value of Header.
+	  * If the value has not been decoded yet, the length of the received bytes is returned, without decoding it. */
+	public int getValueLength() {
+		if (value==null) return value_len;
+		// else
+		return value.length();
+	}
+
+	/** Whether the header has the given name (case-insensitive).
+	  * The name is compared directly with the received bytes, without decoding it. */
+	public boolean hasName(String hname) {
+		if (name!=null) return hname==name || hname.equalsIgnoreCase(name);
+		// else
+		return SipHeaders.matchIgnoreCase(hname,buf,name_off,name_len);
+	}
+
+	/** Gets the id of the Header.
+	  * The id is computed directly from the received bytes, without decoding the name. */
+	public int getHeaderId() {
+		if (id==ID_UNDEFINED) id=SipHeaders.getId(buf,name_off,name_len);
+		return id;
+	}
+
+	/** Gets string representation of Header */
+	public String toString() {
+		return getName()+": "+getValue()+"\r\n";
+	}
+}
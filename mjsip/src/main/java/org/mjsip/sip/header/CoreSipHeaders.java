@@ -54,6 +54,10 @@ public abstract class CoreSipHeaders {
 	public static final String Contact_short="m";
 	/** String "Content-Disposition" */
 	public static final String Content_Disposition="Content-Disposition";  
+	/** String "Content-Encoding" */
+	public static final String Content_Encoding="Content-Encoding";
+	/** String "e" */
+	public static final String Content_Encoding_short="e";
 	/** String "Content-Length" */
 	public static final String Content_Length="Content-Length";  
 	/** String "l" */
@@ -86,6 +90,8 @@ public abstract class CoreSipHeaders {
 	public static final String Record_Route="Record-Route"; 
 	/** String "Require" */
 	public static final String Require="Require";   
+	/** String "Retry-After" */
+	public static final String Retry_After="Retry-After";   
 	/** String "Route" */
 	public static final String Route="Route";   
 	/** String "Server" */
@@ -34,6 +34,12 @@ public class Header/* extends org.zoolu.util.MonitoredObject*/ {
 	/** The header string, without terminating CRLF */
 	protected String value;
 
+	/** Header id not yet computed */
+	static final int ID_UNDEFINED=-2;
+
+	/** The header id (see {@link SipHeaders#getId(String)}) */
+	int id=ID_UNDEFINED;
+
 	/** Creates a void Header. */
 	protected Header() {
 		name=null;
@@ -72,6 +78,20 @@ public class Header/* extends org.zoolu.util.MonitoredObject*/ {
 		return name; 
 	}
 
+	/** Whether the Header has name <i>hname</i> (case-insensitive) */
+	public boolean hasName(String hname) {
+		String name=getName();
+		return hname==name || hname.equalsIgnoreCase(name);
+	}
+
+	/** Gets the id of the Header.
+	  * Header fields with the same name (in either full or compact form) have the same id.
+	  * @return the header id, or {@link SipHeaders#UNKNOWN_ID} if the header name is not a known one */
+	public int getHeaderId() {
+		if (id==ID_UNDEFINED) id=SipHeaders.getId(getName());
+		return id;
+	}
+
 	/** Gets value of Header */
 	public String getValue() {
 		return value;
@@ -82,6 +102,11 @@ public class Header/* extends org.zoolu.util.MonitoredObject*/ {
 		value=hvalue; 
 	}
 
+	/** Gets the length of the value of Header */
+	public int getValueLength() {
+		return String.valueOf(getValue()).length();
+	}
+
 	/** Gets string representation of Header */
 	public String toString() {
 		return name+": "+value+"\r\n";
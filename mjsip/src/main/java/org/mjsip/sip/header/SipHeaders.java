@@ -35,6 +35,8 @@ public class SipHeaders extends CoreSipHeaders {
 
 	/** String "Allow-Events" */
 	public static final String Allow_Events="Allow-Events";
+	/** String "u" */
+	public static final String Allow_Events_short="u";
 
 	/** String "Event" */
 	public static final String Event="Event";
@@ -58,9 +60,13 @@ public class SipHeaders extends CoreSipHeaders {
 
 	/** String "Refer-To" */
 	public static final String Refer_To="Refer-To";  
+	/** String "r" */
+	public static final String Refer_To_short="r";
 
 	/** String "Referred-By" */
 	public static final String Referred_By="Referred-By"; 
+	/** String "b" */
+	public static final String Referred_By_short="b";
 
 	/** String "Replaces" */
 	public static final String Replaces="Replaces"; 
@@ -73,8 +79,186 @@ public class SipHeaders extends CoreSipHeaders {
 
 	/** String "Session-Expires" */
 	public static final String Session_Expires="Session-Expires";
+	/** String "x" */
+	public static final String Session_Expires_short="x";
 
 	/** String "Subscription-State" */
 	public static final String Subscription_State="Subscription-State";
 
+
+	//******************************* Header ids ********************************/
+
+	/** Id of header fields whose name is not known */
+	public static final int UNKNOWN_ID=-1;
+
+	/** Known header field names, indexed by their header ids */
+	private static final String[] NAMES={
+		Accept, Accept_Encoding, Accept_Language, Alert_Info, Allow, Authentication_Info, Authorization, Call_ID, Contact,
+		Content_Disposition, Content_Length, Content_Type, CSeq, Date, Expires, From, User_Agent, Max_Forwards,
+		Proxy_Authenticate, Proxy_Authorization, Proxy_Require, Record_Route, Require, Route, Server, Subject, Supported,
+		To, Unsupported, Via, WWW_Authenticate,
+		Allow_Events, Event, Info_Package, Min_SE, RAck, Reason, Recv_Info, Refer_To, Referred_By, Replaces, RSeq,
+		ServiceRoute, Session_Expires, Subscription_State, Content_Encoding
+	};
+
+	/** Compact forms of header field names, as pairs (compact form, full name) */
+	private static final String[][] COMPACT_FORMS={
+		{ Call_ID_short, Call_ID }, { Contact_short, Contact }, { Content_Encoding_short, Content_Encoding },
+		{ Content_Length_short, Content_Length }, { Content_Type_short, Content_Type }, { From_short, From },
+		{ Subject_short, Subject }, { Supported_short, Supported }, { To_short, To }, { Via_short, Via },
+		{ Allow_Events_short, Allow_Events }, { Event_short, Event }, { Refer_To_short, Refer_To },
+		{ Referred_By_short, Referred_By }, { Session_Expires_short, Session_Expires }
+	};
+
+	/** Compact forms of known header fields, indexed by their header ids (null if there is no compact form) */
+	private static final String[] compact_names=new String[NAMES.length];
+
+	/** Size of the hash table of header names (it must be a power of 2) */
+	private static final int TABLE_SIZE=256;
+
+	/** Hash table of header names (both full and compact forms) */
+	private static final String[] table_names=new String[TABLE_SIZE];
+
+	/** Header ids of the corresponding entries of the hash table */
+	private static final int[] table_ids=new int[TABLE_SIZE];
+
+	static {
+		for (int i=0; i<NAMES.length; i++) addId(NAMES[i],i);
+		for (int i=0; i<COMPACT_FORMS.length; i++) {
+			int id=getId(COMPACT_FORMS[i][1]);
+			addId(COMPACT_FORMS[i][0],id);
+			compact_names[id]=COMPACT_FORMS[i][0];
+		}
+	}
+
+	/** Adds a header name to the hash table. */
+	private static void addId(String hname, int id) {
+		int i=hash(hname,0,hname.length())&(TABLE_SIZE-1);
+		while (table_names[i]!=null) i=(i+1)&(TABLE_SIZE-1);
+		table_names[i]=hname;
+		table_ids[i]=id;
+	}
+
+	/** Case-insensitive hash of a char. */
+	private static int hash(int h, int c) {
+		if (c>='A' && c<='Z') c+=32;
+		return 31*h+c;
+	}
+
+	/** Case-insensitive hash of a header name. */
+	private static int hash(String str, int begin, int end) {
+		int h=0;
+		for (int i=begin; i<end; i++) h=hash(h,str.charAt(i));
+		return h^(h>>>8);
+	}
+
+	/** Case-insensitive hash of a header name. */
+	private static int hash(byte[] buf, int off, int len) {
+		int h=0;
+		for (int i=0; i<len; i++) h=hash(h,buf[off+i]);
+		return h^(h>>>8);
+	}
+
+	/** Gets the hash table entry of a header name.
+	  * @return the index of the entry, or -1 if the header name is not known */
+	private static int lookup(String str, int begin, int end) {
+		int i=hash(str,begin,end)&(TABLE_SIZE-1);
+		while (table_names[i]!=null) {
+			if (table_names[i].length()==end-begin && table_names[i].regionMatches(true,0,str,begin,end-begin)) return i;
+			i=(i+1)&(TABLE_SIZE-1);
+		}
+		return -1;
+	}
+
+	/** Gets the hash table entry of a header name, directly from its bytes.
+	  * @return the index of the entry, or -1 if the header name is not known */
+	private static int lookup(byte[] buf, int off, int len) {
+		int i=hash(buf,off,len)&(TABLE_SIZE-1);
+		while (table_names[i]!=null) {
+			if (matchIgnoreCase(table_names[i],buf,off,len)) return i;
+			i=(i+1)&(TABLE_SIZE-1);
+		}
+		return -1;
+	}
+
+	/** Gets the number of known header fields.
+	  * Header ids of known header fields range from 0 to getIdCount()-1. */
+	public static int getIdCount() {
+		return NAMES.length;
+	}
+
+	/** Gets the (full) name of the header field with the given id. */
+	public static String getName(int id) {
+		return NAMES[id];
+	}
+
+	/** Gets the compact form of the header field with the given id.
+	  * @return the compact form, or null if the header field has no compact form */
+	public static String getCompactName(int id) {
+		return compact_names[id];
+	}
+
+	/** Gets the id of a header field name.
+	  * The full name and the compact form (if any) of a header field have the same id.
+	  * @param hname the header name (case-insensitive)
+	  * @return the header id, or UNKNOWN_ID if the header name is not known */
+	public static int getId(String hname) {
+		int i=lookup(hname,0,hname.length());
+		return (i<0)? UNKNOWN_ID : table_ids[i];
+	}
+
+	/** Gets the id of a header field name, directly from its bytes.
+	  * @param buf the buffer containing the header name
+	  * @param off the offset within the buffer
+	  * @param len the length of the header name
+	  * @return the header id, or UNKNOWN_ID if the header name is not known */
+	public static int getId(byte[] buf, int off, int len) {
+		int i=lookup(buf,off,len);
+		return (i<0)? UNKNOWN_ID : table_ids[i];
+	}
+
+	/** Gets the canonical String of a header field name.
+	  * Known header names (in either full or compact form) are replaced by the corresponding constant of this class,
+	  * so that they can be compared by reference.
+	  * @param hname the header name (case-insensitive)
+	  * @return the constant equal (case-insensitive) to the given header name, or the header name itself if it is not known */
+	public static String intern(String hname) {
+		int i=lookup(hname,0,hname.length());
+		return (i<0)? hname : table_names[i];
+	}
+
+	/** Gets the canonical String of a header field name found within a String.
+	  * @param str the String containing the header name
+	  * @param begin the index of the first char of the header name
+	  * @param end the index after the last char of the header name
+	  * @return the constant equal (case-insensitive) to the given header name, or a new String if it is not known */
+	public static String intern(String str, int begin, int end) {
+		int i=lookup(str,begin,end);
+		return (i<0)? str.substring(begin,end) : table_names[i];
+	}
+
+	/** Gets the canonical String of a header field name, directly from its bytes.
+	  * @param buf the buffer containing the header name
+	  * @param off the offset within the buffer
+	  * @param len the length of the header name
+	  * @return the constant equal (case-insensitive) to the given header name, or a new String if it is not known */
+	public static String intern(byte[] buf, int off, int len) {
+		int i=lookup(buf,off,len);
+		return (i<0)? new String(buf,off,len) : table_names[i];
+	}
+
+	/** Whether a String matches an array of bytes (case-insensitive, US-ASCII). */
+	static boolean matchIgnoreCase(String str, byte[] buf, int off, int len) {
+		if (str.length()!=len) return false;
+		for (int i=0; i<len; i++) {
+			int c1=str.charAt(i);
+			int c2=buf[off+i];
+			if (c1==c2) continue;
+			if (c1>='A' && c1<='Z') c1+=32;
+			if (c2>='A' && c2<='Z') c2+=32;
+			if (c1!=c2) return false;
+		}
+		return true;
+	}
+
 }
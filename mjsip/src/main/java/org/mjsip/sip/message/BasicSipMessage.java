@@ -25,6 +25,7 @@ package org.mjsip.sip.message;
 
 
 
+import java.nio.ByteBuffer;
 import java.util.Vector;
 
 import org.mjsip.sip.header.ContentDispositionHeader;
@@ -36,6 +37,7 @@ import org.mjsip.sip.header.RequestLine;
 import org.mjsip.sip.header.SipHeaders;
 import org.mjsip.sip.header.StatusLine;
 import org.mjsip.sip.provider.ConnectionId;
+import org.mjsip.sip.provider.SipByteParser;
 import org.mjsip.sip.provider.SipParser;
 import org.zoolu.util.ByteUtils;
 
@@ -56,6 +58,10 @@ public abstract class BasicSipMessage {
 	/** Whether printing debugging information on standard error output. */
 	public static boolean DEBUG=false;
 
+	/** Whether received messages are parsed directly from bytes by the {@link SipByteParser},
+	  * instead of converting the message header into a String and parsing it with the {@link SipParser}. */
+	public static boolean BYTE_PARSER=false;
+
 
 	/** UDP */
 	public static final String PROTO_UDP="udp"; 
@@ -93,12 +99,30 @@ public abstract class BasicSipMessage {
 	/** Status-line */
 	protected StatusLine status_line=null;
 
-	/** Vector of all header fields */
-	protected Vector headers=new Vector();
+	/** Vector of all header fields; it is a {@link HeaderList}, unless replaced by a subclass */
+	protected Vector headers=new HeaderList();
 
 	/** Message body */
 	protected byte[] body=null;
 
+	/** Typed header fields already obtained from this message */
+	HeaderCache header_cache=null;
+
+	/** Cached encoding of the message (null if not computed yet or no longer valid) */
+	private byte[] encoded=null;
+
+	/** First line from which the cached encoding has been computed */
+	private Object encoded_first_line=null;
+
+	/** Header values from which the cached encoding has been computed */
+	private String[] encoded_values=null;
+
+	/** Body from which the cached encoding has been computed */
+	private byte[] encoded_body=null;
+
+	/** Whether header field names are encoded in compact form */
+	private boolean compact_form=false;
+
 
 
 
@@ -113,7 +137,7 @@ public abstract class BasicSipMessage {
 	  * @param body the message body */
 	public BasicSipMessage(RequestLine request_line, Vector headers, byte[] body) {
 		this.request_line=request_line;
-		this.headers=headers;
+		this.headers=new HeaderList(headers);
 		this.body=body;
 	}
 
@@ -123,7 +147,7 @@ public abstract class BasicSipMessage {
 	  * @param body the message body */
 	public BasicSipMessage(StatusLine status_line, Vector headers, byte[] body) {
 		this.status_line=status_line;
-		this.headers=headers;
+		this.headers=new HeaderList(headers);
 		this.body=body;
 	}
 
@@ -176,6 +200,7 @@ public abstract class BasicSipMessage {
 		//headers=new Vector();
 		for (int i=0; i<msg.headers.size(); i++) headers.addElement(msg.headers.elementAt(i));
 		body=msg.body;
+		headersChanged();
 	}
 	
 	/** Sets the message from a string representing the SIP message.
@@ -199,6 +224,7 @@ public abstract class BasicSipMessage {
 			// parse all header fields
 			//headers=new Vector();
 			if (headers.size()>0) headers.removeAllElements();
+			headersChanged();
 			Header h=par.getHeader();
 			while (h!=null) {
 				headers.addElement(h);
@@ -234,6 +260,8 @@ public abstract class BasicSipMessage {
 	  * @return the number of used bytes
 	  * @exception MalformedSipMessageException in case the array of bytes does not contain (starting at the given offset with) a valid SIP message */
 	protected int setMessage(byte[] buf, int off, int len) throws MalformedSipMessageException {
+		if (BYTE_PARSER) return setMessageBytes(buf,off,len);
+		// else
 		try {
 			// skip any leading CRLF
 			/*int skip_len=0;
@@ -264,6 +292,7 @@ public abstract class BasicSipMessage {
 			// parse all header fields
 			//headers=new Vector();
 			if (headers.size()>0) headers.removeAllElements();
+			headersChanged();
 			Header h=par.getHeader();
 			while (h!=null) {
 				headers.addElement(h);
@@ -285,6 +314,47 @@ public abstract class BasicSipMessage {
 	}
 
 
+	/** Sets the message from an array of bytes containing the SIP message, using the {@link SipByteParser}.
+	  * The message header is copied once, and header names and values are decoded only when they are read.
+	  * @param buf the byte array containing the SIP message 
+	  * @param off the offset within the byte array
+	  * @param len the number of available bytes
+	  * @return the number of used bytes
+	  * @exception MalformedSipMessageException in case the array of bytes does not contain (starting at the given offset with) a valid SIP message */
+	private int setMessageBytes(byte[] buf, int off, int len) throws MalformedSipMessageException {
+		try {
+			// find total header length
+			int siph_len=new SipByteParser(buf,off,len).getHeaderLength();
+			if (siph_len<0) throw new MalformedSipMessageException("No SIP header delimiter found.");
+			// else
+			// the receiving buffer may be reused by the transport, so the header is copied (without decoding it)
+			SipByteParser par=new SipByteParser(ByteUtils.copy(buf,off,siph_len),0,siph_len);
+	
+			// parse first line
+			if (par.isStatusLine()) status_line=par.getStatusLine();
+			else request_line=par.getRequestLine();
+	
+			// parse all header fields
+			if (headers.size()>0) headers.removeAllElements();
+			headersChanged();
+			int n=par.parseHeaders();
+			for (int i=0; i<n; i++) headers.addElement(par.getHeader(i));
+	
+			// get body
+			int body_len=0;
+			ContentLengthHeader clh=getContentLengthHeader();
+			if (clh!=null) body_len=clh.getContentLength();
+			else if (getContentTypeHeader()!=null) body_len=len-siph_len;
+			body=(body_len>0)? ByteUtils.copy(buf,off+siph_len,body_len) : null;
+			
+			return siph_len+body_len;
+		}
+		catch (Exception e) {
+			throw new MalformedSipMessageException(e.getMessage()); 
+		}
+	}
+
+
 	/** Creates and returns a clone of this object. */
 	abstract public Object clone();
 	//{  return new Message(message);
@@ -300,16 +370,102 @@ public abstract class BasicSipMessage {
 
   
 	/** Gets the array of bytes of this message.
+	  * <p>
+	  * The encoding is computed once and then kept until the message is changed,
+	  * so that sending the same message again (e.g. for retransmissions) does not re-encode it.
+	  * The returned array is shared and must not be modified.
 	  * @return an array of bytes containing this message */
 	public byte[] getBytes() {
-		byte[] data=getMessageHeader().toString().getBytes();
-		if (body!=null) {
-			byte[] siph=data;
-			data=new byte[siph.length+body.length];
+		if (!isEncodingValid()) encode();
+		return encoded;
+	}
+
+
+	/** Writes this message into a byte buffer.
+	  * @param buf the buffer where the message has to be written, starting from its current position
+	  * @return the number of bytes written
+	  * @throws java.nio.BufferOverflowException if there is not enough room in the buffer */
+	public int writeTo(ByteBuffer buf) {
+		byte[] data=getBytes();
+		buf.put(data);
+		return data.length;
+	}
+
+
+	/** Whether the cached encoding is still valid.
+	  * Since typed header fields may be changed in place, also the current header values are compared (by reference)
+	  * with the ones that have been encoded. */
+	private boolean isEncodingValid() {
+		if (encoded==null) return false;
+		// else
+		Object first_line=(request_line!=null)? (Object)request_line : (Object)status_line;
+		if (first_line!=encoded_first_line || body!=encoded_body || headers.size()!=encoded_values.length) return false;
+		// else
+		for (int i=0; i<encoded_values.length; i++) if (((Header)headers.elementAt(i)).getValue()!=encoded_values[i]) return false;
+		return true;
+	}
+
+
+	/** Encodes the message and caches the result.
+	  * Header fields are written directly into the byte array, without building the message String;
+	  * the String is used only if some header contains non-ASCII characters. */
+	private void encode() {
+		int n=headers.size();
+		String[] values=new String[n];
+		String first_line=(request_line!=null)? request_line.toString() : (status_line!=null)? status_line.toString() : null;
+		int len=2;
+		if (first_line!=null) len+=first_line.length();
+		for (int i=0; i<n; i++) {
+			Header hi=(Header)headers.elementAt(i);
+			values[i]=hi.getValue();
+			len+=String.valueOf(getEncodedName(hi)).length()+String.valueOf(values[i]).length()+4;
+		}
+		if (body!=null) len+=body.length;
+		byte[] data=new byte[len];
+		int index=0;
+		if (first_line!=null) index=putAscii(first_line,data,index);
+		for (int i=0; i<n && index>=0; i++) {
+			index=putAscii(String.valueOf(getEncodedName((Header)headers.elementAt(i))),data,index);
+			if (index>=0) {
+				data[index++]=':';
+				data[index++]=' ';
+				index=putAscii(String.valueOf(values[i]),data,index);
+			}
+			if (index>=0) {
+				data[index++]='\r';
+				data[index++]='\n';
+			}
+		}
+		if (index>=0) {
+			data[index++]='\r';
+			data[index++]='\n';
+			if (body!=null) ByteUtils.copy(body,data,index);
+		}
+		else {
+			// non-ASCII characters
+			byte[] siph=getMessageHeader().toString().getBytes();
+			data=new byte[siph.length+((body!=null)? body.length : 0)];
 			ByteUtils.copy(siph,data,0);
-			ByteUtils.copy(body,data,siph.length);
+			if (body!=null) ByteUtils.copy(body,data,siph.length);
 		}
-		return data;
+		encoded_first_line=(request_line!=null)? (Object)request_line : (Object)status_line;
+		encoded_values=values;
+		encoded_body=body;
+		encoded=data;
+	}
+
+
+	/** Writes an ASCII string into a byte array.
+	  * @return the index that follows the written string, or -1 if the string contains non-ASCII characters */
+	private static int putAscii(String str, byte[] buf, int index) {
+		int len=str.length();
+		for (int i=0; i<len; i++) {
+			char c=str.charAt(i);
+			if (c>=0x80) return -1;
+			// else
+			buf[index++]=(byte)c;
+		}
+		return index;
 	}
 
 
@@ -318,12 +474,46 @@ public abstract class BasicSipMessage {
 		StringBuffer sb=new StringBuffer();
 		if (request_line!=null) sb.append(request_line.toString());
 		else if (status_line!=null) sb.append(status_line.toString());
-		for (int i=0; i<headers.size(); i++) sb.append(((Header)headers.elementAt(i)).toString());
+		for (int i=0; i<headers.size(); i++) {
+			Header hi=(Header)headers.elementAt(i);
+			if (compact_form) sb.append(getEncodedName(hi)).append(": ").append(hi.getValue()).append("\r\n");
+			else sb.append(hi.toString());
+		}
 		sb.append("\r\n");
 		return sb;
 	}
 
 
+	/** Gets the name of a header field as it has to be encoded.
+	  * @return the compact form of the name, if compact form is set and the header field has one; the name of the header field, otherwise */
+	private String getEncodedName(Header hd) {
+		if (compact_form) {
+			int id=hd.getHeaderId();
+			if (id!=SipHeaders.UNKNOWN_ID) {
+				String compact_name=SipHeaders.getCompactName(id);
+				if (compact_name!=null) return compact_name;
+			}
+		}
+		return hd.getName();
+	}
+
+
+	/** Sets compact form, that is whether header field names are encoded in compact form (e.g. 'v' for Via), when available.
+	  * @param compact_form whether using compact form */
+	public void setCompactForm(boolean compact_form) {
+		if (this.compact_form!=compact_form) {
+			this.compact_form=compact_form;
+			encoded=null;
+		}
+	}
+
+
+	/** Whether header field names are encoded in compact form. */
+	public boolean isCompactForm() {
+		return compact_form;
+	}
+
+
 	/** Gets remote ip address. */
 	public String getRemoteAddress() {
 		return remote_addr;
@@ -372,9 +562,19 @@ public abstract class BasicSipMessage {
 		setConnectionId(null);
 	}
 
-	/** Gets message length. */
+	/** Gets message length.
+	  * The length is computed without encoding the message and, for a received message,
+	  * without decoding the header values that have not been read yet. */
 	public int getLength() {
-		int len=getMessageHeader().length();
+		if (isEncodingValid()) return encoded.length;
+		// else
+		int len=2;
+		if (request_line!=null) len+=request_line.toString().length();
+		else if (status_line!=null) len+=status_line.toString().length();
+		for (int i=0, n=headers.size(); i<n; i++) {
+			Header hi=(Header)headers.elementAt(i);
+			len+=String.valueOf(getEncodedName(hi)).length()+hi.getValueLength()+4;
+		}
 		if (body!=null) len+=body.length;
 		return len;
 	}
@@ -469,13 +669,43 @@ public abstract class BasicSipMessage {
 		removeStatusLine();
 	}
 	  
+	/** Gets the header fields as HeaderList.
+	  * If a subclass has replaced them with a plain Vector, they are moved into a new HeaderList. */
+	protected HeaderList headerList() {
+		if (!(headers instanceof HeaderList)) headers=new HeaderList(headers);
+		return (HeaderList)headers;
+	}
+
 	/** Gets the position of header <i>hname</i>.. */
 	protected int indexOfHeader(String hname)  {
-		for (int i=0; i<headers.size(); i++) {
-			Header hi=(Header)headers.elementAt(i);
-			if (hname.equalsIgnoreCase(hi.getName())) return i;
-		}
-		return -1;
+		return headerList().indexOfHeader(hname);
+	}
+
+	/** Invalidates any information derived from the header fields.
+	  * It has to be called each time the header fields of the message change. */
+	protected void headersChanged() {
+		if (header_cache!=null) header_cache.clear();
+		encoded=null;
+	}
+
+	/** Gets a typed header previously obtained from this message.
+	  * The returned header is shared, and only a copy of it has to be passed to the users of the message.
+	  * @param type the header type, as defined by {@link HeaderCache}
+	  * @return the typed header, or null if not cached (or no longer valid) */
+	Header getCachedHeader(int type) {
+		if (header_cache==null) return null;
+		// else
+		return header_cache.get(type);
+	}
+
+	/** Keeps a typed header obtained from this message, so that it is not parsed again.
+	  * @param type the header type, as defined by {@link HeaderCache}
+	  * @param source the header field the typed header has been obtained from
+	  * @param typed the typed header
+	  * @return the typed header */
+	Header cacheHeader(int type, Header source, Header typed) {
+		if (header_cache==null) header_cache=new HeaderCache();
+		return header_cache.put(type,source,typed);
 	}
 
 	/** Whether Message has any headers of specified name. */   
@@ -495,18 +725,14 @@ public abstract class BasicSipMessage {
 	/** Gets a Vector of all Headers of specified name (Returns empty Vector if no Header is found). */
 	public Vector getHeaders(String hname) {
 		Vector v=new Vector();
-		for (int i=0; i<headers.size(); i++) {
-			Header hi=(Header)headers.elementAt(i);
-			if (hname.equalsIgnoreCase(hi.getName())) v.addElement(hi);
-		}
+		HeaderList headers=headerList();
+		for (int i=headers.indexOfHeader(hname); i>=0; i=headers.indexOfHeader(hname,i+1)) v.addElement(headers.elementAt(i));
 		return v; 
 	}
 
 	/** Gets a Vector with all Headers. */
 	public Vector getHeaders() {
-		Vector v=new Vector();
-		for (int i=0; i<headers.size(); i++) v.addElement(headers.elementAt(i));
-		return v;
+		return headerList().toVector();
 	}
 
 	/** Adds Header at the top/bottom.
@@ -523,13 +749,14 @@ public abstract class BasicSipMessage {
 			if (ct>=0 && ct<pos) pos=ct;
 		}
 		headers.insertElementAt(header,pos);
+		headersChanged();
 	}
 	
 	/** Adds a Vector of Headers at the top/bottom. */
 	public void addHeaders(Vector headers, boolean top)  {
 		int pos=0;
 		if (!top) {
-			pos=headers.size();
+			pos=this.headers.size();
 			// if Content_Length is present, jump before
 			int cl=indexOfHeader(SipHeaders.Content_Length);
 			if (cl>=0 && cl<pos) pos=cl;
@@ -537,7 +764,8 @@ public abstract class BasicSipMessage {
 			int ct=indexOfHeader(SipHeaders.Content_Type);
 			if (ct>=0 && ct<pos) pos=ct;
 		}
-		for (int i=0; i<headers.size(); i++) this.headers.insertElementAt(headers.elementAt(i),pos+i);
+		for (int i=0; i<headers.size(); i++) this.headers.insertElementAt((Header)headers.elementAt(i),pos+i);
+		headersChanged();
 	}
 
 	/** Adds MultipleHeader(s) <i>mheader</i> at the top/bottom. */
@@ -552,6 +780,7 @@ public abstract class BasicSipMessage {
 		int i=indexOfHeader(refer_hname);
 		if (i<0) i=0;
 		headers.insertElementAt(new_header,i);
+		headersChanged();
 	}
 
 	/** Adds MultipleHeader(s) before the first header <i>refer_hname</i>
@@ -562,7 +791,8 @@ public abstract class BasicSipMessage {
 			int index=indexOfHeader(refer_hname);
 			if (index<0) index=0;
 			Vector hs=mheader.getHeaders();
-			for (int k=0; k<hs.size(); k++) headers.insertElementAt(hs.elementAt(k),index+k);
+			for (int k=0; k<hs.size(); k++) headers.insertElementAt((Header)hs.elementAt(k),index+k);
+			headersChanged();
 		}
 	}
 
@@ -572,6 +802,7 @@ public abstract class BasicSipMessage {
 		int i=indexOfHeader(refer_hname);
 		if (i>=0) i++; else i=headers.size();
 		headers.insertElementAt(new_header,i);
+		headersChanged();
 	}
 
 	/** Adds MultipleHeader(s) after the first header <i>refer_hname</i>
@@ -582,7 +813,8 @@ public abstract class BasicSipMessage {
 			int index=indexOfHeader(refer_hname);
 			if (index>=0) index++; else index=headers.size();
 			Vector hs=mheader.getHeaders();
-			for (int k=0; k<hs.size(); k++) headers.insertElementAt(hs.elementAt(k),index+k);
+			for (int k=0; k<hs.size(); k++) headers.insertElementAt((Header)hs.elementAt(k),index+k);
+			headersChanged();
 		}
 	}
 
@@ -593,74 +825,51 @@ public abstract class BasicSipMessage {
 
 	/** Removes first (or last) Header of specified name.. */
 	public void removeHeader(String hname, boolean first) {
-		int index=-1;
-		for (int i=0 ; i<headers.size(); i++) {
-			Header hi=(Header)headers.elementAt(i);
-			if (hname.equalsIgnoreCase(hi.getName())) {
-				index=i;
-				if (first) i=headers.size();
-			}
+		int index=(first)? headerList().indexOfHeader(hname) : headerList().lastIndexOfHeader(hname);
+		if (index>=0) {
+			headers.removeElementAt(index);
+			headersChanged();
 		}
-		if (index>=0) headers.removeElementAt(index);
 	}
 	
 	/** Removes all Headers of specified name. */
 	public void removeAllHeaders(String hname)  {
-		for (int i=0 ; i<headers.size(); i++) {
-			Header hi=(Header)headers.elementAt(i);
-			if (hname.equalsIgnoreCase(hi.getName())) {
-				headers.removeElementAt(i);
-				i--;
-			}
-		}
+		HeaderList headers=headerList();
+		for (int i=headers.indexOfHeader(hname); i>=0; i=headers.indexOfHeader(hname,i)) headers.removeElementAt(i);
+		headersChanged();
 	}
 	
 	/** Sets the Header <i>hd</i> removing any previous headers of the same type.. */
 	public void setHeader(Header hd)  {
-		boolean not_found=true;
 		String hname=hd.getName();
-		for (int i=0 ; i<headers.size(); i++) {
-			Header hi=(Header)headers.elementAt(i);
-			if (hname.equalsIgnoreCase(hi.getName())) {
-				if (not_found) {
-					// replace it
-					headers.setElementAt(hd,i);
-					not_found=false;
-				}
-				else  {
-					// remove it
-					headers.removeElementAt(i);
-					i--;
-				}
-			}
+		HeaderList headers=headerList();
+		int index=headers.indexOfHeader(hname);
+		if (index<0) addHeader(hd,false);
+		else {
+			// replace it
+			headers.setElementAt(hd,index);
+			// remove the others
+			for (int i=headers.indexOfHeader(hname,index+1); i>=0; i=headers.indexOfHeader(hname,i)) headers.removeElementAt(i);
+			headersChanged();
 		}
-		if (not_found) addHeader(hd,false);
 	}          
 
 	/** Sets MultipleHeader <i>mheader</i>. */
 	public void setHeaders(MultipleHeader mheader)  {
 		if (mheader.isCommaSeparated()) setHeader(mheader.toHeader()); 
 		else {
-			boolean not_found=true;
 			String hname=mheader.getName();
-			for (int i=0 ; i<headers.size(); i++) {
-				Header hi=(Header)headers.elementAt(i);
-				if (hname.equalsIgnoreCase(hi.getName())) {
-					if (not_found) {
-						// replace it
-						Vector hs=mheader.getHeaders();
-						for (int k=0; k<hs.size(); k++) headers.insertElementAt(hs.elementAt(k),i+k);
-						not_found=false;
-						i+=hs.size()-1;
-					}
-					else  {
-						// remove it
-						headers.removeElementAt(i);
-						i--;
-					}
-				}
+			HeaderList headers=headerList();
+			int index=headers.indexOfHeader(hname);
+			if (index<0) addHeaders(mheader,false);
+			else {
+				// remove all of them
+				for (int i=index; i>=0; i=headers.indexOfHeader(hname,i)) headers.removeElementAt(i);
+				// add the new ones in place of the first one
+				Vector hs=mheader.getHeaders();
+				for (int k=0; k<hs.size(); k++) headers.insertElementAt((Header)hs.elementAt(k),index+k);
+				headersChanged();
 			}
-			if (not_found) addHeaders(mheader,false);
 		}
 	}
 
@@ -762,9 +971,12 @@ public abstract class BasicSipMessage {
 	}   
 	/** Gets ContentTypeHeader of Message. */
 	public ContentTypeHeader getContentTypeHeader() {
+		ContentTypeHeader ch=(ContentTypeHeader)getCachedHeader(HeaderCache.CONTENT_TYPE);
+		if (ch!=null) return new ContentTypeHeader(ch);
+		// else
 		Header h=getHeader(SipHeaders.Content_Type);
 		if (h==null) return null;
-		else return new ContentTypeHeader(h);
+		else return new ContentTypeHeader(cacheHeader(HeaderCache.CONTENT_TYPE,h,new ContentTypeHeader(h)));
 	} 
 	/** Sets ContentTypeHeader of Message. */
 	protected void setContentTypeHeader(ContentTypeHeader cth)  {
@@ -782,9 +994,12 @@ public abstract class BasicSipMessage {
 	}  
 	/** Gets ContentLengthHeader of Message. */
 	public ContentLengthHeader getContentLengthHeader() {
+		ContentLengthHeader ch=(ContentLengthHeader)getCachedHeader(HeaderCache.CONTENT_LENGTH);
+		if (ch!=null) return new ContentLengthHeader(ch);
+		// else
 		Header h=getHeader(SipHeaders.Content_Length);
 		if (h==null) return null;
-		else return new ContentLengthHeader(h);
+		else return new ContentLengthHeader(cacheHeader(HeaderCache.CONTENT_LENGTH,h,new ContentLengthHeader(h)));
 	} 
 	/** Sets ContentLengthHeader of Message. */
 	protected void setContentLengthHeader(ContentLengthHeader clh)  {
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.message;
+
+
+
+import org.mjsip.sip.header.Header;
+
+
+
+/** HeaderCache keeps the typed header fields (e.g. ViaHeader, CSeqHeader, etc.)
+  * already obtained from a SIP message, so that they are not searched for and extracted again
+  * each time they are requested.
+  * <p>
+  * Cached headers must never be passed to the users of the message, that may modify them;
+  * only copies of them have to be returned.
+  * <p>
+  * The cache has to be cleared each time the header fields of the message change.
+  * Moreover, a cached header is considered valid only if the source header field
+  * has not been modified in the meantime.
+  */
+class HeaderCache {
+	
+	/** Via (top) */
+	static final int VIA=0;
+	/** From */
+	static final int FROM=1;
+	/** To */
+	static final int TO=2;
+	/** Call-ID */
+	static final int CALL_ID=3;
+	/** CSeq */
+	static final int CSEQ=4;
+	/** Contact (top) */
+	static final int CONTACT=5;
+	/** Route (top) */
+	static final int ROUTE=6;
+	/** Record-Route (top) */
+	static final int RECORD_ROUTE=7;
+	/** Max-Forwards */
+	static final int MAX_FORWARDS=8;
+	/** Expires */
+	static final int EXPIRES=9;
+	/** Content-Length */
+	static final int CONTENT_LENGTH=10;
+	/** Content-Type */
+	static final int CONTENT_TYPE=11;
+
+	/** Number of cached header types */
+	static final int SIZE=12;
+
+
+	/** A cached header. */
+	static final class Entry {
+		/** The source header field */
+		final Header source;
+		/** The value of the source header field when the typed header was created */
+		final String source_value;
+		/** The typed header */
+		final Header typed;
+
+		Entry(Header source, Header typed) {
+			this.source=source;
+			this.source_value=source.getValue();
+			this.typed=typed;
+		}
+	}
+
+
+	/** Cached headers */
+	Entry[] entries=new Entry[SIZE];
+
+
+
+	/** Gets a cached typed header.
+	  * @param type the header type
+	  * @return the typed header, or null if it is not present or no longer valid */
+	Header get(int type) {
+		Entry e=entries[type];
+		if (e==null) return null;
+		// else
+		if (e.source.getValue()!=e.source_value) {
+			entries[type]=null;
+			return null;
+		}
+		return e.typed;
+	}
+
+	/** Caches a typed header.
+	  * @param type the header type
+	  * @param source the header field the typed header has been obtained from
+	  * @param typed the typed header
+	  * @return the typed header */
+	Header put(int type, Header source, Header typed) {
+		entries[type]=new Entry(source,typed);
+		return typed;
+	}
+
+	/** Removes all cached headers. */
+	void clear() {
+		for (int i=0; i<SIZE; i++) entries[i]=null;
+	}
+
+}
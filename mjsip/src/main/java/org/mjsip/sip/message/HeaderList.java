@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.message;
+
+
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Vector;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.mjsip.sip.header.Header;
+import org.mjsip.sip.header.SipHeaders;
+
+
+
+/** HeaderList is the ordered list of header fields of a SIP message.
+  * <p>
+  * Header fields are kept in the same order as they appear in the message (on the wire).
+  * For header fields with a known name (see {@link SipHeaders#getId(String)}) the list also
+  * maintains the position of the first and last occurrence, so that they can be found
+  * without scanning the list and without comparing names.
+  * Full names and compact forms (e.g. "Via" and "v") refer to the same header id.
+  * <p>
+  * Header fields with unknown names are looked up by scanning the list.
+  * <p>
+  * HeaderList is a Vector of <code>Header</code>, so that it can be used wherever the header fields
+  * were kept in a plain Vector; all methods that modify the list also update the positions.
+  * Since a null element has no header id, it cannot be added, and the list cannot be enlarged through {@link #setSize(int)}.
+  */
+public class HeaderList extends Vector {
+	
+	/** Initial capacity */
+	private static final int INITIAL_CAPACITY=16;
+
+	/** Position of the first occurrence of each known header id (or -1) */
+	int[] first=newIndex();
+
+	/** Position of the last occurrence of each known header id (or -1) */
+	int[] last=newIndex();
+
+
+
+	/** Creates a new empty HeaderList. */
+	public HeaderList() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/** Creates a new empty HeaderList.
+	  * @param capacity the initial capacity */
+	public HeaderList(int capacity) {
+		super(capacity>0? capacity : 1);
+	}
+
+	/** Creates a new HeaderList.
+	  * @param v vector of header fields (Vector of <code>Header</code>) */
+	public HeaderList(Vector v) {
+		this(v.size());
+		for (int i=0; i<v.size(); i++) addElement(v.elementAt(i));
+	}
+
+	/** Creates a new empty position index. */
+	private static int[] newIndex() {
+		int[] index=new int[SipHeaders.getIdCount()];
+		Arrays.fill(index,-1);
+		return index;
+	}
+
+	/** Gets the header id of the header field at the given position. */
+	private int idAt(int i) {
+		return ((Header)elementData[i]).getHeaderId();
+	}
+
+	/** Gets the position of the first header field with the given name.
+	  * @return the position, or -1 if not found */
+	public synchronized int indexOfHeader(String hname) {
+		int id=SipHeaders.getId(hname);
+		if (id!=SipHeaders.UNKNOWN_ID) return first[id];
+		// else
+		for (int i=0; i<elementCount; i++) if (idAt(i)==SipHeaders.UNKNOWN_ID && ((Header)elementData[i]).hasName(hname)) return i;
+		return -1;
+	}
+
+	/** Gets the position of the last header field with the given name.
+	  * @return the position, or -1 if not found */
+	public synchronized int lastIndexOfHeader(String hname) {
+		int id=SipHeaders.getId(hname);
+		if (id!=SipHeaders.UNKNOWN_ID) return last[id];
+		// else
+		for (int i=elementCount-1; i>=0; i--) if (idAt(i)==SipHeaders.UNKNOWN_ID && ((Header)elementData[i]).hasName(hname)) return i;
+		return -1;
+	}
+
+	/** Gets the position of the next header field with the given name, starting from a given position.
+	  * @return the position, or -1 if not found */
+	public synchronized int indexOfHeader(String hname, int begin) {
+		int id=SipHeaders.getId(hname);
+		if (id!=SipHeaders.UNKNOWN_ID) {
+			if (first[id]<0 || begin>last[id]) return -1;
+			// else
+			if (begin<first[id]) begin=first[id];
+			for (int i=begin; i<=last[id]; i++) if (idAt(i)==id) return i;
+			return -1;
+		}
+		// else
+		for (int i=begin; i<elementCount; i++) if (idAt(i)==SipHeaders.UNKNOWN_ID && ((Header)elementData[i]).hasName(hname)) return i;
+		return -1;
+	}
+
+	/** Adds a header field at the bottom. */
+	public synchronized void addElement(Object obj) {
+		int id=((Header)obj).getHeaderId();
+		super.addElement(obj);
+		if (id!=SipHeaders.UNKNOWN_ID) {
+			int pos=elementCount-1;
+			if (first[id]<0) first[id]=pos;
+			last[id]=pos;
+		}
+	}
+
+	/** Inserts a header field at the given position. */
+	public synchronized void insertElementAt(Object obj, int pos) {
+		if (pos==elementCount) {
+			addElement(obj);
+			return;
+		}
+		// else
+		int id=((Header)obj).getHeaderId();
+		super.insertElementAt(obj,pos);
+		for (int i=0; i<first.length; i++) {
+			if (first[i]>=pos) first[i]++;
+			if (last[i]>=pos) last[i]++;
+		}
+		if (id!=SipHeaders.UNKNOWN_ID) {
+			if (first[id]<0 || first[id]>pos) first[id]=pos;
+			if (last[id]<pos) last[id]=pos;
+		}
+	}
+
+	/** Replaces the header field at the given position. */
+	public synchronized void setElementAt(Object obj, int pos) {
+		if (pos>=elementCount) throw new ArrayIndexOutOfBoundsException(pos+" >= "+elementCount);
+		int id=((Header)obj).getHeaderId();
+		int old_id=idAt(pos);
+		super.setElementAt(obj,pos);
+		if (id!=old_id) {
+			// the list is not structurally modified, so that it does not invalidate list iterators
+			unindex(old_id,pos);
+			if (id!=SipHeaders.UNKNOWN_ID) {
+				if (first[id]<0 || first[id]>pos) first[id]=pos;
+				if (last[id]<pos) last[id]=pos;
+			}
+		}
+	}
+
+	/** Removes the header field at the given position. */
+	public synchronized void removeElementAt(int pos) {
+		if (pos>=elementCount) throw new ArrayIndexOutOfBoundsException(pos+" >= "+elementCount);
+		unindex(idAt(pos),pos);
+		super.removeElementAt(pos);
+		for (int i=0; i<first.length; i++) {
+			if (first[i]>pos) first[i]--;
+			if (last[i]>pos) last[i]--;
+		}
+	}
+
+	/** Updates the first and last positions of a header id, when its occurrence at the given position is removed or replaced. */
+	private void unindex(int id, int pos) {
+		if (id==SipHeaders.UNKNOWN_ID) return;
+		// else
+		if (first[id]==pos && last[id]==pos) first[id]=last[id]=-1;
+		else
+		if (first[id]==pos) {
+			int i=pos+1;
+			while (idAt(i)!=id) i++;
+			first[id]=i;
+		}
+		else
+		if (last[id]==pos) {
+			int i=pos-1;
+			while (idAt(i)!=id) i--;
+			last[id]=i;
+		}
+	}
+
+	/** Removes all header fields. */
+	public synchronized void removeAllElements() {
+		super.removeAllElements();
+		Arrays.fill(first,-1);
+		Arrays.fill(last,-1);
+	}
+
+	/** Gets a Vector with all header fields. */
+	public synchronized Vector toVector() {
+		Vector v=new Vector(elementCount);
+		for (int i=0; i<elementCount; i++) v.addElement(elementData[i]);
+		return v;
+	}
+
+
+	// *********************** Vector methods ***********************
+
+	// all other Vector methods that modify the list are implemented through the methods above
+
+	public synchronized boolean add(Object obj) {
+		addElement(obj);
+		return true;
+	}
+
+	public void add(int pos, Object obj) {
+		insertElementAt(obj,pos);
+	}
+
+	public synchronized Object set(int pos, Object obj) {
+		Object old=elementAt(pos);
+		setElementAt(obj,pos);
+		return old;
+	}
+
+	public synchronized Object remove(int pos) {
+		Object old=elementAt(pos);
+		removeElementAt(pos);
+		return old;
+	}
+
+	public boolean remove(Object obj) {
+		return removeElement(obj);
+	}
+
+	public synchronized boolean removeElement(Object obj) {
+		int i=indexOf(obj);
+		if (i<0) return false;
+		// else
+		removeElementAt(i);
+		return true;
+	}
+
+	public void clear() {
+		removeAllElements();
+	}
+
+	public synchronized boolean addAll(Collection c) {
+		for (Iterator i=c.iterator(); i.hasNext(); ) addElement(i.next());
+		return !c.isEmpty();
+	}
+
+	public synchronized boolean addAll(int pos, Collection c) {
+		if (pos<0 || pos>elementCount) throw new ArrayIndexOutOfBoundsException(pos);
+		// else
+		for (Iterator i=c.iterator(); i.hasNext(); ) insertElementAt(i.next(),pos++);
+		return !c.isEmpty();
+	}
+
+	public synchronized boolean removeAll(Collection c) {
+		boolean modified=false;
+		for (int i=elementCount-1; i>=0; i--) if (c.contains(elementData[i])) {
+			removeElementAt(i);
+			modified=true;
+		}
+		return modified;
+	}
+
+	public synchronized boolean retainAll(Collection c) {
+		boolean modified=false;
+		for (int i=elementCount-1; i>=0; i--) if (!c.contains(elementData[i])) {
+			removeElementAt(i);
+			modified=true;
+		}
+		return modified;
+	}
+
+	public synchronized boolean removeIf(Predicate filter) {
+		boolean modified=false;
+		for (int i=elementCount-1; i>=0; i--) if (filter.test(elementData[i])) {
+			removeElementAt(i);
+			modified=true;
+		}
+		return modified;
+	}
+
+	public synchronized void replaceAll(UnaryOperator operator) {
+		for (int i=0; i<elementCount; i++) setElementAt(operator.apply(elementData[i]),i);
+	}
+
+	public synchronized void sort(Comparator c) {
+		Object[] sorted=toArray();
+		Arrays.sort(sorted,c);
+		removeAllElements();
+		for (int i=0; i<sorted.length; i++) addElement(sorted[i]);
+	}
+
+	protected synchronized void removeRange(int from, int to) {
+		for (int i=to-1; i>=from; i--) removeElementAt(i);
+	}
+
+	/** Truncates the list.
+	  * @param size the new size; it cannot be greater than the current size, since null header fields are not allowed */
+	public synchronized void setSize(int size) {
+		if (size>elementCount) throw new UnsupportedOperationException("HeaderList cannot contain null elements");
+		// else
+		while (elementCount>size) removeElementAt(elementCount-1);
+	}
+
+	public synchronized Object clone() {
+		HeaderList list=(HeaderList)super.clone();
+		list.first=(int[])first.clone();
+		list.last=(int[])last.clone();
+		return list;
+	}
+
+}
@@ -131,6 +131,15 @@ public class SipMessage extends BasicSipMessage {
 	}
 
 
+	/** Gets the top value of a header field that may contain comma-separated values.
+	  * @param h the first header field of a given type
+	  * @return the header itself, or a new header with the first value of the comma-separated list */
+	private static Header getTopHeader(Header h) {
+		if (MultipleHeader.isCommaSeparated(h)) return new MultipleHeader(h).getTop();
+		else return h;
+	}
+
+
 	//*************************** Basic (RFC 3261) ****************************
 
 	/** Whether Message is an Invite. */
@@ -176,9 +185,12 @@ public class SipMessage extends BasicSipMessage {
 	}  
 	/** Gets MaxForwardsHeader of Message. */
 	public MaxForwardsHeader getMaxForwardsHeader() {
+		MaxForwardsHeader th=(MaxForwardsHeader)getCachedHeader(HeaderCache.MAX_FORWARDS);
+		if (th!=null) return new MaxForwardsHeader(th);
+		// else
 		Header h=getHeader(SipHeaders.Max_Forwards);
 		if (h==null) return null;
-		else return new MaxForwardsHeader(h);
+		else return new MaxForwardsHeader(cacheHeader(HeaderCache.MAX_FORWARDS,h,new MaxForwardsHeader(h)));
 	} 
 	/** Sets MaxForwardsHeader of Message. */
 	public void setMaxForwardsHeader(MaxForwardsHeader mfh) {
@@ -196,9 +208,12 @@ public class SipMessage extends BasicSipMessage {
 	}  
 	/** Gets FromHeader of Message. */
 	public FromHeader getFromHeader() {
+		FromHeader th=(FromHeader)getCachedHeader(HeaderCache.FROM);
+		if (th!=null) return new FromHeader(th);
+		// else
 		Header h=getHeader(SipHeaders.From);
 		if (h==null) return null;
-		else return new FromHeader(h);
+		else return new FromHeader(cacheHeader(HeaderCache.FROM,h,new FromHeader(h)));
 	} 
 	/** Sets FromHeader of Message. */
 	public void setFromHeader(FromHeader fh)  {
@@ -215,9 +230,12 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets ToHeader of Message. */
 	public ToHeader getToHeader() {
+		ToHeader th=(ToHeader)getCachedHeader(HeaderCache.TO);
+		if (th!=null) return new ToHeader(th);
+		// else
 		Header h=getHeader(SipHeaders.To);
 		if (h==null) return null;
-		else return new ToHeader(h);
+		else return new ToHeader(cacheHeader(HeaderCache.TO,h,new ToHeader(h)));
 	} 
 	/** Sets ToHeader of Message. */
 	public void setToHeader(ToHeader th)  {
@@ -237,10 +255,12 @@ public class SipMessage extends BasicSipMessage {
 	/** <b>Deprecated</b>. Gets ContactHeader of Message. Use getContacts instead.
 	  * @return the top Contact header field */  
 	public ContactHeader getContactHeader() {
-		//Header h=getHeader(SipHeaders.Contact);
-		//if (h==null) return null; else return new ContactHeader(h);
-		MultipleHeader mh=getContacts();
-		if (mh==null) return null; return new ContactHeader(mh.getTop());
+		ContactHeader th=(ContactHeader)getCachedHeader(HeaderCache.CONTACT);
+		if (th!=null) return new ContactHeader(th);
+		// else
+		Header h=getHeader(SipHeaders.Contact);
+		if (h==null) return null;
+		else return new ContactHeader(cacheHeader(HeaderCache.CONTACT,h,new ContactHeader(getTopHeader(h))));
 	} 
 	/** Gets a MultipleHeader of Contacts.
 	  * @return all contacts (MultipleHeader of <code>ContactHeader</code>) */
@@ -285,10 +305,12 @@ public class SipMessage extends BasicSipMessage {
 	/** Gets the top ViaHeader.
 	  * @return the top Via header field */  
 	public ViaHeader getViaHeader() {
-		//Header h=getHeader(SipHeaders.Via);
-		//if (h==null) return null; else return new ViaHeader(h);
-		MultipleHeader mh=getVias();
-		if (mh==null) return null; return new ViaHeader(mh.getTop());
+		ViaHeader th=(ViaHeader)getCachedHeader(HeaderCache.VIA);
+		if (th!=null) return new ViaHeader(th);
+		// else
+		Header h=getHeader(SipHeaders.Via);
+		if (h==null) return null;
+		else return new ViaHeader(cacheHeader(HeaderCache.VIA,h,new ViaHeader(getTopHeader(h))));
 	} 
 	/** Gets all Via header fields.
 	  * @return all Via header fields (MultipleHeader of <code>ViaHeader</code>) */
@@ -335,10 +357,12 @@ public class SipMessage extends BasicSipMessage {
 	/** Gets the top RouteHeader.
 	  * @return the top Route header field */  
 	public RouteHeader getRouteHeader() {
-		//Header h=getHeader(SipHeaders.Route);
-		//if (h==null) return null; else return new RouteHeader(h);
-		MultipleHeader mh=getRoutes();
-		if (mh==null) return null; return new RouteHeader(mh.getTop());
+		RouteHeader th=(RouteHeader)getCachedHeader(HeaderCache.ROUTE);
+		if (th!=null) return new RouteHeader(th);
+		// else
+		Header h=getHeader(SipHeaders.Route);
+		if (h==null) return null;
+		else return new RouteHeader(cacheHeader(HeaderCache.ROUTE,h,new RouteHeader(getTopHeader(h))));
 	} 
 	/** Gets all Route header fields.
 	  * @return all routes (MultipleHeader of <code>RouteHeader</code>) */
@@ -384,10 +408,12 @@ public class SipMessage extends BasicSipMessage {
 	/** Gets the top RecordRouteHeader.
 	  * @return the top Record-Route header field */  
 	public RecordRouteHeader getRecordRouteHeader() {
-		//Header h=getHeader(SipHeaders.Record_Route);
-		//if (h==null) return null; else return new RecordRouteHeader(h);
-		MultipleHeader mh=getRecordRoutes();
-		if (mh==null) return null; return new RecordRouteHeader(mh.getTop());
+		RecordRouteHeader th=(RecordRouteHeader)getCachedHeader(HeaderCache.RECORD_ROUTE);
+		if (th!=null) return new RecordRouteHeader(th);
+		// else
+		Header h=getHeader(SipHeaders.Record_Route);
+		if (h==null) return null;
+		else return new RecordRouteHeader(cacheHeader(HeaderCache.RECORD_ROUTE,h,new RecordRouteHeader(getTopHeader(h))));
 	} 
 	/** Gets all Record-Route header fields.
 	  * @return all routes (MultipleHeader of <code>RecordRouteHeader</code>) */
@@ -457,9 +483,12 @@ public class SipMessage extends BasicSipMessage {
 	}  
 	/** Gets CSeqHeader of Message. */
 	public CSeqHeader getCSeqHeader() {
+		CSeqHeader th=(CSeqHeader)getCachedHeader(HeaderCache.CSEQ);
+		if (th!=null) return new CSeqHeader(th);
+		// else
 		Header h=getHeader(SipHeaders.CSeq);
 		if (h==null) return null;
-		else return new CSeqHeader(h);
+		else return new CSeqHeader(cacheHeader(HeaderCache.CSEQ,h,new CSeqHeader(h)));
 	} 
 	/** Sets CSeqHeader of Message. */
 	public void setCSeqHeader(CSeqHeader csh)  {
@@ -481,9 +510,12 @@ public class SipMessage extends BasicSipMessage {
 	} 
 	/** Gets CallIdHeader of Message. */
 	public CallIdHeader getCallIdHeader() {
+		CallIdHeader th=(CallIdHeader)getCachedHeader(HeaderCache.CALL_ID);
+		if (th!=null) return new CallIdHeader(th);
+		// else
 		Header h=getHeader(SipHeaders.Call_ID);
 		if (h==null) return null;
-		else return new CallIdHeader(h);
+		else return new CallIdHeader(cacheHeader(HeaderCache.CALL_ID,h,new CallIdHeader(h)));
 	} 
 	/** Removes CallIdHeader from Message. */
 	public void removeCallIdHeader()  {
@@ -677,9 +709,12 @@ public class SipMessage extends BasicSipMessage {
 	}   
 	/** Gets ExpiresHeader of Message. */
 	public ExpiresHeader getExpiresHeader() {
+		ExpiresHeader th=(ExpiresHeader)getCachedHeader(HeaderCache.EXPIRES);
+		if (th!=null) return new ExpiresHeader(th);
+		// else
 		Header h=getHeader(SipHeaders.Expires);
 		if (h==null) return null;
-		else return new ExpiresHeader(h);
+		else return new ExpiresHeader(cacheHeader(HeaderCache.EXPIRES,h,new ExpiresHeader(h)));
 	} 
 	/** Sets ExpiresHeader of Message. */
 	public void setExpiresHeader(ExpiresHeader eh)  {
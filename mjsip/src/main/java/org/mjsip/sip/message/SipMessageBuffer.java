@@ -23,19 +23,42 @@
 
 package org.mjsip.sip.message;
 
+
+
+import org.mjsip.sip.header.SipHeaders;
+
+
+
 /** Class SipMessageBuffer provides methods for extracting SIP messages from a byte buffer.
+  * <p>
+  * It is used for stream-based transports (e.g. TCP and TLS), where a message may be received
+  * in more pieces and more messages may be received at once.
+  * <br>
+  * Received bytes are kept in a growable buffer that is compacted only when needed,
+  * and each message is framed by searching the end of the message header just once
+  * (also across partial reads) and then by using the Content-Length header field.
+  * The message is parsed only when it has been completely received.
   */
 public class SipMessageBuffer {
 	
 
+	/** Initial buffer size */
+	static final int INITIAL_SIZE=4096;
+
 	/** Buffer */
 	byte[] buffer=null;
 	
 	/** Current data offset within the buffer */
 	int offset=0;
 	
-	/** Current data length */
-	//int length=0;
+	/** End of the current data within the buffer */
+	int end=0;
+
+	/** Position within the buffer from which the end of the message header has still to be searched */
+	int scan=0;
+
+	/** Total length of the current message, or -1 if the end of the message header has not been found yet */
+	int message_len=-1;
 
 	
 	
@@ -45,19 +68,18 @@ public class SipMessageBuffer {
 	}
 
 	/** Gets the current buffer.
-	  * @return the offset */
+	  * @return the buffer */
 	public synchronized byte[] getBuffer() {
 		return buffer;
 	}
 
-	/** Gets the current offset of the data within the buffer.
+	/** Gets the current length of the data within the buffer.
 	  * @return the length */
 	public synchronized int getLength() {
-		//return length;
-		return buffer==null? 0 : buffer.length-offset;
+		return end-offset;
 	}
 
-	/** Gets the current length of the data within the buffer.
+	/** Gets the current offset of the data within the buffer.
 	  * @return the offset */
 	public synchronized int getOffset() {
 		return offset;
@@ -74,8 +96,11 @@ public class SipMessageBuffer {
 	  * @param n the number of bytes to be skipped
 	  * @return this SipMessageBuffer */
 	public synchronized SipMessageBuffer skip(int n) {
+		if (offset+n>end) throw new RuntimeException("Exceeded the buffer length: "+(offset+n)+">"+end);
+		// else
 		offset+=n;
-		if (buffer==null || offset>buffer.length) throw new RuntimeException("Exceeded the buffer length: "+offset+">"+(buffer==null? 0 : buffer.length));
+		if (scan<offset) scan=offset;
+		message_len=-1;
 		return this;
 	}
 
@@ -87,37 +112,129 @@ public class SipMessageBuffer {
 	}
 
 	/** Appends new bytes to the buffer.
+	  * The buffer is compacted (moving the current data at its beginning) or enlarged only when there is no room at the end.
 	  * @param buf a byte array containing bytes to be added
 	  * @param off the offset within the array
 	  * @param len number of bytes
 	  * @return this object */
 	public synchronized SipMessageBuffer append(byte[] buf, int off, int len) {
-		byte[] new_buffer=new byte[buffer==null? len : buffer.length-offset+len];
-		int index=0;
-		// copy old bytes from the previous buffer
-		if (buffer!=null) while (offset<buffer.length) new_buffer[index++]=buffer[offset++];
-		// copy new bytes
-		for (int i=0; i<len; i++) new_buffer[index++]=buf[off+i];
-		buffer=new_buffer;
-		offset=0;
+		if (buffer==null) buffer=new byte[len>INITIAL_SIZE? len : INITIAL_SIZE];
+		else
+		if (end+len>buffer.length) {
+			int data_len=end-offset;
+			byte[] new_buffer=buffer;
+			if (data_len+len>buffer.length) {
+				int size=buffer.length*2;
+				if (size<data_len+len) size=data_len+len;
+				new_buffer=new byte[size];
+			}
+			if (data_len>0) System.arraycopy(buffer,offset,new_buffer,0,data_len);
+			buffer=new_buffer;
+			scan-=offset;
+			offset=0;
+			end=data_len;
+		}
+		System.arraycopy(buf,off,buffer,end,len);
+		end+=len;
 		return this;
 	}
 
 	/** Tries to get a new SIP message from the buffer.
-	  * @return a new SIP message or null */
+	  * @return a new SIP message, or null if no complete message is available yet
+	  * @exception MalformedSipMessageException in case of a malformed message (the message is discarded) */
 	public synchronized SipMessage parseSipMessage() throws MalformedSipMessageException {
+		if (message_len<0) {
+			int header_len=findHeaderLength();
+			if (header_len<0) return null;
+			// else
+			int content_len=getContentLength(buffer,offset,header_len);
+			if (content_len<0) {
+				offset+=header_len;
+				scan=offset;
+				throw new MalformedSipMessageException("Invalid Content-Length header field");
+			}
+			message_len=header_len+content_len;
+		}
+		if (end-offset<message_len) return null;
+		// else
+		int len=message_len;
+		message_len=-1;
 		SipMessage msg=new SipMessage();
-		offset+=msg.setMessage(buffer,offset,buffer.length-offset);
-		// DEBUG:
-		/*try {
-			offset+=msg.setMessage(buffer,offset,buffer.length-offset);
-			System.out.println("DEBUG: SipMessageBuffer: parseSipMessage(): "+offset+"/"+buffer.length);
+		try {
+			msg.setMessage(buffer,offset,len);
+		}
+		finally {
+			offset+=len;
+			scan=offset;
+			if (offset==end) offset=end=scan=0;
 		}
-		catch (MalformedSipMessageException e) {
-			System.out.println("DEBUG: SipMessageBuffer: parseSipMessage(): "+offset+"/"+buffer.length);
-			throw e;
-		}*/
 		return msg;
 	}
+
+	/** Gets the next SIP message from the buffer, as received through a stream-based transport.
+	  * Possible CRLFs preceding the message (e.g. keep-alives) are skipped, and malformed messages are discarded.
+	  * @return a new SIP message, or null if no complete message is available yet */
+	public synchronized SipMessage nextSipMessage() {
+		while (true) {
+			// skip possible leading CRLF
+			while (offset<end && (buffer[offset]=='\r' || buffer[offset]=='\n')) skip(1);
+			// try to get a SIP message
+			try {  return parseSipMessage();  }
+			catch (MalformedSipMessageException e) {}
+		}
+	}
+
+	/** Searches the end of the message header (an empty line), starting from where the previous search stopped.
+	  * @return the length of the message header (including the empty line), or -1 if not found */
+	private int findHeaderLength() {
+		for (int i=scan; i<end; i++) {
+			if (buffer[i]=='\n' && i>offset) {
+				if (buffer[i-1]=='\n' || (buffer[i-1]=='\r' && i-1>offset && buffer[i-2]=='\n')) {
+					scan=i+1;
+					return i+1-offset;
+				}
+			}
+		}
+		scan=end;
+		return -1;
+	}
+
+	/** Gets the value of the Content-Length header field.
+	  * @param buf the buffer containing the message header
+	  * @param off the offset of the message header within the buffer
+	  * @param len the length of the message header
+	  * @return the content length, 0 if no Content-Length header field is present, or -1 if its value is not valid */
+	private static int getContentLength(byte[] buf, int off, int len) {
+		int content_length_id=SipHeaders.getId(SipHeaders.Content_Length);
+		int end=off+len;
+		// skip the first line
+		int i=off;
+		while (i<end && buf[i]!='\n') i++;
+		while (++i<end) {
+			// begin of a header line
+			int name_off=i;
+			while (i<end && buf[i]!=':' && buf[i]!='\n') i++;
+			if (i<end && buf[i]==':') {
+				int name_end=i;
+				while (name_end>name_off && (buf[name_end-1]==' ' || buf[name_end-1]=='\t')) name_end--;
+				if (SipHeaders.getId(buf,name_off,name_end-name_off)==content_length_id) {
+					long value=-1;
+					for (i++; i<end && buf[i]!='\r' && buf[i]!='\n'; i++) {
+						byte b=buf[i];
+						if (b>='0' && b<='9') {
+							value=(value<0)? b-'0' : value*10+b-'0';
+							if (value>Integer.MAX_VALUE) return -1;
+						}
+						else
+						if (b!=' ' && b!='\t') return -1;
+					}
+					return (int)value;
+				}
+			}
+			// go to the end of line
+			while (i<end && buf[i]!='\n') i++;
+		}
+		return 0;
+	}
 	
 }
@@ -49,8 +49,8 @@ public class DialogId extends SipId {
 		String local_tag, remote_tag;
 		if (msg.isRequest()) {  local_tag=msg.getToHeader().getTag(); remote_tag=msg.getFromHeader().getTag(); }
 		else {  local_tag=msg.getFromHeader().getTag(); remote_tag=msg.getToHeader().getTag(); }
-		// set id
-		this.id=getDialodId(call_id,local_tag,remote_tag);
+		// set id, without building the string value
+		setParts(new String[]{ call_id, "-", local_tag, "-", remote_tag });
 	}   
 
 	/** Creates a new DialogId.
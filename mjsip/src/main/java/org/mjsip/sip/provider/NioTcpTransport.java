@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.provider;
+
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.NioEventHandler;
+import org.zoolu.net.NioEventLoop;
+import org.zoolu.net.SocketAddress;
+import org.zoolu.util.LogLevel;
+import org.zoolu.util.Logger;
+
+
+
+/** NioTcpTransport provides a TCP-based transport service for SIP based on java.nio.
+  * <p>
+  * Differently from {@link TcpTransport}, that uses one thread for each connection,
+  * all connections are handled by a small pool of {@link NioEventLoop}s.
+  * The server channel is handled by the first loop, while accepted and outgoing connections
+  * are assigned to the loops in round-robin.
+  * <p>
+  * Extending classes (e.g. {@link NioTlsTransport}) can provide different kinds of connections
+  * by overriding the <code>createTransportConnection()</code> methods.
+  */
+public class NioTcpTransport extends SipTransportCO {
+	
+	/** TCP protocol type */
+	public static final String PROTO_TCP="tcp";
+	
+	/** Server channel */
+	ServerSocketChannel server_channel=null;
+
+	/** Event loops */
+	NioEventLoop[] loops;
+
+	/** Index of the next loop to be used */
+	int next_loop=0;
+
+	/** Local port */
+	int local_port;
+
+	/** Local address; null if bound to all interfaces */
+	IpAddress host_ipaddr;
+
+
+
+	/** Creates a new NioTcpTransport, without starting it.
+	  * It is used by extending classes, that have to call {@link #init(int,IpAddress,int)} once they are ready to handle connections. */ 
+	protected NioTcpTransport(int local_port, int nmax_connections, Logger logger)   throws IOException {
+		super(local_port,nmax_connections,logger);
+	}
+
+
+	/** Creates a new NioTcpTransport */ 
+	public NioTcpTransport(int local_port, int nmax_connections, int nloops, Logger logger)   throws IOException {
+		super(local_port,nmax_connections,logger);
+		init(local_port,null,nloops);
+	}
+
+
+	/** Creates a new NioTcpTransport */ 
+	public NioTcpTransport(int local_port, IpAddress host_ipaddr, int nmax_connections, int nloops, Logger logger)   throws IOException {
+		super(local_port,nmax_connections,logger);
+		init(local_port,host_ipaddr,nloops);
+	}
+
+
+	/** Inits the NioTcpTransport.
+	  * @param nloops the number of event loops; if zero, the number of available processors is used */ 
+	protected void init(int local_port, IpAddress host_ipaddr, int nloops) throws IOException {
+		if (nloops<=0) nloops=Runtime.getRuntime().availableProcessors();
+		loops=new NioEventLoop[nloops];
+		for (int i=0; i<nloops; i++) loops[i]=new NioEventLoop(logger);
+		server_channel=ServerSocketChannel.open();
+		try {
+			if (host_ipaddr==null) server_channel.socket().bind(new InetSocketAddress(local_port));
+			else server_channel.socket().bind(new InetSocketAddress(host_ipaddr.getInetAddress(),local_port));
+			server_channel.configureBlocking(false);
+		}
+		catch (IOException e) {
+			halt();
+			throw e;
+		}
+		this.local_port=server_channel.socket().getLocalPort();
+		this.host_ipaddr=host_ipaddr;
+		loops[0].register(server_channel,SelectionKey.OP_ACCEPT,new NioEventHandler() {
+			public void onSelected(SelectionKey key) {
+				processAcceptable(key);
+			}
+		});
+	}
+
+
+	/** Gets protocol type */ 
+	public String getProtocol() {
+		return PROTO_TCP;
+	}
+
+
+	/** Gets local port */ 
+	public int getLocalPort() {
+		return local_port;
+	}
+
+
+	/** Stops running */
+	public void halt() {
+		super.halt();
+		if (server_channel!=null) try {  server_channel.close();  } catch (IOException e) {}
+		// let the loops close the connections before stopping 
+		if (loops!=null) for (int i=0; i<loops.length; i++) {
+			final NioEventLoop loop=loops[i];
+			loop.execute(new Runnable() {
+				public void run() {
+					loop.halt();
+				}
+			});
+		}
+	}
+
+
+	/** Gets the next event loop. */
+	protected synchronized NioEventLoop nextLoop() {
+		NioEventLoop loop=loops[next_loop];
+		next_loop=(next_loop+1)%loops.length;
+		return loop;
+	}
+
+
+	/** When the server channel has incoming connections. */ 
+	private void processAcceptable(SelectionKey key) {
+		SocketChannel channel;
+		try {
+			while ((channel=server_channel.accept())!=null) {
+				try {
+					SipTransportConnection conn=createTransportConnection(channel);
+					log(LogLevel.DEBUG,getProtocol()+" connection "+conn+" opened");
+					addConnection(conn);
+					if (listener!=null) listener.onIncomingTransportConnection(this,new SocketAddress(conn.getRemoteAddress(),conn.getRemotePort()));
+				}
+				catch (IOException e) {
+					log(LogLevel.INFO,e);
+					try {  channel.close();  } catch (IOException e2) {}
+				}
+			}
+		}
+		catch (IOException e) {
+			log(LogLevel.INFO,e);
+		}
+	}
+
+
+	/** Creates a transport connection for an accepted channel. */
+	protected SipTransportConnection createTransportConnection(SocketChannel channel) throws IOException {
+		return new NioTcpTransportConnection(channel,nextLoop(),this_conn_listener);
+	}
+
+
+	/** Creates a transport connection to the remote end-point. */
+	protected SipTransportConnection createTransportConnection(SocketAddress remote_soaddr) throws IOException {
+		return new NioTcpTransportConnection(remote_soaddr,nextLoop(),this_conn_listener);
+	}
+
+
+	/** Gets a String representation of the Object */
+	public String toString() {
+		if (host_ipaddr==null) return getProtocol()+":0.0.0.0:"+local_port;
+		else return getProtocol()+":"+host_ipaddr.toString()+":"+local_port;
+	}
+
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.provider;
+
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipMessageBuffer;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.NioEventHandler;
+import org.zoolu.net.NioEventLoop;
+import org.zoolu.net.SocketAddress;
+
+
+
+/** NioTcpTransportConnection provides a non-blocking TCP trasport service for SIP.
+  * <p>
+  * The connection has no thread of its own: the channel is handled by a {@link NioEventLoop},
+  * and outgoing messages are queued and written by the loop thread as soon as the channel is writable.
+  */
+public class NioTcpTransportConnection implements SipTransportConnection, NioEventHandler {
+	
+	/** TCP protocol type */
+	static final String PROTO_TCP="tcp";
+
+	/** Maximum number of bytes that can be queued for sending */
+	public static int MAX_QUEUED_BYTES=1048576;
+
+	/** Socket channel */
+	SocketChannel channel;  
+
+	/** Event loop */
+	NioEventLoop loop;  
+
+	/** Remote address */
+	IpAddress remote_ipaddr;
+
+	/** Remote port */
+	int remote_port;
+
+	/** Local address */
+	IpAddress local_ipaddr=null;
+
+	/** Local port */
+	int local_port=0;
+
+	/** Connection id */
+	ConnectionId connection_id;  
+
+	/** The last time that has been used (in milliseconds) */
+	volatile long last_time;
+	
+	/** Receiver buffer. */
+	SipMessageBuffer buffer=new SipMessageBuffer();
+	  
+	/** Sending queue (Queue of <code>ByteBuffer</code>) */
+	ConcurrentLinkedQueue out_queue=new ConcurrentLinkedQueue();
+
+	/** Number of queued bytes */
+	AtomicInteger queued_bytes=new AtomicInteger(0);
+
+	/** Whether a flush of the sending queue has been already scheduled */
+	AtomicBoolean flush_pending=new AtomicBoolean(false);
+
+	/** Whether it has been closed */
+	volatile boolean closed=false;
+
+	/** SipTransportConnection listener */
+	SipTransportConnectionListener listener;   
+
+	/** Flush task */
+	Runnable flush_task=new Runnable() {
+		public void run() {
+			flush_pending.set(false);
+			flush();
+		}
+	};
+
+
+
+	/** Creates a new NioTcpTransportConnection, connecting to a remote end-point.
+	  * The connection is established asynchronously; messages sent in the meantime are queued.
+	  * @param remote_soaddr the remote socket address
+	  * @param loop the event loop
+	  * @param listener the NioTcpTransportConnection listener */
+	public NioTcpTransportConnection(SocketAddress remote_soaddr, NioEventLoop loop, SipTransportConnectionListener listener) throws IOException {
+		this(connect(remote_soaddr),remote_soaddr.getAddress(),remote_soaddr.getPort(),loop,listener);
+		register();
+	}
+
+
+	/** Creates a new NioTcpTransportConnection.
+	  * @param channel the (connected) socket channel
+	  * @param loop the event loop
+	  * @param listener the NioTcpTransportConnection listener */
+	public NioTcpTransportConnection(SocketChannel channel, NioEventLoop loop, SipTransportConnectionListener listener) throws IOException {
+		this(channel,new IpAddress(channel.socket().getInetAddress()),channel.socket().getPort(),loop,listener);
+		register();
+	}
+
+
+	/** Creates a new NioTcpTransportConnection, without registering it with the event loop.
+	  * Subclasses have to call {@link #register()} once they are initialized.
+	  * @param channel the (connected or connecting) socket channel
+	  * @param remote_ipaddr the remote address
+	  * @param remote_port the remote port
+	  * @param loop the event loop
+	  * @param listener the NioTcpTransportConnection listener */
+	protected NioTcpTransportConnection(SocketChannel channel, IpAddress remote_ipaddr, int remote_port, NioEventLoop loop, SipTransportConnectionListener listener) throws IOException {
+		this.channel=channel;
+		this.remote_ipaddr=remote_ipaddr;
+		this.remote_port=remote_port;
+		this.loop=loop;
+		this.listener=listener;
+		try {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		updateLocalAddress();
+		connection_id=new ConnectionId(this);
+		last_time=System.currentTimeMillis();
+	}
+
+
+	/** Opens a non-blocking channel and starts connecting it to a remote end-point.
+	  * @param remote_soaddr the remote socket address
+	  * @return the socket channel */
+	protected static SocketChannel connect(SocketAddress remote_soaddr) throws IOException {
+		SocketChannel channel=SocketChannel.open();
+		try {
+			channel.configureBlocking(false);
+			channel.connect(new InetSocketAddress(remote_soaddr.getAddress().getInetAddress(),remote_soaddr.getPort()));
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+
+	/** Registers the channel with the event loop. */
+	protected void register() {
+		loop.register(channel,(channel.isConnected())? SelectionKey.OP_READ : SelectionKey.OP_CONNECT,this);
+	}
+
+
+	/** Updates the local address and port. */
+	private void updateLocalAddress() {
+		if (channel.socket().getLocalPort()>0) {
+			local_ipaddr=new IpAddress(channel.socket().getLocalAddress());
+			local_port=channel.socket().getLocalPort();
+		}
+	}
+
+
+	/** Sets the SipTransportConnection listener. */      
+	public void setListener(SipTransportConnectionListener listener) {
+		this.listener=listener;
+	}
+
+
+	/** Gets protocol type. */ 
+	public String getProtocol() {
+		return PROTO_TCP;
+	}
+
+
+	/** Gets the remote IpAddress. */
+	public IpAddress getRemoteAddress() {
+		return remote_ipaddr;
+	}
+	
+	
+	/** Gets the remote port. */
+	public int getRemotePort() {
+		return remote_port;
+	}
+
+
+	/** Gets the local IpAddress. */
+	public IpAddress getLocalAddress() {
+		return local_ipaddr;
+	}
+
+	/** Gets the local port. */
+	public int getLocalPort() {
+		return local_port;
+	}
+
+
+	/** Gets the last time the Connection has been used (in millisconds). */
+	public long getLastTimeMillis() {
+		return last_time;
+	}
+
+
+	/** Sends a SipMessage.
+	  * The message is queued and written asynchronously by the event loop thread. */      
+	public void sendMessage(SipMessage msg) throws IOException {
+		if (closed) throw new IOException("connection "+this+" is closed");
+		// else
+		last_time=System.currentTimeMillis();
+		byte[] data=msg.getBytes();
+		if (queued_bytes.addAndGet(data.length)>MAX_QUEUED_BYTES) {
+			queued_bytes.addAndGet(-data.length);
+			throw new IOException("sending queue of connection "+this+" is full");
+		}
+		// else
+		out_queue.add(ByteBuffer.wrap(data));
+		if (loop.inEventLoop()) flush();
+		else
+		if (flush_pending.compareAndSet(false,true)) loop.execute(flush_task);
+	}
+
+
+	/** Stops running. */
+	public void halt() {
+		if (closed) return;
+		// else
+		if (loop.inEventLoop()) close(null);
+		else loop.execute(new Runnable() {
+			public void run() {
+				close(null);
+			}
+		});
+	}
+
+
+	/** Gets a String representation of the Object. */
+	public String toString() {
+		return getProtocol()+":"+local_ipaddr+":"+local_port+"<->"+remote_ipaddr+":"+remote_port;
+	}
+
+
+	//************************* Callback methods *************************
+
+	/** From NioEventHandler. When the channel is ready. */
+	public void onSelected(SelectionKey key) {
+		try {
+			if (key.isConnectable()) {
+				channel.finishConnect();
+				updateLocalAddress();
+				key.interestOps(SelectionKey.OP_READ);
+				flush();
+			}
+			if (key.isValid() && key.isReadable()) read();
+			if (key.isValid() && key.isWritable()) flush();
+		}
+		catch (IOException e) {
+			close(e);
+		}
+	}
+
+
+	/** Reads and processes the available data. It is called by the event loop thread. */
+	protected void read() throws IOException {
+		ByteBuffer buf=loop.getBuffer();
+		buf.clear();
+		int len=channel.read(buf);
+		if (len<0) {
+			close(null);
+			return;
+		}
+		// else
+		if (len>0) processReceivedData(buf.array(),buf.arrayOffset(),len);
+	}
+
+
+	/** Processes received data. It is called by the event loop thread. */
+	protected void processReceivedData(byte[] data, int off, int len) {
+		last_time=System.currentTimeMillis();
+		buffer.append(data,off,len);
+
+		// try to get one or more SIP messages from the buffer    
+		SipMessage msg;
+		while (!closed && (msg=buffer.nextSipMessage())!=null) {
+			msg.setRemoteAddress(remote_ipaddr.toString());
+			msg.setRemotePort(remote_port);
+			msg.setTransportProtocol(getProtocol());
+			msg.setConnectionId(connection_id);
+			if (listener!=null) listener.onReceivedMessage(this,msg);
+		}     
+	}
+
+
+	/** Writes the queued data, as long as the channel accepts it. It is called by the event loop thread. */
+	protected void flush() {
+		SelectionKey key=channel.keyFor(loop.getSelector());
+		// not yet registered or connected: the channel will be flushed later
+		if (key==null || !key.isValid() || !channel.isConnected()) return;
+		// else
+		try {
+			ByteBuffer buf;
+			while ((buf=(ByteBuffer)out_queue.peek())!=null) {
+				int len=channel.write(buf);
+				queued_bytes.addAndGet(-len);
+				if (buf.hasRemaining()) {
+					// wait for the channel to become writable again
+					key.interestOps(key.interestOps()|SelectionKey.OP_WRITE);
+					return;
+				}
+				// else
+				out_queue.poll();
+			}
+			if ((key.interestOps()&SelectionKey.OP_WRITE)!=0) key.interestOps(key.interestOps()&~SelectionKey.OP_WRITE);
+		}
+		catch (IOException e) {
+			close(e);
+		}
+	}
+
+
+	/** Closes the channel and notifies the listener. It is called by the event loop thread. */
+	protected void close(Exception error) {
+		if (closed) return;
+		// else
+		closed=true;
+		try {  channel.close();  } catch (IOException e) {}
+		out_queue.clear();
+		if (listener!=null) listener.onConnectionTerminated(this,error);
+		listener=null;
+	}
+
+}
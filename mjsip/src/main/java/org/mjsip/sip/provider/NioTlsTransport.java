@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.provider;
+
+
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.net.ssl.SSLContext;
+
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.NioEventLoop;
+import org.zoolu.net.SocketAddress;
+import org.zoolu.net.TlsContext;
+import org.zoolu.util.Logger;
+import org.zoolu.util.Threads;
+
+
+
+/** NioTlsTransport provides a TLS-based transport service for SIP based on java.nio and SSLEngine.
+  * <p>
+  * Differently from {@link TlsTransport}, that uses one thread and one blocking SSL socket for each connection,
+  * all connections are handled by a small pool of {@link NioEventLoop}s.
+  * TLS handshakes are performed asynchronously by the event loops, and never by the thread that sends a message;
+  * the handshake tasks delegated by the SSL engines (e.g. certificate validation) are run by a separate thread pool.
+  * <p>
+  * The server channel and the event loops are handled as in {@link NioTcpTransport};
+  * only the transport connections are different.
+  */
+public class NioTlsTransport extends NioTcpTransport {
+	
+	/** TLS protocol type */
+	public static final String PROTO_TLS="tls";
+	
+	/** SSL context */
+	SSLContext ssl_context;
+
+	/** Executor of the handshake delegated tasks */
+	ExecutorService task_executor;
+
+
+
+	/** Creates a new NioTlsTransport.
+	  * @param local_port local TLS port
+	  * @param host_ipaddr local ip address/interface the TLS has to be bound to (null for binding to all interfaces)
+	  * @param nmax_connections maximum number of active connections
+	  * @param nloops the number of event loops; if zero, the number of available processors is used
+	  * @param ssl_context SSL context
+	  * @param logger the logger used for event logging */ 
+	public NioTlsTransport(int local_port, IpAddress host_ipaddr, int nmax_connections, int nloops, SSLContext ssl_context, Logger logger) throws IOException {
+		super(local_port,nmax_connections,logger);
+		this.ssl_context=ssl_context;
+		TlsContext.setSessionCache(ssl_context,SipStack.default_tls_session_cache_size,SipStack.default_tls_session_timeout);
+		task_executor=Executors.newCachedThreadPool(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t=Threads.newThread(r,"tls-handshake");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		init(local_port,host_ipaddr,nloops);
+	}
+
+
+	/** Gets protocol type */ 
+	public String getProtocol() {
+		return PROTO_TLS;
+	}
+
+
+	/** Stops running */
+	public void halt() {
+		super.halt();
+		task_executor.shutdown();
+	}
+
+
+	/** Creates a transport connection for an accepted channel. */
+	protected SipTransportConnection createTransportConnection(SocketChannel channel) throws IOException {
+		return new NioTlsTransportConnection(channel,nextLoop(),ssl_context,task_executor,this_conn_listener);
+	}
+
+
+	/** Creates a transport connection to the remote end-point. */
+	protected SipTransportConnection createTransportConnection(SocketAddress remote_soaddr) throws IOException {
+		return new NioTlsTransportConnection(remote_soaddr,nextLoop(),ssl_context,task_executor,this_conn_listener);
+	}
+
+}
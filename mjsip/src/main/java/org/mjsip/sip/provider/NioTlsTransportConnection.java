@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.provider;
+
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.NioEventLoop;
+import org.zoolu.net.SocketAddress;
+
+
+
+/** NioTlsTransportConnection provides a non-blocking TLS trasport service for SIP, based on SSLEngine.
+  * <p>
+  * The TLS handshake is driven by the event loop thread, while the (possibly slow) handshake tasks
+  * delegated by the SSLEngine are run by a separate executor.
+  */
+public class NioTlsTransportConnection extends NioTcpTransportConnection {
+	
+	/** TLS protocol type */
+	static final String PROTO_TLS="tls";
+
+	/** Empty buffer, used for handshake wrapping */
+	static final ByteBuffer EMPTY_BUFFER=ByteBuffer.allocate(0);
+
+	/** SSL engine */
+	SSLEngine engine;
+
+	/** Executor of the handshake delegated tasks */
+	Executor task_executor;
+
+	/** Whether there are delegated tasks running */
+	volatile boolean task_pending=false;
+
+	/** Incoming network data */
+	ByteBuffer net_in;
+
+	/** Incoming application data */
+	ByteBuffer app_in;
+
+	/** Outgoing network data */
+	ByteBuffer net_out;
+
+	/** Task that resumes the handshake after the delegated tasks have been completed */
+	Runnable resume_task=new Runnable() {
+		public void run() {
+			task_pending=false;
+			try {
+				unwrap();
+				flush();
+			}
+			catch (IOException e) {
+				close(e);
+			}
+		}
+	};
+
+
+
+	/** Creates a new NioTlsTransportConnection, connecting to a remote end-point.
+	  * Both the connection and the TLS handshake are performed asynchronously; messages sent in the meantime are queued.
+	  * @param remote_soaddr the remote socket address
+	  * @param loop the event loop
+	  * @param ssl_context the SSL context
+	  * @param task_executor the executor of the handshake delegated tasks
+	  * @param listener the NioTlsTransportConnection listener */
+	public NioTlsTransportConnection(SocketAddress remote_soaddr, NioEventLoop loop, SSLContext ssl_context, Executor task_executor, SipTransportConnectionListener listener) throws IOException {
+		super(connect(remote_soaddr),remote_soaddr.getAddress(),remote_soaddr.getPort(),loop,listener);
+		// the peer host and port let the SSL context resume a cached session
+		init(ssl_context.createSSLEngine(remote_ipaddr.toString(),remote_port),true,task_executor);
+	}
+
+
+	/** Creates a new NioTlsTransportConnection.
+	  * @param channel the (connected) socket channel
+	  * @param loop the event loop
+	  * @param ssl_context the SSL context
+	  * @param task_executor the executor of the handshake delegated tasks
+	  * @param listener the NioTlsTransportConnection listener */
+	public NioTlsTransportConnection(SocketChannel channel, NioEventLoop loop, SSLContext ssl_context, Executor task_executor, SipTransportConnectionListener listener) throws IOException {
+		super(channel,new IpAddress(channel.socket().getInetAddress()),channel.socket().getPort(),loop,listener);
+		init(ssl_context.createSSLEngine(),false,task_executor);
+	}
+
+
+	/** Inits the NioTlsTransportConnection. */
+	private void init(SSLEngine engine, boolean client_mode, Executor task_executor) throws IOException {
+		this.engine=engine;
+		this.task_executor=task_executor;
+		try {
+			engine.setUseClientMode(client_mode);
+			engine.beginHandshake();
+		}
+		catch (Exception e) {
+			channel.close();
+			throw new IOException(e.getMessage());
+		}
+		net_in=ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+		app_in=ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+		net_out=ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+		net_out.flip();
+		register();
+	}
+
+
+	/** Gets protocol type. */ 
+	public String getProtocol() {
+		return PROTO_TLS;
+	}
+
+
+	/** Reads and processes the available data. It is called by the event loop thread. */
+	protected void read() throws IOException {
+		int len=channel.read(net_in);
+		if (len<0) {
+			// the peer may have closed the connection without sending a close_notify
+			try {  engine.closeInbound();  } catch (IOException e) {}
+			close(null);
+			return;
+		}
+		// else
+		if (len>0) {
+			unwrap();
+			// answer to handshake messages and send the data queued during the handshake
+			flush();
+		}
+	}
+
+
+	/** Decrypts the incoming network data, and processes the resulting application data. It is called by the event loop thread. */
+	private void unwrap() throws IOException {
+		net_in.flip();
+		try {
+			while (!closed && !task_pending && net_in.hasRemaining()) {
+				SSLEngineResult result=engine.unwrap(net_in,app_in);
+				if (result.getStatus()==SSLEngineResult.Status.BUFFER_OVERFLOW) {
+					app_in=enlarge(app_in,engine.getSession().getApplicationBufferSize());
+					continue;
+				}
+				// else
+				if (result.getStatus()==SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+					// wait for a complete TLS record
+					if (net_in.position()==0 && net_in.limit()==net_in.capacity()) {
+						net_in.compact();
+						net_in=enlarge(net_in,engine.getSession().getPacketBufferSize());
+						net_in.flip();
+					}
+					break;
+				}
+				// else
+				if (result.getStatus()==SSLEngineResult.Status.CLOSED) {
+					close(null);
+					return;
+				}
+				// else
+				if (app_in.position()>0) {
+					processReceivedData(app_in.array(),app_in.arrayOffset(),app_in.position());
+					app_in.clear();
+				}
+				HandshakeStatus hs=result.getHandshakeStatus();
+				if (hs==HandshakeStatus.NEED_TASK) runDelegatedTasks();
+				else
+				if (hs==HandshakeStatus.NEED_WRAP) flush();
+				else
+				if (result.bytesConsumed()==0 && result.bytesProduced()==0) break;
+			}
+		}
+		finally {
+			net_in.compact();
+		}
+	}
+
+
+	/** Encrypts and writes the queued data, and the handshake messages, as long as the channel accepts them. It is called by the event loop thread. */
+	protected void flush() {
+		SelectionKey key=channel.keyFor(loop.getSelector());
+		// not yet registered or connected: the channel will be flushed later
+		if (key==null || !key.isValid() || !channel.isConnected() || closed) return;
+		// else
+		try {
+			while (true) {
+				// first write the pending network data
+				if (net_out.hasRemaining()) {
+					channel.write(net_out);
+					if (net_out.hasRemaining()) {
+						// wait for the channel to become writable again
+						key.interestOps(key.interestOps()|SelectionKey.OP_WRITE);
+						return;
+					}
+				}
+				if (task_pending) break;
+				// else
+				HandshakeStatus hs=engine.getHandshakeStatus();
+				if (hs==HandshakeStatus.NEED_TASK) {
+					runDelegatedTasks();
+					break;
+				}
+				// else
+				ByteBuffer buf=null;
+				if (hs==HandshakeStatus.NEED_WRAP) buf=EMPTY_BUFFER;
+				else
+				if (hs==HandshakeStatus.NOT_HANDSHAKING || hs==HandshakeStatus.FINISHED) buf=(ByteBuffer)out_queue.peek();
+				// nothing to wrap, or waiting for data from the peer
+				if (buf==null) break;
+				// else
+				int pos=buf.position();
+				SSLEngineResult result=wrap(buf);
+				if (result.getStatus()==SSLEngineResult.Status.CLOSED) {
+					close(null);
+					return;
+				}
+				// else
+				if (buf!=EMPTY_BUFFER) {
+					queued_bytes.addAndGet(-(buf.position()-pos));
+					if (!buf.hasRemaining()) out_queue.poll();
+				}
+			}
+			if ((key.interestOps()&SelectionKey.OP_WRITE)!=0) key.interestOps(key.interestOps()&~SelectionKey.OP_WRITE);
+		}
+		catch (IOException e) {
+			close(e);
+		}
+	}
+
+
+	/** Encrypts the given data into the outgoing network buffer. */
+	private SSLEngineResult wrap(ByteBuffer buf) throws IOException {
+		net_out.compact();
+		try {
+			while (true) {
+				SSLEngineResult result=engine.wrap(buf,net_out);
+				if (result.getStatus()!=SSLEngineResult.Status.BUFFER_OVERFLOW) return result;
+				// else
+				net_out=enlarge(net_out,engine.getSession().getPacketBufferSize());
+			}
+		}
+		finally {
+			net_out.flip();
+		}
+	}
+
+
+	/** Runs the delegated tasks of the SSL engine through the executor, and then resumes the handshake. */
+	private void runDelegatedTasks() {
+		task_pending=true;
+		task_executor.execute(new Runnable() {
+			public void run() {
+				Runnable task;
+				while ((task=engine.getDelegatedTask())!=null) task.run();
+				loop.execute(resume_task);
+			}
+		});
+	}
+
+
+	/** Gets a copy of a buffer with a larger capacity. */
+	private static ByteBuffer enlarge(ByteBuffer buf, int min_capacity) {
+		ByteBuffer new_buf=ByteBuffer.allocate(Math.max(min_capacity,buf.capacity()*2));
+		buf.flip();
+		new_buf.put(buf);
+		return new_buf;
+	}
+
+
+	/** Closes the channel and notifies the listener. It is called by the event loop thread. */
+	protected void close(Exception error) {
+		if (closed) return;
+		// else
+		engine.closeOutbound();
+		super.close(error);
+	}
+
+}
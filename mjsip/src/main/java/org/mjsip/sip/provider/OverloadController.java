@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.provider;
+
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mjsip.sip.message.SipMessage;
+
+
+
+/** OverloadController decides whether new incoming requests should be admitted or rejected,
+  * according to the delay experienced by received messages in the dispatch queues (see {@link SipWorkerPool}).
+  * <p>
+  * The delay is smoothed by an exponentially weighted moving average.
+  * When the average delay exceeds the high threshold the controller enters the overload state,
+  * and leaves it only when the average delay falls below the low threshold.
+  * <p>
+  * During overload, only new INVITE, REGISTER, and SUBSCRIBE requests (i.e. out-of-dialog requests that create new sessions)
+  * are rejected, while responses, ACK, BYE, CANCEL, and in-dialog requests are always admitted,
+  * so that established sessions are not affected.
+  */
+public class OverloadController {
+	
+	/** Weight of a new delay sample in the moving average, as power of 2 (i.e. 1/8) */
+	static final int AVERAGE_SHIFT=3;
+
+	/** Delay above which the overload state is entered, in milliseconds */
+	long high_delay;
+
+	/** Delay below which the overload state is left, in milliseconds */
+	long low_delay;
+
+	/** Retry-After value of the rejecting responses, in seconds */
+	int retry_after;
+
+	/** Average dispatch delay, in microseconds */
+	volatile long average_delay=0;
+
+	/** Whether in overload state */
+	volatile boolean overloaded=false;
+
+	/** Counter of rejected requests */
+	AtomicLong rejected=new AtomicLong(0);
+
+	/** Counter of times the overload state has been entered */
+	AtomicLong overload_count=new AtomicLong(0);
+
+
+
+	/** Creates a new OverloadController.
+	  * @param high_delay the average dispatch delay above which new requests are rejected, in milliseconds
+	  * @param low_delay the average dispatch delay below which new requests are admitted again, in milliseconds
+	  * @param retry_after the Retry-After value of the rejecting 503 responses, in seconds */
+	public OverloadController(long high_delay, long low_delay, int retry_after) {
+		this.high_delay=high_delay;
+		this.low_delay=(low_delay>0 && low_delay<high_delay)? low_delay : high_delay/2;
+		this.retry_after=retry_after;
+	}
+
+
+	/** Adds a new delay sample.
+	  * @param delay the time spent by a message in the dispatch queue, in milliseconds */
+	public void addDelay(long delay) {
+		// concurrent updates may lose some samples, that is harmless for a moving average
+		long avg=average_delay;
+		avg+=((delay*1000)-avg)>>AVERAGE_SHIFT;
+		average_delay=avg;
+		if (overloaded) {
+			if (avg<low_delay*1000) overloaded=false;
+		}
+		else
+		if (avg>high_delay*1000) {
+			overloaded=true;
+			overload_count.incrementAndGet();
+		}
+	}
+
+
+	/** Whether a received message has to be admitted.
+	  * If not, the rejection counter is incremented.
+	  * @param msg the received message
+	  * @return true if the message has to be admitted, false if it has to be rejected */
+	public boolean admit(SipMessage msg) {
+		if (!overloaded || !isRejectable(msg)) return true;
+		// else
+		rejected.incrementAndGet();
+		return false;
+	}
+
+
+	/** Whether a message can be rejected during overload.
+	  * @param msg the message
+	  * @return true if the message is a new INVITE, REGISTER, or SUBSCRIBE request (without To tag) */
+	public static boolean isRejectable(SipMessage msg) {
+		try {
+			if (!msg.isRequest()) return false;
+			// else
+			if (!msg.isInvite() && !msg.isRegister() && !msg.isSubscribe()) return false;
+			// else
+			return !msg.getToHeader().hasTag();
+		}
+		catch (Exception e) {
+			// malformed messages are left to the normal processing
+			return false;
+		}
+	}
+
+
+	/** Whether in overload state. */
+	public boolean isOverloaded() {
+		return overloaded;
+	}
+
+
+	/** Gets the average dispatch delay, in milliseconds. */
+	public double getAverageDelay() {
+		return average_delay/1000.0;
+	}
+
+
+	/** Gets the Retry-After value of the rejecting responses, in seconds. */
+	public int getRetryAfter() {
+		return retry_after;
+	}
+
+
+	/** Gets the total number of rejected requests. */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+
+	/** Gets the number of times the overload state has been entered. */
+	public long getOverloadCount() {
+		return overload_count.get();
+	}
+
+
+	/** Gets a String representation of this object. */
+	public String toString() {
+		return "overloaded="+overloaded+", delay="+getAverageDelay()+"ms, rejected="+getRejectedCount();
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.provider;
+
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.zoolu.util.Random;
+
+
+
+/** RateLimiter limits the rate of messages received from each source, by means of token buckets.
+  * <p>
+  * Each source (e.g. the source IP address) is mapped by hashing onto one of a fixed number of buckets,
+  * so that the memory used does not depend on the number of different sources.
+  * The hash is keyed with a random value chosen by each RateLimiter, so that sources that share a bucket
+  * cannot be chosen by others (e.g. for getting a legitimate source refused).
+  * Different sources may share the same bucket; the table size should be large enough,
+  * compared to the number of legitimate sources, to make this unlikely.
+  * <p>
+  * When a bucket is empty, further messages are refused, and the configured action is taken:
+  * they are silently discarded ({@link #ACTION_DROP}), rejected with a 503 response ({@link #ACTION_REJECT}),
+  * or the bucket is blacklisted and all messages mapped onto it are discarded for a given time ({@link #ACTION_BLACKLIST}).
+  */
+public class RateLimiter {
+	
+	/** Action: refused messages are silently discarded */
+	public static final int ACTION_DROP=0;
+
+	/** Action: refused requests are rejected with a 503 response */
+	public static final int ACTION_REJECT=1;
+
+	/** Action: refused messages are discarded, and the source is blacklisted */
+	public static final int ACTION_BLACKLIST=2;
+
+	/** Action names, indexed by action */
+	static final String[] ACTION_NAMES={ "drop", "reject", "blacklist" };
+
+	/** Number of locks protecting the buckets */
+	static final int NLOCKS=64;
+
+	/** Token rate, in tokens per millisecond */
+	double rate;
+
+	/** Maximum number of tokens of each bucket */
+	double burst;
+
+	/** Action taken on refused messages */
+	int action;
+
+	/** Blacklisting time, in milliseconds */
+	long blacklist_time;
+
+	/** Secret key of the hash of the source keys */
+	long hash_key=Random.nextLong()^System.nanoTime();
+
+	/** Mask for obtaining the bucket index from the hash of a key */
+	int mask;
+
+	/** Tokens of each bucket */
+	double[] tokens;
+
+	/** Last time each bucket has been updated (0 if never used) */
+	long[] last_time;
+
+	/** Time until each bucket is blacklisted */
+	long[] blacklist_expire;
+
+	/** Locks, each one protecting a subset of the buckets */
+	Object[] locks=new Object[NLOCKS];
+
+	/** Counter of refused messages */
+	AtomicLong refused=new AtomicLong(0);
+
+	/** Counter of blacklistings */
+	AtomicLong blacklisted=new AtomicLong(0);
+
+
+
+	/** Creates a new RateLimiter.
+	  * @param rate the maximum average rate of messages from each source, in messages per second
+	  * @param burst the maximum number of messages that can be received from a source in a burst
+	  * @param table_size the number of buckets (it is rounded up to a power of 2)
+	  * @param action the action taken on refused messages ({@link #ACTION_DROP}, {@link #ACTION_REJECT}, or {@link #ACTION_BLACKLIST})
+	  * @param blacklist_time the blacklisting time, in seconds (used only with {@link #ACTION_BLACKLIST}) */
+	public RateLimiter(double rate, double burst, int table_size, int action, int blacklist_time) {
+		this.rate=rate/1000;
+		this.burst=(burst>=1)? burst : 1;
+		this.action=action;
+		this.blacklist_time=blacklist_time*1000L;
+		int size=1;
+		while (size<table_size) size<<=1;
+		mask=size-1;
+		tokens=new double[size];
+		last_time=new long[size];
+		blacklist_expire=new long[size];
+		for (int i=0; i<NLOCKS; i++) locks[i]=new Object();
+	}
+
+
+	/** Gets the action taken on refused messages.
+	  * @return the action ({@link #ACTION_DROP}, {@link #ACTION_REJECT}, or {@link #ACTION_BLACKLIST}) */
+	public int getAction() {
+		return action;
+	}
+
+
+	/** Gets the action with the given name.
+	  * @param name the action name ("drop", "reject", or "blacklist")
+	  * @return the action, or -1 if the name is not valid */
+	public static int getAction(String name) {
+		for (int i=0; i<ACTION_NAMES.length; i++) if (ACTION_NAMES[i].equalsIgnoreCase(name)) return i;
+		return -1;
+	}
+
+
+	/** Whether a message from the given source has to be admitted.
+	  * If the message is admitted, one token is taken from the corresponding bucket.
+	  * @param key the source key (e.g. the source IP address)
+	  * @return true if the message has to be admitted, false if it has to be refused */
+	public boolean admit(String key) {
+		int index=(int)hash(key)&mask;
+		long now=System.currentTimeMillis();
+		synchronized (locks[index&(NLOCKS-1)]) {
+			if (blacklist_expire[index]>now) {
+				refused.incrementAndGet();
+				return false;
+			}
+			// else
+			double t=(last_time[index]==0)? burst : tokens[index]+(now-last_time[index])*rate;
+			if (t>burst) t=burst;
+			last_time[index]=now;
+			if (t>=1) {
+				tokens[index]=t-1;
+				return true;
+			}
+			// else
+			tokens[index]=t;
+			if (action==ACTION_BLACKLIST) {
+				blacklist_expire[index]=now+blacklist_time;
+				blacklisted.incrementAndGet();
+			}
+		}
+		refused.incrementAndGet();
+		return false;
+	}
+
+
+	/** Gets the keyed hash of a source key (64-bit FNV-1a, followed by a final mixing of its bits). */
+	private long hash(String key) {
+		long h=hash_key;
+		for (int i=0; i<key.length(); i++) h=(h^key.charAt(i))*0x100000001b3L;
+		h^=h>>>33;
+		h*=0xff51afd7ed558ccdL;
+		h^=h>>>33;
+		h*=0xc4ceb9fe1a85ec53L;
+		h^=h>>>33;
+		return h;
+	}
+
+
+	/** Gets the total number of refused messages. */
+	public long getRefusedCount() {
+		return refused.get();
+	}
+
+
+	/** Gets the number of times a source has been blacklisted. */
+	public long getBlacklistedCount() {
+		return blacklisted.get();
+	}
+
+
+	/** Gets a String representation of this object. */
+	public String toString() {
+		return "rate="+(rate*1000)+"/s, burst="+burst+", action="+ACTION_NAMES[action]+", refused="+getRefusedCount();
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.provider;
+
+
+
+import org.mjsip.sip.header.ByteHeader;
+import org.mjsip.sip.header.Header;
+import org.mjsip.sip.header.RequestLine;
+import org.mjsip.sip.header.StatusLine;
+
+
+
+/** SipByteParser parses SIP messages directly from an array of bytes.
+  * <p>
+  * Differently from {@link SipParser}, the message header is not converted into a String.
+  * Header fields are scanned once, and the offsets of their names and values are recorded
+  * into a compact index of int values. Header names and values are decoded into Strings only
+  * when they are actually read (see {@link ByteHeader}).
+  * <p>
+  * Only the first line is decoded and parsed through a SipParser.
+  */
+public class SipByteParser {
+	
+	/** Number of index entries per header field (name offset, name length, value offset, value length) */
+	private static final int ENTRY_SIZE=4;
+
+	/** Initial number of header fields in the index */
+	private static final int INITIAL_HEADERS=24;
+
+
+	/** Buffer containing the message */
+	byte[] buf;
+
+	/** Offset of the message within the buffer */
+	int off;
+
+	/** End of the message within the buffer */
+	int end;
+
+	/** Current position within the buffer */
+	int index;
+
+	/** Index of the parsed header fields */
+	int[] header_index=null;
+
+	/** Number of the parsed header fields */
+	int header_count=0;
+
+
+
+	/** Creates a new SipByteParser.
+	  * @param buf the buffer containing the message 
+	  * @param off the offset within the buffer
+	  * @param len the number of available bytes */
+	public SipByteParser(byte[] buf, int off, int len) {
+		this.buf=buf;
+		this.off=off;
+		this.end=off+len;
+		this.index=off;
+	}
+
+
+	/** Gets the current position within the buffer. */
+	public int getPos() {
+		return index;
+	}
+
+
+	/** Gets the length of the message header, including the final empty line.
+	  * Both CRLF and LF line terminators are accepted.
+	  * @return the number of bytes from the beginning of the message to the beginning of the body, or -1 if no empty line is found */
+	public int getHeaderLength() {
+		for (int i=off; i<end-3; i++) {
+			if (buf[i]=='\r' && buf[i+1]=='\n' && buf[i+2]=='\r' && buf[i+3]=='\n') return i+4-off;
+		}
+		for (int i=off; i<end-1; i++) {
+			if (buf[i]=='\n' && buf[i+1]=='\n') return i+2-off;
+		}
+		return -1;
+	}
+
+
+	/** Whether the message starts with a status-line (i.e. it begins with "SIP/"). */
+	public boolean isStatusLine() {
+		if (end-off<4) return false;
+		// else
+		return (buf[off]=='S' || buf[off]=='s') && (buf[off+1]=='I' || buf[off+1]=='i') && (buf[off+2]=='P' || buf[off+2]=='p') && buf[off+3]=='/';
+	}
+
+
+	/** Gets the first line as a String and goes to the next line. */
+	public String getFirstLine() {
+		int begin=index;
+		int eol=indexOfEOL(index);
+		index=skipEOL(eol);
+		return new String(buf,begin,eol-begin);
+	}
+
+
+	/** Returns the request-line and goes to the next line. */
+	public RequestLine getRequestLine() {
+		return new SipParser(getFirstLine()).getRequestLine();
+	}
+
+
+	/** Returns the status-line and goes to the next line. */
+	public StatusLine getStatusLine() {
+		return new SipParser(getFirstLine()).getStatusLine();
+	}
+
+
+	/** Parses all header fields, starting from the current position, up to the final empty line.
+	  * Folded header fields (continuation lines starting with SP or HT) are considered part of the same field.
+	  * @return the number of parsed header fields */
+	public int parseHeaders() {
+		if (header_index==null) header_index=new int[INITIAL_HEADERS*ENTRY_SIZE];
+		header_count=0;
+		while (index<end) {
+			int begin=index;
+			int eoh=indexOfEOH(begin);
+			if (eoh==begin) break; // empty line
+			int colon=begin;
+			while (colon<eoh && buf[colon]!=':') colon++;
+			if (colon==eoh) break; // not a header field
+			// trim name and value
+			int name_begin=begin, name_end=colon;
+			while (name_begin<name_end && isSpace(buf[name_begin])) name_begin++;
+			while (name_end>name_begin && isSpace(buf[name_end-1])) name_end--;
+			int value_begin=colon+1, value_end=eoh;
+			while (value_begin<value_end && isSpace(buf[value_begin])) value_begin++;
+			while (value_end>value_begin && isSpace(buf[value_end-1])) value_end--;
+			// add index entry
+			if ((header_count+1)*ENTRY_SIZE>header_index.length) {
+				int[] new_index=new int[header_index.length*2];
+				System.arraycopy(header_index,0,new_index,0,header_count*ENTRY_SIZE);
+				header_index=new_index;
+			}
+			int i=header_count*ENTRY_SIZE;
+			header_index[i]=name_begin;
+			header_index[i+1]=name_end-name_begin;
+			header_index[i+2]=value_begin;
+			header_index[i+3]=value_end-value_begin;
+			header_count++;
+			index=skipEOL(eoh);
+		}
+		return header_count;
+	}
+
+
+	/** Gets the number of parsed header fields. */
+	public int getHeaderCount() {
+		return header_count;
+	}
+
+
+	/** Gets the i-th parsed header field.
+	  * The returned header refers to the parser buffer, and decodes its name and value only when they are read. */
+	public Header getHeader(int i) {
+		int k=i*ENTRY_SIZE;
+		return new ByteHeader(buf,header_index[k],header_index[k+1],header_index[k+2],header_index[k+3]);
+	}
+
+
+	// *************************** private methods ***************************
+
+	/** Whether the byte is a white space or a control character, as for String.trim(). */
+	private static boolean isSpace(byte b) {
+		return b>=0 && b<=' ';
+	}
+
+	/** Gets the index of the first CR or LF starting from the given position, or the end of the message. */
+	private int indexOfEOL(int i) {
+		while (i<end && buf[i]!='\r' && buf[i]!='\n') i++;
+		return i;
+	}
+
+	/** Skips the end of line ('\r' OR '\n' OR '\r\n') found at the given position. */
+	private int skipEOL(int i) {
+		if (i<end) {
+			if (buf[i]=='\r' && i+1<end && buf[i+1]=='\n') i+=2;
+			else i++;
+		}
+		return i;
+	}
+
+	/** Gets the index of the end of the header field (EOH) starting at the given position.
+	  * A line followed by a line starting with SP or HT continues the same header field. */
+	private int indexOfEOH(int i) {
+		while (true) {
+			int eol=indexOfEOL(i);
+			if (eol==end) return end;
+			int next=skipEOL(eol);
+			if (next>=end || (buf[next]!=' ' && buf[next]!='\t')) return eol;
+			i=next;
+		}
+	}
+
+}
@@ -30,9 +30,21 @@ import org.zoolu.util.Identifier;
 
 
 /** SipId is the abstract identifier for addressing a dialog, a transaction, or a given method.
+  * <p>
+  * The string value of a SipId may also be given as a sequence of parts, that are concatenated only when needed.
+  * In this case the hash-code is computed directly from the parts, and the identifier can be compared with other identifiers
+  * (e.g. when it is used for looking up a table of identifiers) without building its string value.
   */
 public abstract class SipId extends Identifier {
 	
+	/** Parts of the string value (null if the string value has been given as a whole) */
+	private String[] parts=null;
+
+	/** Hash-code of the string value (computed from the parts) */
+	private int hash=0;
+
+
+
 	/** Creates a void SipId. */
 	SipId() {
 		super();
@@ -47,6 +59,85 @@ public abstract class SipId extends Identifier {
 	/** Creates a new SipId
 	  * @param id a SIP identifier */
 	SipId(SipId id) {
-		super(id);
+		super(id.toString());
+	}
+
+	/** Sets the string value of this identifier as the concatenation of the given parts, without building it.
+	  * @param parts the parts of the string value (null values are taken as "null") */
+	void setParts(String[] parts) {
+		int h=0;
+		for (int i=0; i<parts.length; i++) {
+			if (parts[i]==null) parts[i]="null";
+			h=h*pow31(parts[i].length())+parts[i].hashCode();
+		}
+		this.parts=parts;
+		this.hash=h;
+		this.id=null;
+	}
+
+	/** Gets 31^n (modulo 2^32), as used by String.hashCode(). */
+	private static int pow31(int n) {
+		int result=1, base=31;
+		while (n>0) {
+			if ((n&1)!=0) result*=base;
+			base*=base;
+			n>>=1;
+		}
+		return result;
+	}
+
+	/** Whether the string value of this identifier is equal to a given string.
+	  * @param str the string to be compared to
+	  * @return true if the string value is equal to the given string */
+	private boolean matches(String str) {
+		if (parts==null) return id.equals(str);
+		// else
+		int index=0;
+		for (int i=0; i<parts.length; i++) {
+			if (!str.startsWith(parts[i],index)) return false;
+			index+=parts[i].length();
+		}
+		return index==str.length();
+	}
+
+	/** Whether this object equals to an other object.
+	  * @param obj the other object that is compared to
+	  * @return true if the two objects are equal */
+	public boolean equals(Object obj) {
+		if (this==obj) return true;
+		if (!(obj instanceof Identifier) || obj.hashCode()!=hashCode()) return false;
+		// else
+		if (obj instanceof SipId) {
+			SipId i=(SipId)obj;
+			if (i.parts==null) return matches(i.id);
+			if (parts==null) return i.matches(id);
+			// else
+			if (parts.length==i.parts.length) {
+				boolean same_parts=true;
+				for (int k=0; k<parts.length && same_parts; k++) same_parts=parts[k].length()==i.parts[k].length();
+				if (same_parts) {
+					for (int k=0; k<parts.length; k++) if (!parts[k].equals(i.parts[k])) return false;
+					return true;
+				}
+			}
+		}
+		return toString().equals(obj.toString());
+	}
+
+	/** Gets an int hash-code for this object.
+	  * @return the hash-code */
+	public int hashCode() {
+		return (parts!=null)? hash : id.hashCode();
+	}
+
+	/** Gets a string value for this object.
+	  * @return the string */
+	public String toString() {
+		if (id==null && parts!=null) {
+			StringBuffer sb=new StringBuffer();
+			for (int i=0; i<parts.length; i++) sb.append(parts[i]);
+			id=sb.toString();
+		}
+		return id;
 	}
 }
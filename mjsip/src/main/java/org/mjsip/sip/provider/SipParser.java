@@ -33,6 +33,7 @@ import org.mjsip.sip.address.NameAddress;
 import org.mjsip.sip.address.SipURI;
 import org.mjsip.sip.header.Header;
 import org.mjsip.sip.header.RequestLine;
+import org.mjsip.sip.header.SipHeaders;
 import org.mjsip.sip.header.StatusLine;
 import org.zoolu.util.DateFormat;
 import org.zoolu.util.Parser;
@@ -169,7 +170,11 @@ public class SipParser extends Parser {
 		goToNextLine();
 		int colon=header_str.indexOf(':');
 		if (colon<0) return null;
-		String hname=header_str.substring(0,colon).trim();
+		// trim the name and get its canonical String, without creating a new String for known names
+		int name_begin=0, name_end=colon;
+		while (name_begin<name_end && header_str.charAt(name_begin)<=' ') name_begin++;
+		while (name_end>name_begin && header_str.charAt(name_end-1)<=' ') name_end--;
+		String hname=SipHeaders.intern(header_str,name_begin,name_end);
 		String hvalue=header_str.substring(++colon).trim();
 		return new Header(hname,hvalue);       
 	}
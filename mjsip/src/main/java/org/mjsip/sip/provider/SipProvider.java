@@ -31,14 +31,20 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
-import java.util.Vector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.mjsip.sip.address.GenericURI;
 import org.mjsip.sip.address.NameAddress;
 import org.mjsip.sip.address.SipURI;
 import org.mjsip.sip.address.UnexpectedUriSchemeException;
+import org.mjsip.sip.header.CallIdHeader;
+import org.mjsip.sip.header.Header;
+import org.mjsip.sip.header.SipHeaders;
 import org.mjsip.sip.header.ViaHeader;
 import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipMessageFactory;
 import org.zoolu.net.IpAddress;
 import org.zoolu.net.SocketAddress;
 import org.zoolu.util.Configurable;
@@ -50,8 +56,7 @@ import org.zoolu.util.LogRotationWriter;
 import org.zoolu.util.Logger;
 import org.zoolu.util.Parser;
 import org.zoolu.util.Random;
-import org.zoolu.util.SimpleDigest;
-import org.zoolu.util.VectorUtils;
+import org.zoolu.util.Timer;
 
 import javax.net.ssl.SSLContext;
 
@@ -168,6 +173,45 @@ public class SipProvider implements Configurable, SipTransportListener {
 	/** Whether logging all packets (including non-SIP keepalive tokens). */
 	boolean log_all_packets=false;
 
+	/** Whether sending messages with header field names in compact form. */
+	boolean compact_headers=false;
+
+	/** Number of worker threads that process received messages (messages with the same Call-ID are processed by the same worker).
+	  * If 0, received messages are processed by the transport threads. */
+	int dispatch_workers=0;
+
+	/** Maximum number of received messages waiting in the queue of each worker. */
+	int dispatch_queue_size=1000;
+
+	/** Average dispatch delay (in milliseconds) above which new INVITE, REGISTER, and SUBSCRIBE requests are rejected with 503 responses.
+	  * If 0, no overload control is performed. It is used only together with dispatch workers. */
+	int overload_high_delay=0;
+
+	/** Average dispatch delay (in milliseconds) below which new requests are admitted again (if 0, half of the <i>overload_high_delay</i> value is used). */
+	int overload_low_delay=0;
+
+	/** Retry-After value of 503 responses sent during overload, in seconds. */
+	int overload_retry_after=10;
+
+	/** Maximum average rate of messages received from each source, in messages per second.
+	  * If 0, no rate limiting is performed. */
+	int rate_limit=0;
+
+	/** Maximum number of messages that can be received from a source in a burst (if 0, the <i>rate_limit</i> value is used). */
+	int rate_limit_burst=0;
+
+	/** Action taken on messages exceeding the rate limit: "drop", "reject" (with 503 responses), or "blacklist" (the source is blocked for <i>rate_limit_blacklist_time</i> seconds). */
+	String rate_limit_action="drop";
+
+	/** Time a source exceeding the rate limit is blacklisted, in seconds. */
+	int rate_limit_blacklist_time=60;
+
+	/** Whether sources are identified by both the IP address and the From URI, instead of by the IP address only. */
+	boolean rate_limit_by_from=false;
+
+	/** Number of token buckets of the rate limiter (sources are mapped onto buckets by hashing). */
+	int rate_limit_table_size=4096;
+
 
 	// for backward compatibility:
 
@@ -191,20 +235,30 @@ public class SipProvider implements Configurable, SipTransportListener {
 	/** Default transport */
 	String default_transport=null;
 
+	/** Workers that process received messages, or null if they are processed by the transport threads */
+	SipWorkerPool worker_pool=null;
+
+	/** Overload controller, or null if no overload control is performed */
+	OverloadController overload_controller=null;
+
+	/** Per-source rate limiter, or null if no rate limiting is performed */
+	RateLimiter rate_limiter=null;
+
 	/** Whether adding 'rport' parameter on outgoing requests. */
 	boolean rport=true;
 	
 	/** Whether forcing 'rport' parameter on incoming requests ('force-rport' mode). */
 	boolean force_rport=false;
 
-	/** Table of sip listeners (Hashtable<SipId id, SipProviderListener listener>) */
-	Hashtable sip_listeners=new Hashtable();
+	/** Table of sip listeners (ConcurrentHashMap<SipId id, SipProviderListener listener>).
+	  * It is not locked by received messages, so that their dispatching never waits for listeners being added or removed. */
+	ConcurrentHashMap sip_listeners=new ConcurrentHashMap();
 	
-	/** Vector of promiscuous listeners (Vector<SipProviderListener>) */
-	Vector promiscuous_listeners=new Vector();
+	/** List of promiscuous listeners (CopyOnWriteArrayList<SipProviderListener>) */
+	CopyOnWriteArrayList promiscuous_listeners=new CopyOnWriteArrayList();
 
-	/** Vector of exception listeners (Vector<SipProviderListener>) */
-	Vector exception_listeners=new Vector();
+	/** List of exception listeners (CopyOnWriteArrayList<SipProviderExceptionListener>) */
+	CopyOnWriteArrayList exception_listeners=new CopyOnWriteArrayList();
 
 	private boolean isHalted = false;
 
@@ -323,6 +377,9 @@ public class SipProvider implements Configurable, SipTransportListener {
 		this.host_port=host_port;
 		rport=SipStack.use_rport; 
 		force_rport=SipStack.force_rport; 
+		if (dispatch_workers>0 && worker_pool==null) worker_pool=new SipWorkerPool(dispatch_workers,dispatch_queue_size);
+		if (overload_high_delay>0 && overload_controller==null) overload_controller=new OverloadController(overload_high_delay,overload_low_delay,overload_retry_after);
+		if (rate_limit>0 && rate_limiter==null) setRateLimit(rate_limit,rate_limit_burst,RateLimiter.getAction(rate_limit_action),rate_limit_blacklist_time);
 		
 		// just for backward compatibility..
 		if (outbound_port<0) outbound_port=SipStack.default_port;
@@ -337,6 +394,8 @@ public class SipProvider implements Configurable, SipTransportListener {
 	private void initLog() {
 		event_logger=(SipStack.event_logger!=null)? SipStack.event_logger : (SipStack.debug_level>0)? newLogger("_events.log") : null;
 		message_logger=(SipStack.message_logger!=null)? SipStack.message_logger : (SipStack.debug_level>0)? newLogger("_messages.log") : null;
+		// failing timer callbacks are logged to the event log of the first provider
+		if (event_logger!=null && Timer.getLogger()==null) Timer.setLogger(event_logger);
 
 		log(LogLevel.INFO,"Date: "+DateFormat.formatHHmmssSSSEEEddMMMyyyy(new Date()));
 		log(LogLevel.INFO,"SipStack: "+SipStack.release);
@@ -369,6 +428,8 @@ public class SipProvider implements Configurable, SipTransportListener {
 		if (transport_protocols==null) transport_protocols=SipStack.default_transport_protocols;
 		this.transport_protocols=transport_protocols;
 		if (transport_protocols.length>0) default_transport=transport_protocols[0];
+		// the java.nio transports do not use one thread for each connection, and have their own (larger) default limit
+		int nio_nmax_connections=(nmax_connections>0)? nmax_connections : SipStack.nio_nmax_connections;
 		if (nmax_connections<=0) nmax_connections=SipStack.default_nmax_connections;
 
 		sip_transports=new Hashtable();
@@ -379,17 +440,21 @@ public class SipProvider implements Configurable, SipTransportListener {
 				SipTransport transp=null;
 				if (proto.equals(PROTO_UDP)) {
 					if (port==0) port=host_port;
-					transp=new UdpTransport(port,binding_ipaddr);
+					int nreceivers=(SipStack.udp_receivers>0)? SipStack.udp_receivers : Runtime.getRuntime().availableProcessors();
+					transp=new UdpTransport(port,binding_ipaddr,nreceivers,SipStack.udp_reuse_port);
+					if (SipStack.udp_send_queue_size>0) ((UdpTransport)transp).setSendQueue(SipStack.udp_send_queue_size,event_logger);
 				}
 				else
 				if (proto.equals(PROTO_TCP)) {
 					if (port==0) port=host_port;
-					transp=new TcpTransport(port,binding_ipaddr,nmax_connections,event_logger);
+					if (SipStack.nio_tcp) transp=new NioTcpTransport(port,binding_ipaddr,nio_nmax_connections,SipStack.nio_loops,event_logger);
+					else transp=new TcpTransport(port,binding_ipaddr,nmax_connections,event_logger);
 				}
 				else
 				if (proto.equals(PROTO_TLS)) {
 					if (port==0) port=(host_port==SipStack.default_port)? SipStack.default_tls_port : host_port+1;
-					transp=new TlsTransport(port,binding_ipaddr,nmax_connections,SSLContext.getDefault(),event_logger);
+					if (SipStack.nio_tls) transp=new NioTlsTransport(port,binding_ipaddr,nio_nmax_connections,SipStack.nio_loops,SSLContext.getDefault(),event_logger);
+					else transp=new TlsTransport(port,binding_ipaddr,nmax_connections,SSLContext.getDefault(),event_logger);
 				}
 				else
 				if (proto.equals(PROTO_DTLS)) {
@@ -445,6 +510,7 @@ public class SipProvider implements Configurable, SipTransportListener {
 		removeSipTransport(proto);
 		sip_transports.put(proto,transport);
 		transport.setListener(this);
+		if (transport instanceof UdpTransport) setRateLimiter((UdpTransport)transport);
 		if (default_transport==null) default_transport=proto;
 		log(LogLevel.INFO,proto+" is up at port "+transport.getLocalPort());
 	}
@@ -466,9 +532,10 @@ public class SipProvider implements Configurable, SipTransportListener {
 	public synchronized void halt() {
 		log(LogLevel.DEBUG,"halt: SipProvider is going down");
 		stopSipTrasport();
-		sip_listeners=new Hashtable();
-		promiscuous_listeners=new Vector();
-		exception_listeners=new Vector();
+		if (worker_pool!=null) worker_pool.halt();
+		sip_listeners.clear();
+		promiscuous_listeners.clear();
+		exception_listeners.clear();
 		isHalted = true;
 	}
 
@@ -504,6 +571,18 @@ public class SipProvider implements Configurable, SipTransportListener {
 			return;
 		}
 		if (attribute.equals("log_all_packets")) { log_all_packets=(par.getString().toLowerCase().startsWith("y")); return; }
+		if (attribute.equals("compact_headers")) { compact_headers=(par.getString().toLowerCase().startsWith("y")); return; }
+		if (attribute.equals("dispatch_workers")) { dispatch_workers=par.getInt(); return; }
+		if (attribute.equals("dispatch_queue_size")) { dispatch_queue_size=par.getInt(); return; }
+		if (attribute.equals("overload_high_delay")) { overload_high_delay=par.getInt(); return; }
+		if (attribute.equals("overload_low_delay")) { overload_low_delay=par.getInt(); return; }
+		if (attribute.equals("overload_retry_after")) { overload_retry_after=par.getInt(); return; }
+		if (attribute.equals("rate_limit")) { rate_limit=par.getInt(); return; }
+		if (attribute.equals("rate_limit_burst")) { rate_limit_burst=par.getInt(); return; }
+		if (attribute.equals("rate_limit_action")) { rate_limit_action=par.getString(); return; }
+		if (attribute.equals("rate_limit_blacklist_time")) { rate_limit_blacklist_time=par.getInt(); return; }
+		if (attribute.equals("rate_limit_by_from")) { rate_limit_by_from=(par.getString().toLowerCase().startsWith("y")); return; }
+		if (attribute.equals("rate_limit_table_size")) { rate_limit_table_size=par.getInt(); return; }
 
 		// old parameters
 		if (attribute.equals("host_addr")) System.err.println("WARNING: parameter 'host_addr' is no more supported; use 'via_addr' instead.");
@@ -695,6 +774,88 @@ public class SipProvider implements Configurable, SipTransportListener {
 		return force_rport;
 	}
 
+	/** Sets compact form mode, that is whether header field names of outgoing messages are sent in compact form (e.g. 'v' for Via). */ 
+	public synchronized void setCompactHeaders(boolean flag) {
+		compact_headers=flag;
+	}   
+
+	/** Whether using compact form mode. */ 
+	public boolean isCompactHeadersSet() {
+		return compact_headers;
+	}
+
+	/** Sets the number of worker threads that process received messages.
+	  * Messages with the same Call-ID are always processed by the same worker, and in the same order they have been received.
+	  * @param nworkers the number of workers; if 0, received messages are processed by the transport threads
+	  * @param queue_size the maximum number of messages waiting in the queue of each worker; further messages are discarded */ 
+	public synchronized void setDispatchWorkers(int nworkers, int queue_size) {
+		if (worker_pool!=null) worker_pool.halt();
+		dispatch_workers=nworkers;
+		dispatch_queue_size=queue_size;
+		worker_pool=(nworkers>0)? new SipWorkerPool(nworkers,queue_size) : null;
+	}   
+
+	/** Gets the workers that process received messages.
+	  * @return the worker pool, or null if received messages are processed by the transport threads */ 
+	public SipWorkerPool getWorkerPool() {
+		return worker_pool;
+	}
+
+	/** Sets overload control.
+	  * When the average time spent by received messages in the worker queues exceeds <i>high_delay</i>, new INVITE, REGISTER, and SUBSCRIBE
+	  * requests are statelessly rejected with 503 responses, until the average delay falls below <i>low_delay</i>.
+	  * Responses, ACK, BYE, CANCEL, and in-dialog requests are always admitted.
+	  * It requires dispatch workers (see {@link #setDispatchWorkers(int,int)}).
+	  * @param high_delay the average dispatch delay above which new requests are rejected, in milliseconds (0 for disabling overload control)
+	  * @param low_delay the average dispatch delay below which new requests are admitted again, in milliseconds
+	  * @param retry_after the Retry-After value of 503 responses, in seconds */ 
+	public synchronized void setOverloadControl(int high_delay, int low_delay, int retry_after) {
+		overload_high_delay=high_delay;
+		overload_low_delay=low_delay;
+		overload_retry_after=retry_after;
+		overload_controller=(high_delay>0)? new OverloadController(high_delay,low_delay,retry_after) : null;
+	}   
+
+	/** Gets the overload controller.
+	  * @return the overload controller, or null if no overload control is performed */ 
+	public OverloadController getOverloadController() {
+		return overload_controller;
+	}
+
+	/** Sets per-source rate limiting.
+	  * Messages are limited before they are dispatched, by using only the source address (and possibly the From URI) of the message.
+	  * UDP datagrams are limited by the UDP transport before they are parsed, unless the From URI is used.
+	  * @param rate the maximum average rate of messages from each source, in messages per second (0 for disabling rate limiting)
+	  * @param burst the maximum number of messages that can be received from a source in a burst (if 0, <i>rate</i> is used)
+	  * @param action the action taken on messages exceeding the limit (see {@link RateLimiter})
+	  * @param blacklist_time the time a source is blacklisted, in seconds (used only with {@link RateLimiter#ACTION_BLACKLIST}) */ 
+	public synchronized void setRateLimit(int rate, int burst, int action, int blacklist_time) {
+		if (action<0) {
+			log(LogLevel.WARNING,"unknown rate limit action: "+action+": messages will be dropped");
+			action=RateLimiter.ACTION_DROP;
+		}
+		rate_limit=rate;
+		rate_limit_burst=burst;
+		rate_limit_blacklist_time=blacklist_time;
+		rate_limiter=(rate>0)? new RateLimiter(rate,(burst>0)? burst : rate,rate_limit_table_size,action,blacklist_time) : null;
+		if (sip_transports!=null) {
+			SipTransport udp=(SipTransport)sip_transports.get(PROTO_UDP);
+			if (udp instanceof UdpTransport) setRateLimiter((UdpTransport)udp);
+		}
+	}
+
+	/** Passes the rate limiter to the UDP transport, so that datagrams are limited before they are parsed.
+	  * When the From URI is used for rate limiting, messages have to be parsed and are limited by the SipProvider. */ 
+	private void setRateLimiter(UdpTransport udp) {
+		udp.setRateLimiter((rate_limit_by_from)? null : rate_limiter);
+	}
+
+	/** Gets the per-source rate limiter.
+	  * @return the rate limiter, or null if no rate limiting is performed */ 
+	public RateLimiter getRateLimiter() {
+		return rate_limiter;
+	}
+
 	/** Whether setting the Via protocol, sent-by, and port values according to the transport connection.
 	  * @param force_sent_by whether setting Via protocol, sent-by, and port values according to the transport connection */ 
 	public synchronized void setForceSentBy(boolean force_sent_by) {
@@ -771,9 +932,19 @@ public class SipProvider implements Configurable, SipTransportListener {
 	}    
 	
 
-	/** Returns the table of active listeners as Hastable:(SipId)IDs--&gt;(SipListener)listener. */ 
+	/** Returns the table of active listeners as Hastable:(SipId)IDs--&gt;(SipListener)listener.
+	  * The returned table is a snapshot; changes to it do not affect this SipProvider.
+	  * Use {@link #hasSelectiveListener(SipId)} for just checking whether a listener is present. */ 
 	public Hashtable getListeners() {
-		return sip_listeners;
+		return new Hashtable(sip_listeners);
+	}   
+
+
+	/** Whether a SipProvider listener is set for the given identifier.
+	  * @param id the method, transaction, or dialog identifier
+	  * @return true if a listener is present */ 
+	public boolean hasSelectiveListener(SipId id) {
+		return sip_listeners.containsKey(id);
 	}   
 
 
@@ -782,28 +953,23 @@ public class SipProvider implements Configurable, SipTransportListener {
 	  * as to be associated to. It may identify a method, a transaction, or a dialog, or all messages.
 	  * Use MethodId.ANY to capture all messages.
 	  * @param listener is the SipProviderListener that the specified type of messages has to be passed to. */
-	public synchronized void addSelectiveListener(SipId id, SipProviderListener listener) {
-		log(LogLevel.DEBUG,"adding SipProviderListener: "+id);
-		if (sip_listeners.containsKey(id)) {
+	public void addSelectiveListener(SipId id, SipProviderListener listener) {
+		if (event_logger!=null) log(LogLevel.DEBUG,"adding SipProviderListener: "+id);
+		if (sip_listeners.put(id,listener)!=null) {
 			log(LogLevel.WARNING,"adding a SipProvider listener with an identifier already present: the previous listener is removed.");
-			sip_listeners.remove(id);
 		}
-		sip_listeners.put(id,listener);   
-		log(LogLevel.TRACE,"active sip listeners: "+sip_listeners.size());
+		if (event_logger!=null) log(LogLevel.TRACE,"active sip listeners: "+sip_listeners.size());
 	}
 
 
 	/** Removes a SipProviderListener.
 	  * @param id specifies the messages that the listener was associated to. */
-	public synchronized void removeSelectiveListener(SipId id) {
-		log(LogLevel.DEBUG,"removing SipProviderListener: "+id);
-		if (!sip_listeners.containsKey(id)) {
-			log(LogLevel.WARNING,"removeListener("+id+"): no such listener found.");
-		}
-		else {
-			sip_listeners.remove(id);
+	public void removeSelectiveListener(SipId id) {
+		if (event_logger!=null) log(LogLevel.DEBUG,"removing SipProviderListener: "+id);
+		if (sip_listeners.remove(id)==null) {
+			if (event_logger!=null) log(LogLevel.WARNING,"removeListener("+id+"): no such listener found.");
 		}
-		log(LogLevel.TRACE,"active sip listeners: "+sip_listeners.size());
+		if (event_logger!=null) log(LogLevel.TRACE,"active sip listeners: "+sip_listeners.size());
 	}
 
   
@@ -814,54 +980,42 @@ public class SipProvider implements Configurable, SipTransportListener {
 	  * <br> More that one SipProviderListener can be active in promiscuous mode at the same time;
 	  * in that case the same message is passed to all promiscuous SipProviderListeners.
 	  * @param listener is the SipProviderListener. */
-	public synchronized void addPromiscuousListener(SipProviderListener listener) {
+	public void addPromiscuousListener(SipProviderListener listener) {
 		log(LogLevel.DEBUG,"adding SipProviderListener in promiscuous mode");
-		if (promiscuous_listeners.contains(listener)) {
+		if (!promiscuous_listeners.addIfAbsent(listener)) {
 			log(LogLevel.WARNING,"trying to add an already present SipProviderListener in promiscuous mode.");
 		}
-		else {
-			promiscuous_listeners.addElement(listener);
-		}
 	}
 
 
 	/** Removes a SipProviderListener in promiscuous mode. 
 	  * @param listener is the SipProviderListener to be removed. */
-	public synchronized void removePromiscuousListener(SipProviderListener listener) {
+	public void removePromiscuousListener(SipProviderListener listener) {
 		log(LogLevel.DEBUG,"removing SipProviderListener in promiscuous mode");
-		if (!promiscuous_listeners.contains(listener)) {
+		if (!promiscuous_listeners.remove(listener)) {
 			log(LogLevel.WARNING,"trying to remove a missed SipProviderListener in promiscuous mode.");
 		}
-		else {
-			promiscuous_listeners.removeElement(listener);
-		}
 	}
 
 
 	/** Adds a SipProviderExceptionListener.
 	  * The SipProviderExceptionListener is a listener for all exceptions thrown by the SipProviders.
 	  * @param listener is the SipProviderExceptionListener. */
-	public synchronized void addExceptionListener(SipProviderExceptionListener listener) {
+	public void addExceptionListener(SipProviderExceptionListener listener) {
 		log(LogLevel.DEBUG,"adding a SipProviderExceptionListener");
-		if (exception_listeners.contains(listener)) {
+		if (!exception_listeners.addIfAbsent(listener)) {
 			log(LogLevel.WARNING,"trying to add an already present SipProviderExceptionListener.");
 		}
-		else {
-			exception_listeners.addElement(listener);
-		}
 	}
 
 
 	/** Removes a SipProviderExceptionListener. 
 	  * @param listener is the SipProviderExceptionListener to be removed. */
-	public synchronized void removeExceptionListener(SipProviderExceptionListener listener) {
+	public void removeExceptionListener(SipProviderExceptionListener listener) {
 		log(LogLevel.DEBUG,"removing a SipProviderExceptionListener");
-		if (!exception_listeners.contains(listener)) {
+		if (!exception_listeners.remove(listener)) {
 			log(LogLevel.WARNING,"trying to remove a missed SipProviderExceptionListener.");
 		}
-		else {
-			exception_listeners.removeElement(listener);
-		}
 	}
 
 
@@ -902,6 +1056,7 @@ public class SipProvider implements Configurable, SipTransportListener {
 			SipTransport sip_transport=(SipTransport)sip_transports.get(conn_id.getProtocol());
 			if (sip_transport!=null)
 			try {
+				if (compact_headers) msg.setCompactForm(true);
 				SipTransportConnection conn=((SipTransportCO)sip_transport).sendMessageCO(msg);
 				// logs
 				logMessage(conn.getProtocol(),conn.getRemoteAddress().toString(),conn.getRemotePort(),msg.getLength(),msg,"sent");
@@ -976,13 +1131,10 @@ public class SipProvider implements Configurable, SipTransportListener {
 		}
 		else {
 			// RESPONSES
-			ViaHeader via=msg.getViaHeader();
-			proto=via.getProtocol();
-			SipURI uri=via.getSipURI();
-			if (via.hasReceived()) dest_addr=via.getReceived(); else dest_addr=uri.getHost();
-			//if (!isReliableTransport(via.getProtocol()) && via.hasRport()) dest_port=via.getRport();
-			if (via.hasRport()) dest_port=via.getRport();
-			if (dest_port<=0) dest_port=uri.getPort();
+			proto=msg.getViaHeader().getProtocol();
+			SocketAddress dest_soaddr=resolveResponseDestination(msg);
+			dest_addr=dest_soaddr.getAddress().toString();
+			dest_port=dest_soaddr.getPort();
 		}
 
 		// if port <= use default port
@@ -992,6 +1144,25 @@ public class SipProvider implements Configurable, SipTransportListener {
 	}
 
 
+	/** Gets the destination of a response, according to the top Via header field.
+	  * The address is the one in the 'received' parameter, if present, otherwise the sent-by host;
+	  * the port is the one in the 'rport' parameter, if present, otherwise the sent-by port,
+	  * or the default port of the transport protocol.
+	  * @param resp the response
+	  * @return the destination socket address (the address is not resolved) */
+	public SocketAddress resolveResponseDestination(SipMessage resp) {
+		ViaHeader via=resp.getViaHeader();
+		SipURI uri=via.getSipURI();
+		String dest_addr=(via.hasReceived())? via.getReceived() : uri.getHost();
+		int dest_port=0;
+		//if (!isReliableTransport(via.getProtocol()) && via.hasRport()) dest_port=via.getRport();
+		if (via.hasRport()) dest_port=via.getRport();
+		if (dest_port<=0) dest_port=uri.getPort();
+		if (dest_port<=0) dest_port=(isSecureTransport(via.getProtocol()))? SipStack.default_port+1 : SipStack.default_port;
+		return new SocketAddress(dest_addr,dest_port);
+	}
+
+
 	/** Updates the top Via header field of a SIP message, according to the given transport information.
 	  * @param msg the message to be updated
 	  * @param proto the transport protocol
@@ -1105,6 +1276,7 @@ public class SipProvider implements Configurable, SipTransportListener {
 		}
 		// else
 		try {
+			if (compact_headers) msg.setCompactForm(true);
 			ConnectionId connection_id=sip_transport.sendMessage(msg,dest_ipaddr,dest_port,ttl);
 			// logs
 			logMessage(proto,dest_ipaddr.toString(),dest_port,msg.getLength(),msg,"sent");
@@ -1118,6 +1290,32 @@ public class SipProvider implements Configurable, SipTransportListener {
 	}
 
 
+	/** Sends an already encoded message through a connection-less transport (e.g. UDP).
+	  * It can be used for retransmitting a message without encoding it again, and without resolving again its destination.
+	  * @param data the encoded message
+	  * @param proto the transport protocol
+	  * @param dest_ipaddr the destination address
+	  * @param dest_port the destination port
+	  * @return true if the message has been sent, false if the protocol is not an active connection-less transport, or the message could not be sent */
+	public boolean sendRawData(byte[] data, String proto, IpAddress dest_ipaddr, int dest_port) {
+		SipTransport sip_transport=(SipTransport)sip_transports.get(proto.toLowerCase());
+		if (!(sip_transport instanceof UdpTransport)) {
+			log(LogLevel.WARNING,"no connection-less transport for protocol "+proto+"; data discarded");
+			return false;
+		}
+		// else
+		try {
+			((UdpTransport)sip_transport).sendData(data,dest_ipaddr,dest_port);
+			if (log_all_packets || data.length>MIN_MESSAGE_LENGTH) log(LogLevel.DEBUG,"Sent "+data.length+" bytes to "+(new ConnectionId(proto,dest_ipaddr,dest_port)).toString());
+			return true;
+		}
+		catch (IOException e) {
+			log(LogLevel.INFO,e);
+			return false;
+		}
+	}
+
+
 	/** Sends the <i>msg</i> message using the specified transport connection. */
 	/*public ConnectionId sendMessage(SipMessage msg, ConnectionId conn_id) {
 		if (log_all_packets || msg.getLength()>MIN_MESSAGE_LENGTH) log(LogLevel.INFO,"Sending message through conn "+conn_id);
@@ -1147,7 +1345,86 @@ public class SipProvider implements Configurable, SipTransportListener {
 	//************************* Callback methods *************************
 	
 	/** From SipTransportListener. When a new SIP message is received. */
-	public void onReceivedMessage(SipTransport transport, SipMessage msg) {
+	public void onReceivedMessage(SipTransport transport, final SipMessage msg) {
+		RateLimiter rate_limiter=this.rate_limiter;
+		// UDP datagrams may have already been limited by the transport, before parsing them
+		if (rate_limiter!=null && transport instanceof UdpTransport && ((UdpTransport)transport).getRateLimiter()==rate_limiter) rate_limiter=null;
+		if (rate_limiter!=null && !rate_limiter.admit(getSourceKey(msg))) {
+			if (rate_limiter.getAction()==RateLimiter.ACTION_REJECT && isRejectableRequest(msg)) rejectRequest(msg,0);
+			else if (log_all_packets) log(LogLevel.DEBUG,"rate limit exceeded: message from "+msg.getRemoteAddress()+":"+msg.getRemotePort()+" discarded");
+			return;
+		}
+		// else
+		SipWorkerPool worker_pool=this.worker_pool;
+		if (worker_pool==null) {
+			processReceivedMessage(msg);
+			return;
+		}
+		// else
+		final OverloadController overload_controller=this.overload_controller;
+		if (overload_controller!=null && msg.getLength()>4) {
+			// if the queues have been emptied, the delay is zero
+			if (overload_controller.isOverloaded() && worker_pool.getQueueDepth()==0) overload_controller.addDelay(0);
+			if (!overload_controller.admit(msg)) {
+				rejectRequest(msg,overload_controller.getRetryAfter());
+				return;
+			}
+		}
+		final long queued_time=(overload_controller!=null)? System.currentTimeMillis() : 0;
+		CallIdHeader ch=(msg.getLength()>4)? msg.getCallIdHeader() : null;
+		boolean queued=worker_pool.execute((ch!=null)? ch.getCallId() : null,new Runnable() {
+			public void run() {
+				if (overload_controller!=null) overload_controller.addDelay(System.currentTimeMillis()-queued_time);
+				processReceivedMessage(msg);
+			}
+		});
+		if (!queued) log(LogLevel.WARNING,"worker queue is full: message discarded");
+	}
+
+
+	/** Gets the key that identifies the source of a received message for rate limiting. */
+	private String getSourceKey(SipMessage msg) {
+		if (rate_limit_by_from && msg.getLength()>4) {
+			try {
+				return msg.getRemoteAddress()+" "+msg.getFromHeader().getNameAddress().getAddress().toString();
+			}
+			catch (Exception e) {}
+		}
+		// else
+		return msg.getRemoteAddress();
+	}
+
+
+	/** Whether a received message is a request that can be rejected with a response (i.e. not an ACK). */
+	private static boolean isRejectableRequest(SipMessage msg) {
+		try {
+			return msg.getLength()>4 && msg.isRequest() && !msg.isAck();
+		}
+		catch (Exception e) {
+			return false;
+		}
+	}
+
+
+	/** Statelessly rejects a received request with a 503 "Service Unavailable" response.
+	  * The response is sent back to the source address and port of the request.
+	  * @param req the request
+	  * @param retry_after the Retry-After value, in seconds */
+	private void rejectRequest(SipMessage req, int retry_after) {
+		log(LogLevel.INFO,"request from "+req.getRemoteAddress()+":"+req.getRemotePort()+" rejected with 503");
+		try {
+			SipMessage resp=SipMessageFactory.createResponse(req,503,null,null);
+			if (retry_after>0) resp.addHeader(new Header(SipHeaders.Retry_After,String.valueOf(retry_after)),false);
+			sendMessage(resp,req.getTransportProtocol(),req.getRemoteAddress(),req.getRemotePort(),0);
+		}
+		catch (Exception e) {
+			log(LogLevel.INFO,e);
+		}
+	}
+
+
+	/** Processes a received SIP message. */
+	private void processReceivedMessage(SipMessage msg) {
 		try {
 			// logs
 			logMessage(msg.getTransportProtocol(),msg.getRemoteAddress(),msg.getRemotePort(),msg.getLength(),msg,"received");
@@ -1199,15 +1476,14 @@ public class SipProvider implements Configurable, SipTransportListener {
 			}
 			
 			// is there any listeners?
-			if (sip_listeners.size()==0 && promiscuous_listeners.size()==0) {
+			if (sip_listeners.isEmpty() && promiscuous_listeners.isEmpty()) {
 				log(LogLevel.INFO,"no listener found: message discarded.");
 				return;
 			}
 
 			// try to look for listeners in promiscuous mode
-			Vector promiscuous_listeners=getPromisquousListeners();
-			for (int i=0; promiscuous_listeners!=null && i<promiscuous_listeners.size(); i++) {
-				SipProviderListener listener=(SipProviderListener)promiscuous_listeners.elementAt(i);
+			for (Iterator i=promiscuous_listeners.iterator(); i.hasNext(); ) {
+				SipProviderListener listener=(SipProviderListener)i.next();
 				log(LogLevel.DEBUG,"message passed to promiscuous listener");
 				listener.onReceivedMessage(this,msg);
 			}
@@ -1230,10 +1506,9 @@ public class SipProvider implements Configurable, SipTransportListener {
 		catch (Exception exception) {
 			log(LogLevel.WARNING,"Error handling a new incoming message");
 			log(LogLevel.DEBUG,exception);
-			Vector exception_listeners=getExceptionListeners();
-			for (int i=0; exception_listeners!=null && i<exception_listeners.size(); i++) {
+			for (Iterator i=exception_listeners.iterator(); i.hasNext(); ) {
 				try {
-					((SipProviderExceptionListener)exception_listeners.elementAt(i)).onMessageException(msg,exception);
+					((SipProviderExceptionListener)i.next()).onMessageException(msg,exception);
 				}
 				catch (Exception e) {
 					log(LogLevel.WARNING,"Error handling the Exception");
@@ -1244,56 +1519,35 @@ public class SipProvider implements Configurable, SipTransportListener {
 	}
 
 
-	/** Gets all promisquous listeners. */
-	private synchronized Vector getPromisquousListeners() {
-		if (promiscuous_listeners!=null && promiscuous_listeners.size()>0) {
-			//return new Vector(promiscuous_listeners);
-			return VectorUtils.copy(promiscuous_listeners);
-		}
-		// else
-		return null;
-	}
-
-
-	/** Gets all exception listeners. */
-	private synchronized Vector getExceptionListeners() {
-		if (exception_listeners!=null && exception_listeners.size()>0) {
-			//return new Vector(exception_listeners);
-			return VectorUtils.copy(exception_listeners);
-		}
-		// else
-		return null;
-	}
-
-
 	/** Gets a listener for a given message.
 	 * @param msg the SIP message */
-	private synchronized SipProviderListener getListener(SipMessage msg) {
+	protected SipProviderListener getListener(SipMessage msg) {
 		SipId key;
+		SipProviderListener listener;
 		// try to look for a transaction (requests go to transaction servers and response go to transaction clients)
 		key=(msg.isRequest())? (SipId)new TransactionServerId(msg) : (SipId)new TransactionClientId(msg);
-		log(LogLevel.DEBUG,"transaction-id: "+key);
-		if (sip_listeners.containsKey(key)) {
-			log(LogLevel.DEBUG,"message passed to transaction: "+key);
-			return (SipProviderListener)sip_listeners.get(key);
+		if (event_logger!=null) log(LogLevel.DEBUG,"transaction-id: "+key);
+		if ((listener=(SipProviderListener)sip_listeners.get(key))!=null) {
+			if (event_logger!=null) log(LogLevel.DEBUG,"message passed to transaction: "+key);
+			return listener;
 		}
 		// try to look for a dialog
 		key=new DialogId(msg);
-		log(LogLevel.DEBUG,"dialog-id: "+key);
-		if (sip_listeners.containsKey(key)) {
-			log(LogLevel.DEBUG,"message passed to dialog: "+key);
-			return (SipProviderListener)sip_listeners.get(key);
+		if (event_logger!=null) log(LogLevel.DEBUG,"dialog-id: "+key);
+		if ((listener=(SipProviderListener)sip_listeners.get(key))!=null) {
+			if (event_logger!=null) log(LogLevel.DEBUG,"message passed to dialog: "+key);
+			return listener;
 		}
 		// try to look for a UAS
 		key=new MethodId(msg);
-		if (sip_listeners.containsKey(key)) {
-			log(LogLevel.DEBUG,"message passed to uas: "+key);
-			return (SipProviderListener)sip_listeners.get(key);
+		if ((listener=(SipProviderListener)sip_listeners.get(key))!=null) {
+			if (event_logger!=null) log(LogLevel.DEBUG,"message passed to uas: "+key);
+			return listener;
 		}        
 		// try to look for a default UA
-		if (sip_listeners.containsKey(MethodId.ANY)) {
+		if ((listener=(SipProviderListener)sip_listeners.get(MethodId.ANY))!=null) {
 			log(LogLevel.DEBUG,"message passed to uas: "+MethodId.ANY);
-			return (SipProviderListener)sip_listeners.get(MethodId.ANY);
+			return listener;
 		}
 		// else
 		return null;
@@ -1347,24 +1601,27 @@ public class SipProvider implements Configurable, SipTransportListener {
 	}  
 
 	/** Picks an unique branch value based on a SIP message.
-	  * This value could also be used as transaction ID */
+	  * This value could also be used as transaction ID.
+	  * <p>
+	  * It is computed as a keyed hash of the request-uri, the local via address and port, and the top Via branch
+	  * (or, if no branch is present, the top Via sent-by, the From tag, the Call-ID, and the CSeq number),
+	  * without serializing the message. */
 	public String pickBranch(SipMessage msg) {
-		StringBuffer sb=new StringBuffer();
-		sb.append(msg.getRequestLine().getAddress().toString());
-		sb.append(getViaAddress()+getPort());
+		long h=ID_KEY;
+		h=hash(h,msg.getRequestLine().getAddress().toString());
+		h=hash(h,getViaAddress());
+		h=hash(h,getPort());
 		ViaHeader top_via=msg.getViaHeader();
 		if (top_via.hasBranch())
-			sb.append(top_via.getBranch());
+			h=hash(h,top_via.getBranch());
 		else {
-			sb.append(top_via.getHost()+top_via.getPort());
-			//sb.append(msg.getToHeader().getTag());
-			sb.append(msg.getFromHeader().getTag());
-			sb.append(msg.getCallIdHeader().getCallId());
-			sb.append(msg.getCSeqHeader().getSequenceNumber());
+			h=hash(h,top_via.getHost());
+			h=hash(h,top_via.getPort());
+			h=hash(h,String.valueOf(msg.getFromHeader().getTag()));
+			h=hash(h,msg.getCallIdHeader().getCallId());
+			h=hash(h,msg.getCSeqHeader().getSequenceNumber());
 		}
-		//return "z9hG4bK"+(new MD5(unique_str)).asHex().substring(0,9);
-		//return "z9hG4bK"+(new SimpleDigest(5,sb.toString())).asHex();
-		return ViaHeader.MAGIC_COOKIE+(new SimpleDigest(5,sb.toString())).asHex();
+		return ViaHeader.MAGIC_COOKIE+toHex(h);
 	}  
 
 
@@ -1390,7 +1647,48 @@ public class SipProvider implements Configurable, SipTransportListener {
 	public static String pickTag(SipMessage req) {
 		//return String.valueOf(tag_generator++);
 		//return (new MD5(request.toString())).asHex().substring(0,8);
-		return (new SimpleDigest(8,req.toString())).asHex();
+		//return (new SimpleDigest(8,req.toString())).asHex();
+		// keyed hash of the fields that identify the request, without serializing the message
+		long h=ID_KEY;
+		if (req.hasCallIdHeader()) h=hash(h,req.getCallIdHeader().getCallId());
+		if (req.hasFromHeader()) h=hash(h,String.valueOf(req.getFromHeader().getTag()));
+		if (req.hasCSeqHeader()) h=hash(h,req.getCSeqHeader().getSequenceNumber());
+		if (req.hasViaHeader()) {
+			ViaHeader top_via=req.getViaHeader();
+			h=hash(h,(top_via.hasBranch())? top_via.getBranch() : top_via.getSentBy());
+		}
+		return toHex(h);
+	}
+
+
+	/** Secret key for generating tags and branches from messages, so that they cannot be guessed by others */
+	private static final long ID_KEY=Random.nextLong()^System.nanoTime();
+
+	/** Updates a hash with a string (64-bit FNV-1a, followed by a separator). */
+	private static long hash(long h, String str) {
+		for (int i=0; i<str.length(); i++) h=(h^str.charAt(i))*0x100000001b3L;
+		return (h^0x100)*0x100000001b3L;
+	}
+
+	/** Updates a hash with a number. */
+	private static long hash(long h, long n) {
+		for (int i=0; i<8; i++, n>>>=8) h=(h^(n&0xff))*0x100000001b3L;
+		return (h^0x100)*0x100000001b3L;
+	}
+
+	/** Gets the 16-digit hexadecimal string of a hash, after a final mixing of its bits. */
+	private static String toHex(long h) {
+		h^=h>>>33;
+		h*=0xff51afd7ed558ccdL;
+		h^=h>>>33;
+		h*=0xc4ceb9fe1a85ec53L;
+		h^=h>>>33;
+		char[] buff=new char[16];
+		for (int i=15; i>=0; i--, h>>>=4) {
+			int n=(int)(h&15);
+			buff[i]=(char)((n<10)? 48+n : 87+n);
+		}
+		return new String(buff);
 	}
 
 
@@ -25,6 +25,10 @@ package org.mjsip.sip.provider;
 
 
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.mjsip.sip.message.BasicSipMessage;
 import org.mjsip.sip.message.SipMethods;
 import org.zoolu.util.Configure;
 import org.zoolu.util.LogLevel;
@@ -32,6 +36,7 @@ import org.zoolu.util.LogRotationWriter;
 import org.zoolu.util.LogWriter;
 import org.zoolu.util.Logger;
 import org.zoolu.util.Parser;
+import org.zoolu.util.Threads;
 import org.zoolu.util.Timer;
 
 
@@ -96,6 +101,25 @@ public class SipStack extends Configure {
 	public static String[] default_transport_protocols={ SipProvider.PROTO_UDP, SipProvider.PROTO_TCP };
 	/** Default max number of contemporary open transport connections. */
 	public static int default_nmax_connections=32;
+	/** Whether the TCP transport uses java.nio non-blocking channels handled by a pool of event loops (see {@link NioTcpTransport}),
+	  * instead of one thread for each connection. */
+	public static boolean nio_tcp=false;
+	/** Default max number of contemporary open connections of the java.nio transports (see {@link NioTcpTransport} and {@link NioTlsTransport});
+	  * it is used in place of {@link #default_nmax_connections} when <code>nio_tcp</code> or <code>nio_tls</code> is set. */
+	public static int nio_nmax_connections=65536;
+	/** Default maximum idle time of transport connections, in milliseconds; idle connections are closed (0 means never). */
+	public static long connection_idle_timeout=0;
+	/** Number of event loops used by the java.nio transports; if 0, the number of available processors is used. */
+	public static int nio_loops=0;
+	/** Number of threads receiving and processing UDP datagrams in parallel; if 0, the number of available processors is used.
+	  * Note that messages received by different threads may be processed out of order. */
+	public static int udp_receivers=1;
+	/** Whether each UDP receiver thread uses its own socket bound to the same port with SO_REUSEPORT (when supported by the OS),
+	  * instead of sharing a single socket. */
+	public static boolean udp_reuse_port=false;
+	/** Maximum number of outgoing UDP datagrams waiting to be sent by a dedicated sender thread (see {@link UdpSendQueue}).
+	  * If 0, messages are sent directly by the thread that sends them. */
+	public static int udp_send_queue_size=0;
 	/** Whether adding 'rport' parameter on via header fields of outgoing requests. */
 	public static boolean use_rport=true;
 	/** Whether adding (forcing) 'rport' parameter on via header fields of incoming requests. */
@@ -115,6 +139,13 @@ public class SipStack extends Configure {
 	/** For TLS. Absolute file name of the private key of the local node.
 	  * The file name includes the full path starting from the current working folder. */
 	public static String default_tls_key_file="cert/ssl.key";
+	/** For TLS. Whether the TLS transport uses java.nio non-blocking channels and SSLEngine, handled by a pool of event loops (see {@link NioTlsTransport}),
+	  * instead of one thread and one blocking SSL socket for each connection. */
+	public static boolean nio_tls=false;
+	/** For TLS. Maximum number of TLS sessions cached for resumption; if 0, the default value of the SSL context is kept. */
+	public static int default_tls_session_cache_size=0;
+	/** For TLS. Timeout of cached TLS sessions (in seconds); if 0, the default value of the SSL context is kept. */
+	public static int default_tls_session_timeout=0;
 
 
 	// ********************* transaction timeouts *********************
@@ -138,6 +169,13 @@ public class SipStack extends Configure {
 	 * In 'non-daemon' mode, the program ends only when all active timers have expired
 	 * or explicitly halted. */
 	public static boolean timer_daemon_mode=true;
+	/** Timer resolution, in milliseconds. */
+	public static int timer_tick=10;
+	/** Number of threads that run timer callbacks. If 0, callbacks are run by the timer threads. */
+	public static int timer_threads=0;
+	/** Whether running I/O threads (transport receivers, relays, media streams, keep-alive senders) as virtual threads.
+	  * Virtual threads are used only if supported by the running JRE (Java 21 or later); otherwise platform threads are used. */
+	public static boolean virtual_threads=Threads.VIRTUAL_MODE;
 	/** Whether at UAS side automatically sending (by default) a 100 Trying on INVITE. */
 	public static boolean auto_trying=true;
 	/** Whether 1xx responses create an "early dialog" for methods that create dialog. */
@@ -164,6 +202,9 @@ public class SipStack extends Configure {
 	public static int min_session_interval=90;
 	/** Default session interval (Session-Expires header field) for supporting "Session Timers" (RFC 4028). */
 	public static int default_session_interval=0;
+	/** Whether received messages are parsed directly from bytes (see {@link SipByteParser}),
+	  * instead of being converted into a String and parsed by the {@link SipParser}. */
+	public static boolean byte_parser=false;
 
 
 	// ************** registration client configurations **************
@@ -241,6 +282,13 @@ public class SipStack extends Configure {
 		if (attribute.equals("default_tls_port")) { default_tls_port=par.getInt(); return; }
 		if (attribute.equals("default_transport_protocols")) { default_transport_protocols=par.getWordArray(delim); return; }
 		if (attribute.equals("default_nmax_connections")) { default_nmax_connections=par.getInt(); return; }
+		if (attribute.equals("connection_idle_timeout")) { connection_idle_timeout=par.getInt(); return; }
+		if (attribute.equals("nio_tcp")) { nio_tcp=(par.getString().toLowerCase().startsWith("y")); return; }
+		if (attribute.equals("nio_nmax_connections")) { nio_nmax_connections=par.getInt(); return; }
+		if (attribute.equals("nio_loops")) { nio_loops=par.getInt(); return; }
+		if (attribute.equals("udp_receivers")) { udp_receivers=par.getInt(); return; }
+		if (attribute.equals("udp_send_queue_size")) { udp_send_queue_size=par.getInt(); return; }
+		if (attribute.equals("udp_reuse_port")) { udp_reuse_port=(par.getString().toLowerCase().startsWith("y")); return; }
 		if (attribute.equals("use_rport")) { use_rport=(par.getString().toLowerCase().startsWith("y")); return; }
 		if (attribute.equals("force_rport")) { force_rport=(par.getString().toLowerCase().startsWith("y")); return; }
 
@@ -249,6 +297,9 @@ public class SipStack extends Configure {
 		if (attribute.equals("default_tls_trust_folder")){ default_tls_trust_folder=par.getRemainingString().trim(); return; }
 		if (attribute.equals("default_tls_cert_file")){ default_tls_cert_file=par.getRemainingString().trim(); return; }
 		if (attribute.equals("default_tls_key_file")){ default_tls_key_file=par.getRemainingString().trim(); return; }
+		if (attribute.equals("nio_tls")){ nio_tls=(par.getString().toLowerCase().startsWith("y")); return; }
+		if (attribute.equals("default_tls_session_cache_size")){ default_tls_session_cache_size=par.getInt(); return; }
+		if (attribute.equals("default_tls_session_timeout")){ default_tls_session_timeout=par.getInt(); return; }
 
 
 		// transaction timeouts
@@ -260,6 +311,9 @@ public class SipStack extends Configure {
 		// general configurations
 		if (attribute.equals("max_forwards"))   { max_forwards=par.getInt(); return; }
 		if (attribute.equals("timer_daemon_mode"))   { timer_daemon_mode=(par.getString().toLowerCase().startsWith("y")); return; }
+		if (attribute.equals("timer_tick"))     { timer_tick=par.getInt(); return; }
+		if (attribute.equals("timer_threads"))  { timer_threads=par.getInt(); return; }
+		if (attribute.equals("virtual_threads"))   { virtual_threads=(par.getString().toLowerCase().startsWith("y")); return; }
 		if (attribute.equals("auto_trying"))    { auto_trying=(par.getString().toLowerCase().startsWith("y")); return; }
 		if (attribute.equals("early_dialog"))   { early_dialog=(par.getString().toLowerCase().startsWith("y")); return; }
 		if (attribute.equals("default_expires")){ default_expires=par.getInt(); return; }
@@ -270,6 +324,7 @@ public class SipStack extends Configure {
 		if (attribute.equals("allowed_methods"))       { allowed_methods=par.getWordArray(delim); return; }
 		if (attribute.equals("min_session_interval"))  { min_session_interval=par.getInt(); return; }
 		if (attribute.equals("default_session_interval"))  { default_session_interval=par.getInt(); return; }
+		if (attribute.equals("byte_parser"))    { byte_parser=(par.getString().toLowerCase().startsWith("y")); return; }
 
 		// registration client configurations
 		if (attribute.equals("regc_min_attempt_timeout")) { regc_min_attempt_timeout=par.getInt(); return; }
@@ -325,6 +380,19 @@ public class SipStack extends Configure {
 
 		// timers
 		Timer.DEFAULT_DAEMON_MODE=timer_daemon_mode;
+		if (timer_tick>0) Timer.TICK_TIME=timer_tick;
+		if (timer_threads>0) Timer.setExecutor(Executors.newFixedThreadPool(timer_threads,new ThreadFactory() {
+			int n=0;
+			public synchronized Thread newThread(Runnable r) {
+				return Threads.newThread(r,"timer-worker-"+(n++),true);
+			}
+		}));
+
+		// threads
+		Threads.VIRTUAL_MODE=virtual_threads;
+
+		// message parser
+		BasicSipMessage.BYTE_PARSER=byte_parser;
 
 		// logs
 		if (debug_level>0) {
@@ -26,8 +26,10 @@ package org.mjsip.sip.provider;
 
 
 import java.io.IOException;
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
 
 import org.mjsip.sip.message.SipMessage;
 import org.zoolu.net.IpAddress;
@@ -35,10 +37,17 @@ import org.zoolu.net.SocketAddress;
 import org.zoolu.util.ExceptionPrinter;
 import org.zoolu.util.LogLevel;
 import org.zoolu.util.Logger;
+import org.zoolu.util.Timer;
+import org.zoolu.util.TimerListener;
 
 
 
 /** SipTransportCO is a generic Connection Oriented (CO) transport service for SIP.
+  * <p>
+  * Active connections are kept in a table ordered by last use, so that when the maximum number
+  * of connections is reached the least recently used one is found in constant time.
+  * Connections that have been idle for longer than the idle timeout (see {@link #setIdleTimeout(long)})
+  * are periodically closed.
   */
 public abstract class SipTransportCO implements SipTransport/*, SipTransportConnectionListener*/ {
 	
@@ -46,8 +55,11 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 	/** Event Logger */
 	protected Logger logger;
 
-	/** Table of active connections (Hashtable of <code>ConnectionId</code>,<code>SipTransportConnection</code>) */
-	protected Hashtable connections;
+	/** Maximum number of least recently used connections that are compared when one connection has to be removed */
+	static final int EVICTION_SAMPLES=4;
+
+	/** Table of active connections (access-ordered LinkedHashMap of <code>ConnectionId</code>,<code>SipTransportConnection</code>) */
+	protected LinkedHashMap connections;
 
 	/** SipTransport listener */
 	protected SipTransportListener listener=null;
@@ -64,6 +76,18 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 	/** Whether changing the Via protocol, sent-by, and port values of sending messages according to the transport connection */
 	boolean force_sent_by=false;   
 
+	/** Maximum idle time of a connection, in milliseconds (0 means no idle timeout) */
+	long idle_timeout=0;
+
+	/** Timer for removing idle connections */
+	Timer reaper_timer=null;
+
+	/** Number of connections removed since the maximum number of connections was reached */
+	long evicted_count=0;
+
+	/** Number of connections removed since they were idle */
+	long reaped_count=0;
+
 
 
 
@@ -71,7 +95,7 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 	public SipTransportCO(int local_port, int nmax_connections, Logger logger) throws IOException {
 		this.nmax_connections=nmax_connections;
 		this.logger=logger;
-		connections=new Hashtable();
+		connections=new LinkedHashMap(16,0.75f,true);
 		this_conn_listener=new SipTransportConnectionListener() {
 			public void onReceivedMessage(SipTransportConnection conn, SipMessage msg) {
 				processReceivedMessage(conn,msg);
@@ -80,6 +104,7 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 				processConnectionTerminated(conn,error);
 			}
 		};
+		setIdleTimeout(SipStack.connection_idle_timeout);
 	}
 
 
@@ -105,6 +130,56 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 	}
 
 
+	/** Sets the idle timeout.
+	  * Connections that neither send nor receive data for longer than this time are closed.
+	  * @param idle_timeout the maximum idle time in milliseconds (0 means that connections never expire) */ 
+	public void setIdleTimeout(long idle_timeout) {
+		Timer old_timer;
+		synchronized (connections) {
+			this.idle_timeout=idle_timeout;
+			old_timer=reaper_timer;
+			reaper_timer=null;
+			if (idle_timeout>0) startReaperTimer();
+		}
+		// the timer is halted outside the lock, since the timer callback also acquires it
+		if (old_timer!=null) old_timer.halt();
+	}
+
+
+	/** Gets the idle timeout.
+	  * @return the maximum idle time in milliseconds (0 means that connections never expire) */ 
+	public long getIdleTimeout() {
+		return idle_timeout;
+	}
+
+
+	/** Gets the number of active connections.
+	  * @return the number of connections */ 
+	public int getConnectionCount() {
+		synchronized (connections) {
+			return connections.size();
+		}
+	}
+
+
+	/** Gets the number of connections that have been removed since the maximum number of connections was reached.
+	  * @return the number of evicted connections */ 
+	public long getEvictedCount() {
+		synchronized (connections) {
+			return evicted_count;
+		}
+	}
+
+
+	/** Gets the number of connections that have been removed since they were idle.
+	  * @return the number of idle connections that have been closed */ 
+	public long getReapedCount() {
+		synchronized (connections) {
+			return reaped_count;
+		}
+	}
+
+
 	/** Gets protocol type */ 
 	abstract public String getProtocol();
 
@@ -136,53 +211,57 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 	  * @return Returns the id of the used connection for CO transport, or null for CL transport. */      
 	public ConnectionId sendMessage(SipMessage msg, IpAddress dest_ipaddr, int dest_port, int ttl) throws IOException {
 		ConnectionId connection_id=new ConnectionId(getProtocol(),dest_ipaddr,dest_port);
+		SipTransportConnection conn=getConnection(connection_id);
+		if (conn!=null)
+		try {
+			log(LogLevel.DEBUG,"sending data through already active connection "+conn);
+			//conn.sendMessage(msg);
+			sendMessage(conn,msg);
+			return connection_id;
+		}
+		catch (Exception e) {
+			log(LogLevel.INFO,e);
+			log(LogLevel.DEBUG,"error using previous connection with connection-id "+connection_id);
+			removeConnection(connection_id);
+		}
 		// BEGIN SYNCHRONIZATION
 		synchronized (connections) {
-			
-			if (connections.containsKey(connection_id))
-			try {
-				log(LogLevel.DEBUG,"already active connection found for connection-id "+connection_id);
-				SipTransportConnection conn=(SipTransportConnection)connections.get(connection_id);
-				log(LogLevel.DEBUG,"sending data through already active connection "+conn);
-				//conn.sendMessage(msg);
-				sendMessage(conn,msg);
-				return connection_id;
-			}
-			catch (Exception e) {
-				log(LogLevel.INFO,e);
-				log(LogLevel.DEBUG,"error using previous connection with connection-id "+connection_id);
-				removeConnection(connection_id);
-			}
-			// no active connection
-			log(LogLevel.DEBUG,"no active connection for "+connection_id);
-			if (!manual) {
+			// look again, since another thread may have opened a connection in the meantime
+			conn=(SipTransportConnection)connections.get(connection_id);
+			if (conn==null) {
+				// no active connection
+				log(LogLevel.DEBUG,"no active connection for "+connection_id);
+				if (manual) {
+					// MANUAL CONN MODE
+					log(LogLevel.DEBUG,"only manual connections: message has not been sent");
+					return null;
+				}
+				// else
 				// AUTOMATIC CONN MODE
 				log(LogLevel.DEBUG,"open "+getProtocol()+" connection to "+dest_ipaddr+":"+dest_port);
 				try {
-					SipTransportConnection conn=addConnection(dest_ipaddr,dest_port);
-					if (conn!=null) {
-						log(LogLevel.DEBUG,"sending data through connection "+conn);
-						//conn.sendMessage(msg);
-						sendMessage(conn,msg);
-						return new ConnectionId(conn);
-					}
-					else {
-						log(LogLevel.DEBUG,"null connection: message has not been sent");
-						return null;
-					}
+					conn=addConnection(dest_ipaddr,dest_port);
 				}
 				catch (Exception e) {
 					log(LogLevel.DEBUG,e);
 					return null;
 				}
-			}
-			else {
-				// MANUAL CONN MODE
-				log(LogLevel.DEBUG,"only manual connections: message has not been sent");
-				return null;
+				if (conn==null) {
+					log(LogLevel.DEBUG,"null connection: message has not been sent");
+					return null;
+				}
 			}
 		}
 		// END SYNCHRONIZATION      
+		try {
+			log(LogLevel.DEBUG,"sending data through connection "+conn);
+			sendMessage(conn,msg);
+			return new ConnectionId(conn);
+		}
+		catch (Exception e) {
+			log(LogLevel.DEBUG,e);
+			return null;
+		}
 	}
 
 
@@ -196,20 +275,27 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 			throw new IOException("null connection-id");
 		}
 		// else
-		// BEGIN SYNCHRONIZATION
+		SipTransportConnection conn=getConnection(connection_id);
+		if (conn==null) {
+			throw new IOException("no active connection found matching connection-id "+connection_id);
+		}
+		// else
+		//conn.sendMessage(msg);
+		sendMessage(conn,msg);
+		return conn;
+	}
+
+
+	/** Gets an active connection, and marks it as the most recently used one.
+	  * @param connection_id the connection-id
+	  * @return the connection, or null if no active connection is found */
+	private SipTransportConnection getConnection(ConnectionId connection_id) {
+		SipTransportConnection conn;
 		synchronized (connections) {
-			
-			if (!connections.containsKey(connection_id)) {
-				throw new IOException("no active connection found matching connection-id "+connection_id);
-			}
-			// else
-			log(LogLevel.DEBUG,"active connection found matching "+connection_id);
-			SipTransportConnection conn=(SipTransportConnection)connections.get(connection_id);
-			//conn.sendMessage(msg);
-			sendMessage(conn,msg);
-			return conn;
+			conn=(SipTransportConnection)connections.get(connection_id);
 		}
-		// END SYNCHRONIZATION      
+		if (conn!=null) log(LogLevel.DEBUG,"active connection found matching "+connection_id);
+		return conn;
 	}
 
 
@@ -227,10 +313,12 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 		// close all connections
 		if (connections!=null) {
 			log(LogLevel.TRACE,"connections are going down");
-			for (Enumeration e=connections.elements(); e.hasMoreElements(); ) {
-				SipTransportConnection c=(SipTransportConnection)e.nextElement();
-				c.halt();
+			setIdleTimeout(0);
+			Vector conns;
+			synchronized (connections) {
+				conns=new Vector(connections.values());
 			}
+			for (int i=0; i<conns.size(); i++) ((SipTransportConnection)conns.elementAt(i)).halt();
 			//connections=null;
 		}
 		listener=null;
@@ -247,7 +335,13 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 	protected void processConnectionTerminated(SipTransportConnection conn, Exception error) {
 		//System.out.println("DEBUG: SipTransportCO: connection terminated");
 		ConnectionId connection_id=new ConnectionId(conn);
-		removeConnection(connection_id);
+		// remove it only if it has not been already replaced by a new connection
+		boolean active;
+		synchronized (connections) {
+			active=(connections.get(connection_id)==conn);
+			if (active) connections.remove(connection_id);
+		}
+		if (active) conn.halt();
 		log(LogLevel.INFO,"connection "+conn+" terminated");
 		if (error!=null) log(LogLevel.INFO,error);
 		if (listener!=null) listener.onTransportConnectionTerminated(this,new SocketAddress(conn.getRemoteAddress(),conn.getRemotePort()),error);
@@ -266,9 +360,11 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 	}
 
 
-	/** Adds a new transport connection. */ 
+	/** Adds a new transport connection.
+	  * If the maximum number of connections has been reached, the least recently used connection is removed. */ 
 	public void addConnection(SipTransportConnection conn) {
 		ConnectionId connection_id=new ConnectionId(conn);
+		SipTransportConnection old_conn=null;
 		// BEGIN SYNCHRONIZATION
 		synchronized (connections) {
 			
@@ -276,55 +372,94 @@ public abstract class SipTransportCO implements SipTransport/*, SipTransportConn
 				// remove the previous connection
 				log(LogLevel.INFO,"trying to add the already established connection "+connection_id);
 				log(LogLevel.INFO,"connection "+connection_id+" will be replaced");
-				SipTransportConnection old_conn=(SipTransportConnection)connections.get(connection_id);
-				old_conn.halt();
-				connections.remove(connection_id);
+				old_conn=(SipTransportConnection)connections.remove(connection_id);
 			}
 			else
-			if (connections.size()>=nmax_connections) {
+			if (connections.size()>=nmax_connections && connections.size()>0) {
 				// remove the older unused connection
 				log(LogLevel.INFO,"reached the maximum number of connection: removing the older unused connection");
-				long older_time=System.currentTimeMillis();
-				ConnectionId older_id=null;
-				for (Enumeration e=connections.elements(); e.hasMoreElements(); ) {
-					SipTransportConnection co=(SipTransportConnection)e.nextElement();
-					if (co.getLastTimeMillis()<older_time) older_id=new ConnectionId(co);
-				}
-				if (older_id!=null) removeConnection(older_id);
+				old_conn=removeLeastRecentlyUsed();
+				evicted_count++;
 			}
 			connections.put(connection_id,conn);
 			conn.setListener(this_conn_listener);
-			//connection_id=new ConnectionId(conn);
-			//conn=(SipTransportConnection)connections.get(connection_id);
-			// DEBUG log:
-			log(LogLevel.TRACE,"active connenctions:");
-			for (Enumeration e=connections.keys(); e.hasMoreElements(); ) {
-				ConnectionId id=(ConnectionId)e.nextElement();
-				log(LogLevel.TRACE,"connection-id="+id+": "+((SipTransportConnection)connections.get(id)).toString());
-			}
+			log(LogLevel.TRACE,"active connenctions: "+connections.size());
 		}
 		// END SYNCHRONIZATION      
+		if (old_conn!=null) old_conn.halt();
+	}
+
+
+	/** Removes the least recently used connection from the table of active connections.
+	  * Among the first {@link #EVICTION_SAMPLES} connections in use order, the one with the oldest last activity time is chosen,
+	  * since connections are also used for receiving messages without being looked up in the table.
+	  * <p>
+	  * It must be called while holding the lock on the connection table.
+	  * @return the removed connection */ 
+	private SipTransportConnection removeLeastRecentlyUsed() {
+		Iterator i=connections.entrySet().iterator();
+		Map.Entry older_entry=(Map.Entry)i.next();
+		long older_time=((SipTransportConnection)older_entry.getValue()).getLastTimeMillis();
+		for (int n=1; n<EVICTION_SAMPLES && i.hasNext(); n++) {
+			Map.Entry entry=(Map.Entry)i.next();
+			long last_time=((SipTransportConnection)entry.getValue()).getLastTimeMillis();
+			if (last_time<older_time) {
+				older_entry=entry;
+				older_time=last_time;
+			}
+		}
+		connections.remove(older_entry.getKey());
+		return (SipTransportConnection)older_entry.getValue();
 	}
 
  
 	/** Removes a transport connection */ 
 	public void removeConnection(ConnectionId connection_id) {
+		SipTransportConnection conn;
 		// BEGIN SYNCHRONIZATION
 		synchronized (connections) {
-			
-			if (connections.containsKey(connection_id)) {
-				SipTransportConnection conn=(SipTransportConnection)connections.get(connection_id);
-				connections.remove(connection_id);
-				conn.halt();
-				// DEBUG log:
-				log(LogLevel.TRACE,"active connenctions:");
-				for (Enumeration e=connections.elements(); e.hasMoreElements(); ) {
-					SipTransportConnection co=(SipTransportConnection)e.nextElement();
-					log(LogLevel.TRACE,"conn "+co.toString());
+			conn=(SipTransportConnection)connections.remove(connection_id);
+			if (conn!=null) log(LogLevel.TRACE,"active connenctions: "+connections.size());
+		}
+		// END SYNCHRONIZATION
+		if (conn!=null) conn.halt();
+	}
+
+
+	/** Starts the timer for removing idle connections.
+	  * It must be called while holding the lock on the connection table. */ 
+	private void startReaperTimer() {
+		reaper_timer=new Timer(idle_timeout/2+1,new TimerListener() {
+			public void onTimeout(Timer t) {
+				processReaperTimeout(t);
+			}
+		});
+		reaper_timer.start(true);
+	}
+
+
+	/** When the reaper timer expires. Removes all idle connections. */ 
+	private void processReaperTimeout(Timer t) {
+		Vector idle_conns=new Vector();
+		synchronized (connections) {
+			if (t!=reaper_timer) return;
+			// else
+			long expire_time=System.currentTimeMillis()-idle_timeout;
+			for (Iterator i=connections.values().iterator(); i.hasNext(); ) {
+				SipTransportConnection co=(SipTransportConnection)i.next();
+				if (co.getLastTimeMillis()<expire_time) {
+					i.remove();
+					idle_conns.addElement(co);
 				}
 			}
+			reaped_count+=idle_conns.size();
+			startReaperTimer();
+		}
+		for (int i=0; i<idle_conns.size(); i++) {
+			SipTransportConnection co=(SipTransportConnection)idle_conns.elementAt(i);
+			log(LogLevel.INFO,"connection "+co+" idle for more than "+idle_timeout+"ms: closed");
+			co.halt();
 		}
-		// END SYNCHRONIZATION
 	}
 
 
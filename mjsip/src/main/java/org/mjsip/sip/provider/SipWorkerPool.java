@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.provider;
+
+
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+
+/** SipWorkerPool runs tasks on a fixed set of single-threaded workers, selected by a key.
+  * <p>
+  * All tasks with the same key (e.g. the Call-ID of a SIP message) are run by the same worker,
+  * in the same order they have been submitted, while tasks with different keys can run in parallel.
+  * <p>
+  * Each worker has a bounded queue; when it is full, new tasks for that worker are discarded.
+  */
+public class SipWorkerPool {
+	
+	/** Workers */
+	ThreadPoolExecutor[] workers;
+
+	/** Counter of discarded tasks */
+	AtomicLong dropped=new AtomicLong(0);
+
+
+
+	/** Creates a new SipWorkerPool.
+	  * @param nworkers the number of workers
+	  * @param queue_size the maximum number of tasks waiting in the queue of each worker */
+	public SipWorkerPool(int nworkers, int queue_size) {
+		workers=new ThreadPoolExecutor[nworkers];
+		for (int i=0; i<nworkers; i++) {
+			final String name="sip-worker-"+i;
+			workers[i]=new ThreadPoolExecutor(1,1,0,TimeUnit.MILLISECONDS,new ArrayBlockingQueue(queue_size),new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t=new Thread(r,name);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+
+	/** Gets the number of workers. */
+	public int getWorkers() {
+		return workers.length;
+	}
+
+
+	/** Runs a task.
+	  * @param key the key that selects the worker; tasks with the same key are run sequentially
+	  * @param task the task
+	  * @return true if the task has been queued, false if it has been discarded because the queue is full or the pool has been halted */
+	public boolean execute(String key, Runnable task) {
+		int hash=(key!=null)? key.hashCode() : 0;
+		// spread the hash bits, since Call-IDs often differ only in their first characters
+		hash^=(hash>>>16);
+		ThreadPoolExecutor worker=workers[(hash&0x7fffffff)%workers.length];
+		try {
+			worker.execute(task);
+			return true;
+		}
+		catch (RejectedExecutionException e) {
+			dropped.incrementAndGet();
+			return false;
+		}
+	}
+
+
+	/** Gets the number of tasks waiting in the queue of a given worker.
+	  * @param i the worker index */
+	public int getQueueDepth(int i) {
+		return workers[i].getQueue().size();
+	}
+
+
+	/** Gets the total number of tasks waiting in the worker queues. */
+	public int getQueueDepth() {
+		int depth=0;
+		for (int i=0; i<workers.length; i++) depth+=workers[i].getQueue().size();
+		return depth;
+	}
+
+
+	/** Gets the number of tasks that have been discarded because of full queues. */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+
+	/** Stops all workers. Tasks already queued are still run. */
+	public void halt() {
+		for (int i=0; i<workers.length; i++) workers[i].shutdown();
+	}
+
+
+	/** Gets a String representation of the Object */
+	public String toString() {
+		return "workers="+workers.length+", queued="+getQueueDepth()+", dropped="+getDroppedCount();
+	}
+
+}
@@ -50,7 +50,7 @@ public class TcpTransportConnection implements SipTransportConnection/*, TcpConn
 	ConnectionId connection_id;  
 
 	/** The last time that has been used (in milliseconds) */
-	long last_time;
+	volatile long last_time;
 	
 	/** Receiver buffer. */
 	SipMessageBuffer buffer=new SipMessageBuffer();
@@ -177,7 +177,7 @@ public class TcpTransportConnection implements SipTransportConnection/*, TcpConn
 
 		// try to get one or more SIP messages from the buffer    
 		SipMessage msg;
-		while ((msg=getSipMessage())!=null) {
+		while ((msg=buffer.nextSipMessage())!=null) {
 			//System.out.println("DEBUG: TcpTransportConnection: onReceivedData(): msg len: "+msg.getLength());
 			msg.setRemoteAddress(tcp_conn.getRemoteAddress().toString());
 			msg.setRemotePort(tcp_conn.getRemotePort());
@@ -197,16 +197,4 @@ public class TcpTransportConnection implements SipTransportConnection/*, TcpConn
 		this.listener=null;
 	}
 
-
-	/** Tries to get a SIP message from the receiver buffer. */
-	private SipMessage getSipMessage()   {
-		SipMessage msg=null;
-		// skip possible leading CRLF
-		byte b;
-		while (buffer.getLength()>0 && ((b=buffer.byteAt(0))=='\r' || b=='\n')) buffer.skip(1);
-		// try to get a SIP message
-		try {  msg=buffer.parseSipMessage();  } catch (Exception e) {}
-		return msg;
-	}
-
 }
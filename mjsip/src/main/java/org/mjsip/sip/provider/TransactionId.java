@@ -50,16 +50,16 @@ public class TransactionId extends SipId {
 		String call_id=msg.getCallIdHeader().getCallId();
 		ViaHeader top_via=msg.getViaHeader();
 		String branch=null;
-		String sent_by=null;
 		if (top_via!=null) {
 			if (top_via.hasBranch()) branch=top_via.getBranch();
-			sent_by=top_via.getSentBy();
+			else branch=top_via.getSentBy();
 		}
 		CSeqHeader cseqh=msg.getCSeqHeader();
 		long seqn=cseqh.getSequenceNumber();      
 		String method=cseqh.getMethod();
-		// set id
-		id=getTransactionId(uac,call_id,seqn,method,sent_by,branch);
+		if (method.equals(SipMethods.ACK)) method=SipMethods.INVITE;
+		// set id, without building the string value
+		setParts(new String[]{ call_id, "-", Long.toString(seqn), "-", method, "-", (uac)? "client" : "server", "-", branch });
 	}
 
 	/** Creates a new TransactionId.
@@ -26,6 +26,7 @@ package org.mjsip.sip.provider;
 import org.zoolu.net.SocketAddress;
 import org.zoolu.net.UdpPacket;
 import org.zoolu.net.UdpSocket;
+import org.zoolu.util.Threads;
 
 
 
@@ -36,7 +37,7 @@ import org.zoolu.net.UdpSocket;
   * <p>
   * It can be used for both signaling (SIP) or data plane (RTP/UDP). 
   */
-public class UdpKeepAlive extends Thread {
+public class UdpKeepAlive implements Runnable {
 	
 	/** Default udp keep-alive token */
 	public static final byte[] DEFAULT_TOKEN={ (byte)'\r',(byte)'\n' };
@@ -57,7 +58,7 @@ public class UdpKeepAlive extends Thread {
 	protected long expire=0; 
 
 	/** Whether it is running */
-	protected boolean stop=false;
+	protected volatile boolean stop=false;
 
 
 	/** Creates a new UdpKeepAlive daemon */
@@ -154,6 +155,12 @@ public class UdpKeepAlive extends Thread {
 	}
 
 
+	/** Starts running in a new thread (see {@link Threads}). */
+	public void start() {
+		Threads.start(this,"udp-keepalive");
+	}
+
+
 	/** Main thread. */
 	public void run() {
 		try    {
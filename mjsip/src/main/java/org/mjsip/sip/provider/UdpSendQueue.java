@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.provider;
+
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.UdpSocket;
+import org.zoolu.util.LogLevel;
+import org.zoolu.util.Logger;
+import org.zoolu.util.Threads;
+
+
+
+/** UdpSendQueue sends UDP datagrams through a given socket from a dedicated sender thread.
+  * <p>
+  * Datagrams are queued by the callers (e.g. timer threads retransmitting requests, or receiver threads
+  * sending responses) without waiting for the socket, and are sent in batches by the sender thread.
+  * Each datagram is copied into a direct buffer and written through the socket channel, if any.
+  * <p>
+  * The queue is bounded; when it is full, new datagrams are discarded.
+  * <p>
+  * Send failures are counted; the first one is logged, and then at most one every {@link #ERROR_LOG_TIME} milliseconds.
+  */
+public class UdpSendQueue implements Runnable {
+	
+	/** Maximum number of datagrams taken from the queue at once */
+	static final int MAX_BATCH=64;
+
+	/** Maximum time the sender thread waits for new datagrams before checking whether it has been halted (in milliseconds) */
+	static final long POLL_TIME=500;
+
+	/** Send buffer size */
+	static final int BUFFER_SIZE=65535;
+
+	/** Minimum time between two logs of send failures (in milliseconds) */
+	static final long ERROR_LOG_TIME=10000;
+
+	/** UDP socket */
+	UdpSocket socket;
+
+	/** Queue of datagrams to be sent */
+	ArrayBlockingQueue queue;
+
+	/** Send buffer, used only by the sender thread */
+	ByteBuffer buffer=ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/** Counter of discarded datagrams */
+	AtomicLong dropped=new AtomicLong(0);
+
+	/** Counter of datagrams that failed to be sent */
+	AtomicLong errors=new AtomicLong(0);
+
+	/** Whether it has been halted */
+	volatile boolean stop=false;
+
+	/** Logger, or null */
+	Logger logger;
+
+	/** Time of the last logged send failure, used only by the sender thread */
+	long last_error_log=0;
+
+
+
+	/** Queued datagram. */
+	static class Datagram {
+		byte[] data;
+		IpAddress ipaddr;
+		int port;
+
+		Datagram(byte[] data, IpAddress ipaddr, int port) {
+			this.data=data;
+			this.ipaddr=ipaddr;
+			this.port=port;
+		}
+	}
+
+
+
+	/** Creates a new UdpSendQueue, and starts the sender thread.
+	  * @param socket the UDP socket used for sending
+	  * @param queue_size the maximum number of datagrams waiting in the queue */
+	public UdpSendQueue(UdpSocket socket, int queue_size) {
+		this(socket,queue_size,null);
+	}
+
+
+	/** Creates a new UdpSendQueue, and starts the sender thread.
+	  * @param socket the UDP socket used for sending
+	  * @param queue_size the maximum number of datagrams waiting in the queue
+	  * @param logger the logger of send failures, or null */
+	public UdpSendQueue(UdpSocket socket, int queue_size, Logger logger) {
+		this.socket=socket;
+		this.logger=logger;
+		queue=new ArrayBlockingQueue(queue_size);
+		Thread thread=Threads.newThread(this,"udp-sender");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+	/** Queues a datagram.
+	  * @param data the datagram payload; it must not be modified after it has been queued
+	  * @param ipaddr the destination address
+	  * @param port the destination port
+	  * @throws IOException if the queue is full or the sender has been halted */
+	public void send(byte[] data, IpAddress ipaddr, int port) throws IOException {
+		if (stop) throw new IOException("UDP sender halted");
+		// else
+		if (!queue.offer(new Datagram(data,ipaddr,port))) {
+			dropped.incrementAndGet();
+			throw new IOException("UDP send queue full: datagram to "+ipaddr+":"+port+" discarded");
+		}
+	}
+
+
+	/** Gets the number of datagrams waiting in the queue. */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+
+	/** Gets the total number of datagrams that have been discarded since the queue was full. */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+
+	/** Gets the total number of datagrams that failed to be sent. */
+	public long getErrorCount() {
+		return errors.get();
+	}
+
+
+	/** Stops running. Datagrams still in the queue are discarded. */
+	public void halt() {
+		stop=true;
+	}
+
+
+	/** Sender thread. */
+	public void run() {
+		ArrayList batch=new ArrayList(MAX_BATCH);
+		try {
+			while (!stop) {
+				Datagram d=(Datagram)queue.poll(POLL_TIME,TimeUnit.MILLISECONDS);
+				if (d==null) continue;
+				// else
+				batch.add(d);
+				queue.drainTo(batch,MAX_BATCH-1);
+				for (int i=0; i<batch.size() && !stop; i++) {
+					d=(Datagram)batch.get(i);
+					try {
+						buffer.clear();
+						buffer.put(d.data);
+						buffer.flip();
+						socket.send(buffer,d.ipaddr,d.port);
+					}
+					catch (Exception e) {
+						long n=errors.incrementAndGet();
+						long now=System.currentTimeMillis();
+						if (n==1 || now-last_error_log>=ERROR_LOG_TIME) {
+							last_error_log=now;
+							log(LogLevel.WARNING,"failed to send a datagram to "+d.ipaddr+":"+d.port+" ("+n+" send failures so far): "+e);
+						}
+					}
+				}
+				batch.clear();
+			}
+		}
+		catch (InterruptedException e) {}
+		queue.clear();
+	}
+
+
+	/** Gets a String representation of this object. */
+	public String toString() {
+		return "udp-sender["+socket+"] queue="+getQueueDepth()+" dropped="+getDroppedCount();
+	}
+
+
+	// ****************************** Logs *****************************
+
+	/** Adds a new string to the default log. */
+	private void log(LogLevel level, String str) {
+		if (logger!=null) logger.log(level,"UdpSendQueue: "+str);
+	}
+
+}
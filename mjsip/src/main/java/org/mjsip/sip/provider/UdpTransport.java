@@ -28,12 +28,14 @@ package org.mjsip.sip.provider;
 import java.io.IOException;
 
 import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.message.SipMessageFactory;
 import org.zoolu.net.IpAddress;
 import org.zoolu.net.UdpPacket;
 import org.zoolu.net.UdpProvider;
 import org.zoolu.net.UdpProviderListener;
 import org.zoolu.net.UdpSocket;
 import org.zoolu.util.ByteUtils;
+import org.zoolu.util.Logger;
 
 
 
@@ -52,9 +54,24 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	/** UDP protocol type */
 	public static final String PROTO_UDP="udp";
 
-	/** UDP provider */
+	/** UDP provider, used for sending */
 	UdpProvider udp_provider;  
 
+	/** All UDP providers (receivers), including the one used for sending */
+	UdpProvider[] udp_providers;  
+
+	/** Number of running UDP providers */
+	int nrunning=0;
+
+	/** First error that caused an UDP provider to terminate */
+	Exception termination_error=null;
+
+	/** Queue of outgoing datagrams, or null if messages are sent by the calling thread */
+	UdpSendQueue send_queue=null;
+
+	/** Per-source rate limiter applied to received datagrams, or null */
+	RateLimiter rate_limiter=null;
+
 	/** SipTransport listener */
 	SipTransportListener listener=null;   
 
@@ -78,6 +95,39 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	}
 
 
+	/** Creates a new UdpTransport with more receiver threads.
+	  * Each receiver parses the received messages and passes them to the transport listener, in parallel with the other receivers.
+	  * @param local_port the local port
+	  * @param host_ipaddr the local address (null for binding to all interfaces)
+	  * @param nreceivers the number of receivers
+	  * @param reuse_port whether each receiver uses its own socket bound to the same port with SO_REUSEPORT (if supported),
+	  * instead of sharing a single socket.
+	  * With only one receiver and <i>reuse_port</i> set to false, it is equivalent to {@link #UdpTransport(int,IpAddress)} */ 
+	public UdpTransport(int local_port, IpAddress host_ipaddr, int nreceivers, boolean reuse_port) throws IOException {
+		if (nreceivers<=1 && !reuse_port) {
+			init(local_port,host_ipaddr);
+			return;
+		}
+		// else
+		if (nreceivers<1) nreceivers=1;
+		if (reuse_port && !UdpSocket.isReusePortSupported()) reuse_port=false;
+		UdpSocket[] sockets=new UdpSocket[nreceivers];
+		try {
+			for (int i=0; i<nreceivers; i++) {
+				if (i==0 || reuse_port) sockets[i]=new UdpSocket(local_port,host_ipaddr,reuse_port);
+				else sockets[i]=sockets[0];
+				// other sockets are bound to the actual port of the first one
+				if (i==0) local_port=sockets[0].getLocalPort();
+			}
+		}
+		catch (IOException e) {
+			for (int i=0; i<nreceivers; i++) if (sockets[i]!=null) sockets[i].close();
+			throw e;
+		}
+		init(sockets);
+	}
+
+
 	/** Inits the UdpTransport */ 
 	private void init(int local_port, IpAddress host_ipaddr) throws IOException {
 		UdpSocket socket=(host_ipaddr==null)? new UdpSocket(local_port) : new UdpSocket(local_port,host_ipaddr);
@@ -88,7 +138,13 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 
 	/** Inits the UdpTransport */ 
 	private void init(UdpSocket socket) {
-		if (udp_provider!=null) udp_provider.halt();
+		init(new UdpSocket[]{ socket });
+	}
+
+
+	/** Inits the UdpTransport */ 
+	private void init(UdpSocket[] sockets) {
+		if (udp_providers!=null) halt();
 		// start udp
 		UdpProviderListener this_udp_provider_listener=new UdpProviderListener() {
 			public void onReceivedPacket(UdpProvider udp, UdpPacket packet) {
@@ -98,7 +154,10 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 				processServiceTerminated(udp,error);
 			}
 		};
-		udp_provider=new UdpProvider(socket,this_udp_provider_listener);
+		nrunning=sockets.length;
+		udp_providers=new UdpProvider[sockets.length];
+		for (int i=0; i<sockets.length; i++) udp_providers[i]=new UdpProvider(sockets[i],this_udp_provider_listener);
+		udp_provider=udp_providers[0];
 	}
 
 
@@ -115,6 +174,48 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	}
 
 
+	/** Sets the queue of outgoing datagrams.
+	  * Messages are then queued and sent by a dedicated sender thread, instead of being sent by the thread that calls
+	  * {@link #sendMessage(SipMessage,IpAddress,int,int)}.
+	  * @param queue_size the maximum number of datagrams waiting in the queue (0 for sending from the calling thread) */
+	public void setSendQueue(int queue_size) {
+		setSendQueue(queue_size,null);
+	}
+
+
+	/** Sets the queue of outgoing datagrams.
+	  * @param queue_size the maximum number of datagrams waiting in the queue (0 for sending from the calling thread)
+	  * @param logger the logger of send failures, or null
+	  * @see #setSendQueue(int) */
+	public void setSendQueue(int queue_size, Logger logger) {
+		if (send_queue!=null) send_queue.halt();
+		send_queue=(queue_size>0 && udp_provider!=null)? new UdpSendQueue(udp_provider.getUdpSocket(),queue_size,logger) : null;
+	}
+
+
+	/** Gets the queue of outgoing datagrams.
+	  * @return the send queue, or null if messages are sent by the calling thread */
+	public UdpSendQueue getSendQueue() {
+		return send_queue;
+	}
+
+
+	/** Sets the per-source rate limiter.
+	  * Received datagrams are checked against the limiter by using their source address, before they are parsed;
+	  * refused datagrams are discarded, or, with {@link RateLimiter#ACTION_REJECT}, refused requests are rejected with a 503 response.
+	  * @param rate_limiter the rate limiter (null for not limiting received datagrams) */
+	public void setRateLimiter(RateLimiter rate_limiter) {
+		this.rate_limiter=rate_limiter;
+	}
+
+
+	/** Gets the per-source rate limiter.
+	  * @return the rate limiter, or null if received datagrams are not limited */
+	public RateLimiter getRateLimiter() {
+		return rate_limiter;
+	}
+
+
 	/** Sets transport listener */
 	public void setListener(SipTransportListener listener) {
 		this.listener=listener;
@@ -129,21 +230,36 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	  * If the transport protocol is Connection Less (CL) the message is simply sent to the remote point.
 	  * @return Returns the id of the used connection for CO transport, or null for CL transport. */      
 	public ConnectionId sendMessage(SipMessage msg, IpAddress dest_ipaddr, int dest_port, int ttl) throws IOException {
+		sendData(msg.getBytes(),dest_ipaddr,dest_port);
+		return null;
+	}
+
+
+	/** Sends an already encoded message to the given remote address and port.
+	  * @param data the encoded message
+	  * @param dest_ipaddr the remote address
+	  * @param dest_port the remote port */      
+	public void sendData(byte[] data, IpAddress dest_ipaddr, int dest_port) throws IOException {
+		if (send_queue!=null) {
+			send_queue.send(data,dest_ipaddr,dest_port);
+		}
+		else
 		if (udp_provider!=null) {
-			byte[] data=msg.getBytes();
 			UdpPacket packet=new UdpPacket(data,data.length);
 			// if (ttl>0 && multicast_address) do something?
 			packet.setIpAddress(dest_ipaddr);
 			packet.setPort(dest_port);
 			udp_provider.send(packet);
 		}
-		return null;
 	}
 
 
 	/** Stops running */
 	public void halt() {
-		if (udp_provider!=null) udp_provider.halt();
+		if (send_queue!=null) send_queue.halt();
+		if (udp_providers!=null) {
+			for (int i=0; i<udp_providers.length; i++) udp_providers[i].halt();
+		}
 	}
 
 
@@ -159,14 +275,19 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	/** When a new UDP datagram is received. */
 	private void processReceivedPacket(UdpProvider udp, UdpPacket packet) {
 		if (ByteUtils.match(packet.getData(),packet.getOffset(),packet.getLength(),PING,0,PING.length)) {
-			if (udp_provider!=null)
-			try {  udp_provider.send(new UdpPacket(PONG,packet.getIpAddress(),packet.getPort()));  } catch (Exception e) {};
+			try {  udp.send(new UdpPacket(PONG,packet.getIpAddress(),packet.getPort()));  } catch (Exception e) {};
 		}
 		else
 		if (ByteUtils.match(packet.getData(),packet.getOffset(),packet.getLength(),PONG,0,PONG.length)) {
 			// do something..
 		}
 		else {
+			RateLimiter rate_limiter=this.rate_limiter;
+			if (rate_limiter!=null && !rate_limiter.admit(packet.getIpAddress().toString())) {
+				if (rate_limiter.getAction()==RateLimiter.ACTION_REJECT) rejectRequest(packet);
+				return;
+			}
+			// else
 			SipMessage msg=new SipMessage(packet.getData(),packet.getOffset(),packet.getLength());
 			msg.setRemoteAddress(packet.getIpAddress().toString());
 			msg.setRemotePort(packet.getPort());
@@ -176,11 +297,34 @@ public class UdpTransport implements SipTransport/*, UdpProviderListener*/ {
 	}   
 
 
+	/** Statelessly rejects a received request with a 503 "Service Unavailable" response.
+	  * The response is sent back to the source address and port of the datagram. */
+	private void rejectRequest(UdpPacket packet) {
+		try {
+			SipMessage req=new SipMessage(packet.getData(),packet.getOffset(),packet.getLength());
+			if (!req.isRequest() || req.isAck()) return;
+			// else
+			SipMessage resp=SipMessageFactory.createResponse(req,503,null,null);
+			sendData(resp.getBytes(),packet.getIpAddress(),packet.getPort());
+		}
+		catch (Exception e) {}
+	}   
+
+
 	/** When DatagramService stops receiving UDP datagrams. */
 	private void processServiceTerminated(UdpProvider udp, Exception error) {
-		if (listener!=null) listener.onTransportTerminated(this,error);
-		UdpSocket socket=udp.getUdpSocket();
-		if (socket!=null) try { socket.close(); } catch (Exception e) {}
+		synchronized (this) {
+			if (error!=null && termination_error==null) termination_error=error;
+			// the transport terminates when all receivers are terminated, since they may share the same socket 
+			if (--nrunning>0) return;
+		}
+		// else
+		if (listener!=null) listener.onTransportTerminated(this,termination_error);
+		for (int i=0; i<udp_providers.length; i++) {
+			UdpSocket socket=udp_providers[i].getUdpSocket();
+			if (socket!=null) try { socket.close(); } catch (Exception e) {}
+		}
+		if (send_queue!=null) send_queue.halt();
 		this.udp_provider=null;
 		this.listener=null;
 	}   
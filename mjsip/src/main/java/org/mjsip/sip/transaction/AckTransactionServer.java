@@ -32,13 +32,15 @@ import org.mjsip.sip.provider.SipProviderListener;
 import org.mjsip.sip.provider.SipStack;
 import org.mjsip.sip.provider.TransactionServerId;
 import org.zoolu.util.LogLevel;
-import org.zoolu.util.Timer;
 
 
 
 /** ACK server transaction should follow an INVITE server transaction within an INVITE Dialog in a SIP UAC.
   * The AckTransactionServer sends the final response message and retransmits it
   * several times until the method terminate() is called or the trasaction timeout fires.
+  * <p>
+  * In case of unreliable transport, retransmissions and transaction timeout are handled by the shared
+  * {@link Invite2xxRetransmitter}.
   */ 
 public class AckTransactionServer extends Transaction implements SipProviderListener {
 	
@@ -48,10 +50,10 @@ public class AckTransactionServer extends Transaction implements SipProviderList
 	/** last response message */
 	SipMessage response;
 	
-	/** retransmission timeout */
-	Timer retransmission_to;
-	/** transaction timeout */
-	Timer transaction_to;
+	/** Retransmitter of the response, or null */
+	Invite2xxRetransmitter retransmitter=null;
+
+	// timeouts: retransmission timeout and transaction timeout
 
 
 	/** Creates a new AckTransactionServer.
@@ -83,16 +85,10 @@ public class AckTransactionServer extends Transaction implements SipProviderList
 		this.response=resp;
 		response.setConnectionId(connection_id);
 		transaction_id=new TransactionServerId(invite);
-		// init the timer just to set the timeout value and label, without listener (never started)
-		transaction_to=new Timer(SipStack.transaction_timeout,null);
-		retransmission_to=new Timer(SipStack.retransmission_timeout,null);
+		// just set the timeout values (not started)
+		setTimeout(TRANSACTION_TIMEOUT,SipStack.transaction_timeout);
+		setTimeout(RETRANSMISSION_TIMEOUT,SipStack.retransmission_timeout);
 		// (CHANGE-040905) now timeouts are started when method respond() is called
-		//transaction_to=new Timer(transaction_to.getTime(),this);
-		//transaction_to.start();
-		//if (connection_id==null)
-		//{  retransmission_to=new Timer(retransmission_to.getTime(),this);
-		//   retransmission_to.start();
-		//}
 		log(LogLevel.INFO,"new transaction-id: "+transaction_id.toString());
 	}    
 
@@ -103,11 +99,19 @@ public class AckTransactionServer extends Transaction implements SipProviderList
 		// (CHANGE-071209) add sip provider listener
 		sip_provider.addSelectiveListener(transaction_id,this);
 		//transaction_id=null; // it is not required since no SipProviderListener is implemented 
-		// (CHANGE-040905) now timeouts are started when method respond() is called
-		transaction_to.start();
-		if (connection_id==null) retransmission_to.start();
-
 		sip_provider.sendMessage(response); 
+		// in case of unreliable transport, the response is passed to the shared retransmitter
+		if (connection_id==null) {
+			Invite2xxRetransmitter r=Invite2xxRetransmitter.getDefaultRetransmitter();
+			if (r.add(sip_provider,response,this)) {
+				retransmitter=r;
+				return;
+			}
+		}
+		// else
+		// (CHANGE-040905) now timeouts are started when method respond() is called
+		startTimeout(TRANSACTION_TIMEOUT);
+		if (connection_id==null) startTimeout(RETRANSMISSION_TIMEOUT);
 	}  
 
 
@@ -129,23 +133,19 @@ public class AckTransactionServer extends Transaction implements SipProviderList
 	}
 
 
-	/** From TimerListener. When an active timer expires.
-	  */
-	public void onTimeout(Timer to) {
+	/** When a transaction timeout expires. */
+	protected void processTimeout(int timeout) {
 		try {
-			if (to.equals(retransmission_to) && statusIs(STATE_PROCEEDING)) {
+			if (timeout==RETRANSMISSION_TIMEOUT && statusIs(STATE_PROCEEDING)) {
 				log(LogLevel.INFO,"Retransmission timeout expired");
-				long timeout=2*retransmission_to.getTime();
-				if (timeout>SipStack.max_retransmission_timeout) timeout=SipStack.max_retransmission_timeout;
-				retransmission_to=new Timer(timeout,this);
-				retransmission_to.start();
+				long time=2*getTimeout(RETRANSMISSION_TIMEOUT);
+				if (time>SipStack.max_retransmission_timeout) time=SipStack.max_retransmission_timeout;
+				startTimeout(RETRANSMISSION_TIMEOUT,time);
 				sip_provider.sendMessage(response);
 			}  
-			if (to.equals(transaction_to) && statusIs(STATE_PROCEEDING)) {
+			if (timeout==TRANSACTION_TIMEOUT && statusIs(STATE_PROCEEDING)) {
 				log(LogLevel.INFO,"Transaction timeout expired");
 				doTerminate();
-				//retransmission_to=null;
-				//transaction_to=null;
 				if (transaction_listener!=null) transaction_listener.onTransAckTimeout(this);
 			}  
 		}
@@ -158,8 +158,6 @@ public class AckTransactionServer extends Transaction implements SipProviderList
 	public void terminate() {
 		doTerminate();
 		transaction_listener=null;
-		//retransmission_to=null;
-		//transaction_to=null;
   }
 
 
@@ -169,10 +167,7 @@ public class AckTransactionServer extends Transaction implements SipProviderList
 	protected void doTerminate() {
 		if (!statusIs(STATE_TERMINATED)) {
 			changeStatus(STATE_TERMINATED);
-			if (retransmission_to!=null) retransmission_to.halt();
-			transaction_to.halt();  
-			//retransmission_to=null;
-			//transaction_to=null;
+			if (retransmitter!=null) retransmitter.remove(response);
 			sip_provider.removeSelectiveListener(transaction_id);
 		}
 	}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.mjsip.sip.transaction;
+
+
+
+import java.util.Hashtable;
+
+import org.mjsip.sip.message.SipMessage;
+import org.mjsip.sip.provider.SipProvider;
+import org.mjsip.sip.provider.SipStack;
+import org.zoolu.net.IpAddress;
+import org.zoolu.net.SocketAddress;
+import org.zoolu.util.Timer;
+import org.zoolu.util.TimingWheel;
+
+
+
+/** Invite2xxRetransmitter retransmits 2xx responses to INVITE requests until the corresponding ACK is received
+  * (RFC 3261, section 13.3.1.4).
+  * <p>
+  * A single table is shared by all calls. Responses are kept already encoded, together with their resolved destination,
+  * and are keyed by Call-ID, CSeq sequence number, and To tag.
+  * Retransmissions start with interval T1 and are doubled up to T2;
+  * they stop when the response is removed (the ACK has been received), or after 64*T1.
+  * Retransmissions are driven by the shared timer scheduler (see {@link Timer#getScheduler(boolean)}).
+  * <p>
+  * Only responses sent through connection-less transport (UDP) are retransmitted.
+  */
+public class Invite2xxRetransmitter {
+	
+	/** Default retransmitter */
+	static Invite2xxRetransmitter default_retransmitter=null;
+
+	/** Pending responses (String key -> Retransmission) */
+	Hashtable responses=new Hashtable();
+
+	/** Total number of retransmissions */
+	long retransmission_count=0;
+
+	/** Number of responses that have not been acknowledged before 64*T1 */
+	long timeout_count=0;
+
+
+
+	/** Pending response. */
+	class Retransmission implements Runnable {
+		
+		/** Key */
+		String key;
+		/** SipProvider */
+		SipProvider sip_provider;
+		/** Encoded response */
+		byte[] data;
+		/** Transport protocol */
+		String proto;
+		/** Destination address */
+		IpAddress dest_ipaddr;
+		/** Destination port */
+		int dest_port;
+		/** AckTransactionServer to be notified when no ACK is received */
+		AckTransactionServer ack_ts;
+		/** Current retransmission interval */
+		long interval;
+		/** Time when retransmissions stop, in milliseconds */
+		long expire;
+		/** Scheduler entry */
+		TimingWheel.Entry entry=new TimingWheel.Entry(this);
+
+		/** When the scheduler entry expires. */
+		public void run() {
+			processRetransmission(this);
+		}
+	}
+
+
+
+	/** Creates a new Invite2xxRetransmitter. */
+	public Invite2xxRetransmitter() {
+	}
+
+
+	/** Gets the default retransmitter, shared by all calls. */
+	public static synchronized Invite2xxRetransmitter getDefaultRetransmitter() {
+		if (default_retransmitter==null) default_retransmitter=new Invite2xxRetransmitter();
+		return default_retransmitter;
+	}
+
+
+	/** Gets the key of a 2xx response or of the corresponding ACK request.
+	  * @param msg the 2xx response or ACK request
+	  * @return the key formed by Call-ID, CSeq sequence number, and To tag, or null if the message has no To tag */
+	public static String getKey(SipMessage msg) {
+		String to_tag=msg.getToHeader().getTag();
+		if (to_tag==null) return null;
+		// else
+		return msg.getCallIdHeader().getCallId()+" "+msg.getCSeqHeader().getSequenceNumber()+" "+to_tag;
+	}
+
+
+	/** Adds a 2xx response that has already been sent for the first time, and starts retransmitting it.
+	  * @param sip_provider the SipProvider used for sending the response
+	  * @param resp the 2xx response
+	  * @param ack_ts the AckTransactionServer to be notified when no ACK is received within 64*T1 (it may be null)
+	  * @return true if the response has been added, false if the response has no To tag or its destination cannot be resolved */
+	public boolean add(SipProvider sip_provider, SipMessage resp, AckTransactionServer ack_ts) {
+		String key=getKey(resp);
+		if (key==null) return false;
+		// else
+		Retransmission r=new Retransmission();
+		r.key=key;
+		r.sip_provider=sip_provider;
+		r.data=resp.getBytes();
+		r.ack_ts=ack_ts;
+		try {
+			SocketAddress dest_soaddr=sip_provider.resolveResponseDestination(resp);
+			r.proto=resp.getViaHeader().getProtocol();
+			r.dest_ipaddr=IpAddress.getByName(dest_soaddr.getAddress().toString());
+			r.dest_port=dest_soaddr.getPort();
+		}
+		catch (Exception e) {
+			return false;
+		}
+		r.interval=SipStack.retransmission_timeout;
+		r.expire=currentTimeMillis()+SipStack.transaction_timeout;
+		synchronized (this) {
+			Retransmission old=(Retransmission)responses.put(key,r);
+			if (old!=null) old.entry.cancel();
+			Timer.getScheduler(Timer.DEFAULT_DAEMON_MODE).schedule(r.entry,r.interval);
+		}
+		return true;
+	}
+
+
+	/** Removes a response, stopping its retransmissions.
+	  * @param msg the 2xx response or the corresponding ACK request
+	  * @return true if a pending response has been removed */
+	public boolean remove(SipMessage msg) {
+		String key=getKey(msg);
+		if (key==null) return false;
+		// else
+		synchronized (this) {
+			Retransmission r=(Retransmission)responses.remove(key);
+			if (r==null) return false;
+			// else
+			r.entry.cancel();
+			return true;
+		}
+	}
+
+
+	/** Gets the number of pending responses. */
+	public int getPendingCount() {
+		return responses.size();
+	}
+
+
+	/** Gets the total number of retransmissions. */
+	public synchronized long getRetransmissionCount() {
+		return retransmission_count;
+	}
+
+
+	/** Gets the number of responses that have not been acknowledged before 64*T1. */
+	public synchronized long getTimeoutCount() {
+		return timeout_count;
+	}
+
+
+	/** Retransmits a response and schedules the next retransmission, or removes it if expired. */
+	private void processRetransmission(Retransmission r) {
+		long now=currentTimeMillis();
+		boolean expired;
+		synchronized (this) {
+			if (responses.get(r.key)!=r) return;
+			// else
+			expired=now>=r.expire;
+			if (expired) {
+				responses.remove(r.key);
+				timeout_count++;
+			}
+			else {
+				retransmission_count++;
+				r.interval=Math.min(2*r.interval,SipStack.max_retransmission_timeout);
+				Timer.getScheduler(Timer.DEFAULT_DAEMON_MODE).schedule(r.entry,Math.min(r.interval,r.expire-now));
+			}
+		}
+		if (expired) {
+			if (r.ack_ts!=null) r.ack_ts.processTimeout(Transaction.TRANSACTION_TIMEOUT);
+		}
+		else r.sip_provider.sendRawData(r.data,r.proto,r.dest_ipaddr,r.dest_port);
+	}
+
+
+	/** Gets the current time in milliseconds, from a monotonic clock. */
+	private static long currentTimeMillis() {
+		return System.nanoTime()/1000000;
+	}
+
+}
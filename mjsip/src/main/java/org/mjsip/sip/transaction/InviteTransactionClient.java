@@ -31,7 +31,6 @@ import org.mjsip.sip.provider.SipProvider;
 import org.mjsip.sip.provider.SipStack;
 import org.mjsip.sip.provider.TransactionClientId;
 import org.zoolu.util.LogLevel;
-import org.zoolu.util.Timer;
 
 
 
@@ -50,12 +49,7 @@ public class InviteTransactionClient extends TransactionClient {
 	/** ack message */
 	SipMessage ack;
 
-	/** retransmission timeout ("Timer A" in RFC 3261) */
-	//Timer retransmission_to;
-	/** transaction timeout ("Timer B" in RFC 3261) */
-	//Timer transaction_to;
-	/** end timeout for invite transactions ("Timer D" in RFC 3261)*/
-	Timer end_to;
+	// timeouts: retransmission timeout ("Timer A" in RFC 3261), transaction timeout ("Timer B"), and end timeout for invite transactions ("Timer D")
 
 
 	// ************************** Costructors **************************
@@ -72,10 +66,10 @@ public class InviteTransactionClient extends TransactionClient {
 		this.invite_tc_listener=listener;
 		this.transaction_id=transaction_id;
 		this.ack=null;
-		// init the timer just to set the timeout value and label, without listener (never started)
-		retransmission_to=new Timer(SipStack.retransmission_timeout,null);
-		transaction_to=new Timer(SipStack.transaction_timeout,null);
-		end_to=new Timer(SipStack.transaction_timeout,null);
+		// just set the timeout values (not started)
+		setTimeout(RETRANSMISSION_TIMEOUT,SipStack.retransmission_timeout);
+		setTimeout(TRANSACTION_TIMEOUT,SipStack.transaction_timeout);
+		setTimeout(END_TIMEOUT,SipStack.transaction_timeout);
 		log(LogLevel.INFO,"new transaction-id: "+transaction_id.toString());
 	}   
 
@@ -86,12 +80,10 @@ public class InviteTransactionClient extends TransactionClient {
 	public void request() {
 		log(LogLevel.TRACE,"start");
 		changeStatus(STATE_TRYING); 
-		transaction_to=new Timer(transaction_to.getTime(),this);
-		transaction_to.start(); 
+		startTimeout(TRANSACTION_TIMEOUT); 
 		sip_provider.addSelectiveListener(transaction_id,this); 
 		connection_id=sip_provider.sendMessage(request);
-		retransmission_to=new Timer(retransmission_to.getTime(),this);
-		retransmission_to.start();
+		startTimeout(RETRANSMISSION_TIMEOUT);
 	}  
 		
 	/** Method derived from interface SipListener.
@@ -102,8 +94,8 @@ public class InviteTransactionClient extends TransactionClient {
 			int code=msg.getStatusLine().getCode();
 			if (code>=100 && code<200 && (statusIs(STATE_TRYING) || statusIs(STATE_PROCEEDING))) {
 				if (statusIs(STATE_TRYING)) {
-					retransmission_to.halt();
-					transaction_to.halt();
+					haltTimeout(RETRANSMISSION_TIMEOUT);
+					haltTimeout(TRANSACTION_TIMEOUT);
 					changeStatus(STATE_PROCEEDING);
 				}
 				if (invite_tc_listener!=null) invite_tc_listener.onTransProvisionalResponse(this,msg);
@@ -111,20 +103,19 @@ public class InviteTransactionClient extends TransactionClient {
 			}
 			if (code>=300 && code<700 && (statusIs(STATE_TRYING) || statusIs(STATE_PROCEEDING) || statusIs(STATE_COMPLETED))) {
 				if (statusIs(STATE_TRYING) || statusIs(STATE_PROCEEDING)) {
-					retransmission_to.halt();
-					transaction_to.halt();
+					haltTimeout(RETRANSMISSION_TIMEOUT);
+					haltTimeout(TRANSACTION_TIMEOUT);
 					ack=SipMessageFactory.createNon2xxAckRequest(request,msg);
 					changeStatus(STATE_COMPLETED);
 					connection_id=sip_provider.sendMessage(ack);
 					if (invite_tc_listener!=null) invite_tc_listener.onTransFailureResponse(this,msg);
 					invite_tc_listener=null;
 					if (connection_id==null) {
-						end_to=new Timer(end_to.getTime(),this);
-						end_to.start();
+						startTimeout(END_TIMEOUT);
 					}
 					else {
 						log(LogLevel.TRACE,"end_to=0 for reliable transport");
-						onTimeout(end_to);
+						processTimeout(END_TIMEOUT);
 					}
 				}
 				else {
@@ -142,28 +133,25 @@ public class InviteTransactionClient extends TransactionClient {
 		}
 	}
 
-	/** Method derived from interface TimerListener.
-	  * It's fired from an active Timer. */
-	public void onTimeout(Timer to) {
+	/** When a transaction timeout expires. */
+	protected void processTimeout(int timeout) {
 		try {
-			if (to.equals(retransmission_to) && statusIs(STATE_TRYING)) {
+			if (timeout==RETRANSMISSION_TIMEOUT && statusIs(STATE_TRYING)) {
 				log(LogLevel.INFO,"Retransmission timeout expired");
 				// retransmission only in case of unreliable transport 
 				if (connection_id==null) {
 					sip_provider.sendMessage(request);
-					long timeout=2*retransmission_to.getTime();
-					retransmission_to=new Timer(timeout,this);
-					retransmission_to.start();
+					startTimeout(RETRANSMISSION_TIMEOUT,2*getTimeout(RETRANSMISSION_TIMEOUT));
 				}
 				else log(LogLevel.TRACE,"No retransmissions for reliable transport ("+connection_id+")");
 			} 
-			if (to.equals(transaction_to)) {
+			if (timeout==TRANSACTION_TIMEOUT) {
 				log(LogLevel.INFO,"Transaction timeout expired");
 				doTerminate();
 				if (invite_tc_listener!=null) invite_tc_listener.onTransTimeout(this);
 				invite_tc_listener=null;
 			}  
-			if (to.equals(end_to)) {
+			if (timeout==END_TIMEOUT) {
 				log(LogLevel.INFO,"End timeout expired");
 				doTerminate();
 				invite_tc_listener=null; // already null..
@@ -186,9 +174,7 @@ public class InviteTransactionClient extends TransactionClient {
 	/** Moves to terminate state. */
 	protected void doTerminate() {
 		if (!statusIs(STATE_TERMINATED)) {
-			retransmission_to.halt();
-			transaction_to.halt();     
-			end_to.halt();
+			haltTimeouts();
 			sip_provider.removeSelectiveListener(transaction_id);
 			changeStatus(STATE_TERMINATED);
 		}
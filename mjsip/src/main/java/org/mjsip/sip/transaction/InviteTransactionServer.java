@@ -33,7 +33,6 @@ import org.mjsip.sip.provider.SipProvider;
 import org.mjsip.sip.provider.SipStack;
 import org.mjsip.sip.provider.TransactionServerId;
 import org.zoolu.util.LogLevel;
-import org.zoolu.util.Timer;
 
 
 
@@ -59,12 +58,7 @@ public class InviteTransactionServer extends TransactionServer {
 	/** last response message */
 	//Message response=null;
 	
-	/** retransmission timeout ("Timer G" in RFC 3261) */
-	Timer retransmission_to;
-	/** end timeout ("Timer H" in RFC 3261) */
-	Timer end_to;
-	/** clearing timeout ("Timer I" in RFC 3261) */
-	//Timer clearing_to; 
+	// timeouts: retransmission timeout ("Timer G" in RFC 3261), end timeout ("Timer H"), and clearing timeout ("Timer I")
 
 	/** Whether automatically sending 100 Trying on INVITE. */
 	boolean auto_trying;
@@ -115,10 +109,10 @@ public class InviteTransactionServer extends TransactionServer {
 		this.transaction_id=transaction_id;
 		this.connection_id=connection_id;
 		auto_trying=SipStack.auto_trying;
-		// init the timer just to set the timeout value and label, without listener (never started)
-		retransmission_to=new Timer(SipStack.retransmission_timeout,null);
-		end_to=new Timer(SipStack.transaction_timeout,null);
-		clearing_to=new Timer(SipStack.clearing_timeout,null);
+		// just set the timeout values (not started)
+		setTimeout(RETRANSMISSION_TIMEOUT,SipStack.retransmission_timeout);
+		setTimeout(END_TIMEOUT,SipStack.transaction_timeout);
+		setTimeout(CLEARING_TIMEOUT,SipStack.clearing_timeout);
 		log(LogLevel.INFO,"new transaction-id: "+transaction_id.toString());
 	}   
 
@@ -159,17 +153,12 @@ public class InviteTransactionServer extends TransactionServer {
 			changeStatus(STATE_COMPLETED);
 			// retransmission only in case of unreliable transport 
 			if (connection_id==null) {
-				retransmission_to=new Timer(retransmission_to.getTime(),this);
-				retransmission_to.start();
-				//end_to=new Timer(end_to.getTime(),this);
-				//end_to.start();
+				startTimeout(RETRANSMISSION_TIMEOUT);
 			}
 			else {
 				log(LogLevel.TRACE,"No retransmissions for reliable transport ("+connection_id+")");
-				//onTimeout(end_to);
 			}
-			end_to=new Timer(end_to.getTime(),this);
-			end_to.start();
+			startTimeout(END_TIMEOUT);
 		}
 	}
 
@@ -205,35 +194,32 @@ public class InviteTransactionServer extends TransactionServer {
 			}
 			// ack received
 			if (req_method.equals(SipMethods.ACK) && statusIs(STATE_COMPLETED)) {
-				retransmission_to.halt();
-				end_to.halt();
+				haltTimeout(RETRANSMISSION_TIMEOUT);
+				haltTimeout(END_TIMEOUT);
 				changeStatus(STATE_CONFIRMED);
 				if (invite_ts_listener!=null) invite_ts_listener.onTransFailureAck(this,msg);
-				clearing_to=new Timer(clearing_to.getTime(),this);
-				clearing_to.start();
+				startTimeout(CLEARING_TIMEOUT);
 				return;
 			}
 		}    
 	}
 
-	/** Method derived from interface TimerListener.
-	  * It's fired from an active Timer. */
-	public void onTimeout(Timer to) {
+	/** When a transaction timeout expires. */
+	protected void processTimeout(int timeout) {
 		try {
-			if (to.equals(retransmission_to) && statusIs(STATE_COMPLETED)) {
+			if (timeout==RETRANSMISSION_TIMEOUT && statusIs(STATE_COMPLETED)) {
 				log(LogLevel.INFO,"Retransmission timeout expired");
-				long timeout=2*retransmission_to.getTime();
-				if (timeout>SipStack.max_retransmission_timeout) timeout=SipStack.max_retransmission_timeout;
-				retransmission_to=new Timer(timeout,this);
-				retransmission_to.start();
+				long time=2*getTimeout(RETRANSMISSION_TIMEOUT);
+				if (time>SipStack.max_retransmission_timeout) time=SipStack.max_retransmission_timeout;
+				startTimeout(RETRANSMISSION_TIMEOUT,time);
 				sip_provider.sendMessage(response);
 			}
-			if (to.equals(end_to) && statusIs(STATE_COMPLETED)) {
+			if (timeout==END_TIMEOUT && statusIs(STATE_COMPLETED)) {
 				log(LogLevel.INFO,"End timeout expired");
 				doTerminate();
 				invite_ts_listener=null;
 			}  
-			if (to.equals(clearing_to) && statusIs(STATE_CONFIRMED)) {
+			if (timeout==CLEARING_TIMEOUT && statusIs(STATE_CONFIRMED)) {
 				log(LogLevel.INFO,"Clearing timeout expired");
 				doTerminate();
 				invite_ts_listener=null;
@@ -256,9 +242,7 @@ public class InviteTransactionServer extends TransactionServer {
 	/** Moves to terminate state. */
 	protected void doTerminate() {
 		if (!statusIs(STATE_TERMINATED)) {
-			retransmission_to.halt();
-			clearing_to.halt();     
-			end_to.halt();
+			haltTimeouts();
 			//if (statusIs(STATE_WAITING)) sip_provider.removeSelectiveListener(new TransactionId(SipMethods.INVITE));
 			//else sip_provider.removeSelectiveListener(transaction_id);
 			sip_provider.removeSelectiveListener(transaction_id);
@@ -25,6 +25,8 @@ package org.mjsip.sip.transaction;
 
 
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.mjsip.sip.message.SipMessage;
 import org.mjsip.sip.provider.ConnectionId;
 import org.mjsip.sip.provider.SipProvider;
@@ -35,6 +37,7 @@ import org.zoolu.util.LogLevel;
 import org.zoolu.util.Logger;
 import org.zoolu.util.Timer;
 import org.zoolu.util.TimerListener;
+import org.zoolu.util.TimingWheel;
 
 
 
@@ -46,12 +49,37 @@ import org.zoolu.util.TimerListener;
   * <p>
   * The changes of the internal status and the received messages are fired to the
   * corrsponding transaction listener.
+  * <p>
+  * All transaction timeouts (retransmission, transaction, end, and clearing timeouts) are kept
+  * as deadlines of the transaction, and only the earliest one is scheduled on the shared timer scheduler
+  * (see {@link Timer#getScheduler(boolean)}), by means of a single scheduler entry per transaction.
+  * When a deadline expires, the method {@link #processTimeout(int)} is called.
   */
 public abstract class Transaction/* extends org.zoolu.util.MonitoredObject*/ implements SipProviderListener, TimerListener {
 	
 	/** Transactions counter */
 	protected static int transaction_counter=0;
 
+	/** Number of active (started and not terminated) transactions */
+	static AtomicInteger active_transactions=new AtomicInteger(0);
+
+	/** Number of transactions with a pending retransmission */
+	static AtomicInteger pending_retransmissions=new AtomicInteger(0);
+
+	// transaction timeouts:
+
+	/** Retransmission timeout ("Timer A", "Timer E", or "Timer G" in RFC 3261) */
+	protected static final int RETRANSMISSION_TIMEOUT=0;
+	/** Transaction timeout ("Timer B" or "Timer F" in RFC 3261) */
+	protected static final int TRANSACTION_TIMEOUT=1;
+	/** End timeout ("Timer D" or "Timer H" in RFC 3261) */
+	protected static final int END_TIMEOUT=2;
+	/** Clearing timeout ("Timer I", "Timer J", or "Timer K" in RFC 3261) */
+	protected static final int CLEARING_TIMEOUT=3;
+
+	/** Number of transaction timeouts */
+	static final int NUMBER_OF_TIMEOUTS=4;
+
 	// all transaction states:
 	
 	/** State Waiting (used only by server transactions) - When transaction is just created. */
@@ -108,6 +136,18 @@ public abstract class Transaction/* extends org.zoolu.util.MonitoredObject*/ imp
 	/** Transaction connection id */
 	ConnectionId connection_id;
 
+	/** Timeout values, in milliseconds */
+	long[] timeouts=new long[NUMBER_OF_TIMEOUTS];
+
+	/** Timeout deadlines, in milliseconds (0 if not running) */
+	long[] deadlines=new long[NUMBER_OF_TIMEOUTS];
+
+	/** Scheduler entry for the earliest deadline, or null */
+	TimingWheel.Entry timeout_entry=null;
+
+	/** Deadline of the scheduler entry, in milliseconds (0 if not scheduled) */
+	long scheduled_deadline=0;
+
 
 	/** Costructs a new Transaction */
 	protected Transaction(SipProvider sip_provider) {
@@ -120,8 +160,18 @@ public abstract class Transaction/* extends org.zoolu.util.MonitoredObject*/ imp
 		this.status=STATE_IDLE;
 	}
 
-	/** Changes the internal status */
+	/** Changes the internal status.
+	  * A transaction is counted as active from when it is started (by sending or waiting for a request)
+	  * until it is terminated; transactions that are created but never started are not counted. */
 	protected void changeStatus(int newstatus) {
+		if (newstatus==STATE_TERMINATED && status!=STATE_TERMINATED) {
+			haltTimeouts();
+			if (status!=STATE_IDLE) active_transactions.decrementAndGet();
+		}
+		else
+		if (status==STATE_IDLE && newstatus!=STATE_IDLE && newstatus!=STATE_TERMINATED) {
+			active_transactions.incrementAndGet();
+		}
 		status=newstatus;
 		//transaction_listener.onChangedTransactionStatus(status);
 		log(LogLevel.DEBUG,"changed transaction state: "+getStatus());
@@ -201,6 +251,121 @@ public abstract class Transaction/* extends org.zoolu.util.MonitoredObject*/ imp
 	/** Terminates the transaction. */
 	public abstract void terminate();
 
+
+	//************************** Timeouts **************************/
+
+	/** Gets the number of active (started and not terminated) transactions. */
+	public static int getActiveTransactions() {
+		return active_transactions.get();
+	}
+
+	/** Gets the number of transactions with a pending retransmission. */
+	public static int getPendingRetransmissions() {
+		return pending_retransmissions.get();
+	}
+
+	/** Sets a timeout value, without starting it.
+	  * @param timeout the timeout ({@link #RETRANSMISSION_TIMEOUT}, {@link #TRANSACTION_TIMEOUT}, {@link #END_TIMEOUT}, or {@link #CLEARING_TIMEOUT})
+	  * @param time the timeout value, in milliseconds */
+	protected void setTimeout(int timeout, long time) {
+		timeouts[timeout]=time;
+	}
+
+	/** Gets a timeout value.
+	  * @param timeout the timeout
+	  * @return the timeout value, in milliseconds */
+	protected long getTimeout(int timeout) {
+		return timeouts[timeout];
+	}
+
+	/** Starts a timeout, with its current value.
+	  * @param timeout the timeout */
+	protected void startTimeout(int timeout) {
+		startTimeout(timeout,timeouts[timeout]);
+	}
+
+	/** Starts a timeout with a new value.
+	  * If the timeout is already running, it is restarted.
+	  * @param timeout the timeout
+	  * @param time the new timeout value, in milliseconds */
+	protected synchronized void startTimeout(int timeout, long time) {
+		if (timeout==RETRANSMISSION_TIMEOUT && deadlines[timeout]==0) pending_retransmissions.incrementAndGet();
+		timeouts[timeout]=time;
+		deadlines[timeout]=currentTimeMillis()+time;
+		schedule();
+	}
+
+	/** Halts a timeout.
+	  * @param timeout the timeout */
+	protected synchronized void haltTimeout(int timeout) {
+		if (deadlines[timeout]==0) return;
+		// else
+		if (timeout==RETRANSMISSION_TIMEOUT) pending_retransmissions.decrementAndGet();
+		deadlines[timeout]=0;
+		// the scheduler entry is left until it expires, unless no other timeout is running
+		for (int i=0; i<NUMBER_OF_TIMEOUTS; i++) if (deadlines[i]!=0) return;
+		// else
+		timeout_entry.cancel();
+		scheduled_deadline=0;
+	}
+
+	/** Halts all timeouts. */
+	protected void haltTimeouts() {
+		for (int i=0; i<NUMBER_OF_TIMEOUTS; i++) haltTimeout(i);
+	}
+
+	/** When a timeout expires.
+	  * @param timeout the expired timeout */
+	protected void processTimeout(int timeout) {
+		//do nothing
+	}
+
+	/** Schedules the scheduler entry for the earliest deadline, if not already scheduled earlier. */
+	private synchronized void schedule() {
+		long next=0;
+		for (int i=0; i<NUMBER_OF_TIMEOUTS; i++) if (deadlines[i]!=0 && (next==0 || deadlines[i]<next)) next=deadlines[i];
+		if (next==0 || (scheduled_deadline!=0 && scheduled_deadline<=next)) return;
+		// else
+		if (timeout_entry==null) timeout_entry=new TimingWheel.Entry(new Runnable() {
+			public void run() {
+				processDeadlines();
+			}
+		});
+		scheduled_deadline=next;
+		Timer.getScheduler(Timer.DEFAULT_DAEMON_MODE).schedule(timeout_entry,next-currentTimeMillis());
+	}
+
+	/** When the scheduler entry expires. Processes all expired timeouts, and schedules the next deadline. */
+	private void processDeadlines() {
+		int[] expired=new int[NUMBER_OF_TIMEOUTS];
+		int n=0;
+		synchronized (this) {
+			scheduled_deadline=0;
+			long now=currentTimeMillis();
+			for (int i=0; i<NUMBER_OF_TIMEOUTS; i++) {
+				if (deadlines[i]!=0 && deadlines[i]<=now) {
+					if (i==RETRANSMISSION_TIMEOUT) pending_retransmissions.decrementAndGet();
+					deadlines[i]=0;
+					expired[n++]=i;
+				}
+			}
+			schedule();
+		}
+		for (int i=0; i<n; i++) {
+			try {
+				processTimeout(expired[i]);
+			}
+			catch (Exception e) {
+				log(LogLevel.INFO,e);
+			}
+		}
+	}
+
+	/** Gets the current time, in milliseconds, from a monotonic clock. */
+	private static long currentTimeMillis() {
+		return System.nanoTime()/1000000L;
+	}
+
 	
 	//**************************** Logs ****************************/
 
@@ -30,7 +30,6 @@ import org.mjsip.sip.provider.SipProvider;
 import org.mjsip.sip.provider.SipStack;
 import org.mjsip.sip.provider.TransactionClientId;
 import org.zoolu.util.LogLevel;
-import org.zoolu.util.Timer;
 
 
 
@@ -43,12 +42,7 @@ public class TransactionClient extends Transaction {
 	/** The TransactionClientListener that captures the events fired by the TransactionClient */
 	TransactionClientListener transaction_listener;
 
-	/** Retransmission timeout ("Timer E" in RFC 3261) */
-	Timer retransmission_to;
-	/** Transaction timeout ("Timer F" in RFC 3261) */
-	Timer transaction_to;
-	/** Clearing timeout ("Timer K" in RFC 3261) */
-	Timer clearing_to;
+	// timeouts: retransmission timeout ("Timer E" in RFC 3261), transaction timeout ("Timer F"), and clearing timeout ("Timer K")
 
  
 	// ************************** Costructors **************************
@@ -70,10 +64,10 @@ public class TransactionClient extends Transaction {
 	void init(TransactionClientListener listener, TransactionClientId transaction_id) {
 		this.transaction_listener=listener;
 		this.transaction_id=transaction_id;
-		// init the timer just to set the timeout value and label, without listener (never started)
-		retransmission_to=new Timer(SipStack.retransmission_timeout,null);
-		transaction_to=new Timer(SipStack.transaction_timeout,null);
-		clearing_to=new Timer(SipStack.clearing_timeout,null);
+		// just set the timeout values (not started)
+		setTimeout(RETRANSMISSION_TIMEOUT,SipStack.retransmission_timeout);
+		setTimeout(TRANSACTION_TIMEOUT,SipStack.transaction_timeout);
+		setTimeout(CLEARING_TIMEOUT,SipStack.clearing_timeout);
 		log(LogLevel.INFO,"new transaction-id: "+transaction_id.toString());
 	}
 
@@ -84,12 +78,10 @@ public class TransactionClient extends Transaction {
 	public void request() {
 		log(LogLevel.TRACE,"start");
 		changeStatus(STATE_TRYING);
-		transaction_to=new Timer(transaction_to.getTime(),this);
-		transaction_to.start(); 
+		startTimeout(TRANSACTION_TIMEOUT); 
 		sip_provider.addSelectiveListener(transaction_id,this);
 		connection_id=sip_provider.sendMessage(request);
-		retransmission_to=new Timer(retransmission_to.getTime(),this);
-		retransmission_to.start();
+		startTimeout(RETRANSMISSION_TIMEOUT);
 	}
 		
 	/** Terminates the transaction. */
@@ -111,52 +103,50 @@ public class TransactionClient extends Transaction {
 				return;
 			}
 			if (code>=200 && code<700 && (statusIs(STATE_TRYING) || statusIs(STATE_PROCEEDING))) {
-				retransmission_to.halt();
-				transaction_to.halt();
+				haltTimeout(RETRANSMISSION_TIMEOUT);
+				haltTimeout(TRANSACTION_TIMEOUT);
 				changeStatus(STATE_COMPLETED);
 				if (transaction_listener!=null) {
 					if (code<300) transaction_listener.onTransSuccessResponse(this,msg);
 					else transaction_listener.onTransFailureResponse(this,msg);
 				}
 				if (connection_id==null) {
-					clearing_to=new Timer(clearing_to.getTime(),this);
-					clearing_to.start();
+					startTimeout(CLEARING_TIMEOUT);
 				}
 				else {
 					log(LogLevel.TRACE,"clearing_to=0 for reliable transport");
-					onTimeout(clearing_to);
+					processTimeout(CLEARING_TIMEOUT);
 				}
 				return;
 			}
 		}
 	}
 
-	/** From TimerListener. It's fired from an active Timer. */
-	public void onTimeout(Timer to) {
+	/** When a transaction timeout expires. */
+	protected void processTimeout(int timeout) {
 		try {
 			if (sip_provider.getIsHalted()) {
 				log(LogLevel.INFO,"No transmission for halted SipProvider, terminating TransactionClient");
 				doTerminate();
 			}
-			if (to.equals(retransmission_to) && (statusIs(STATE_TRYING) || statusIs(STATE_PROCEEDING))) {
+			if (timeout==RETRANSMISSION_TIMEOUT && (statusIs(STATE_TRYING) || statusIs(STATE_PROCEEDING))) {
 				log(LogLevel.INFO,"Retransmission timeout expired");
 				// retransmission only for unreliable transport 
 				if (connection_id==null) {
 					sip_provider.sendMessage(request);
-					long timeout=2*retransmission_to.getTime();
-					if (timeout>SipStack.max_retransmission_timeout || statusIs(STATE_PROCEEDING)) timeout=SipStack.max_retransmission_timeout;
-					retransmission_to=new Timer(timeout,this);
-					retransmission_to.start();
+					long time=2*getTimeout(RETRANSMISSION_TIMEOUT);
+					if (time>SipStack.max_retransmission_timeout || statusIs(STATE_PROCEEDING)) time=SipStack.max_retransmission_timeout;
+					startTimeout(RETRANSMISSION_TIMEOUT,time);
 				}
 				else log(LogLevel.TRACE,"No retransmissions for reliable transport ("+connection_id+")");
 			} 
-			if (to.equals(transaction_to)) {
+			if (timeout==TRANSACTION_TIMEOUT) {
 				log(LogLevel.INFO,"Transaction timeout expired");
 				doTerminate();
 				if (transaction_listener!=null) transaction_listener.onTransTimeout(this);
 				transaction_listener=null;
 			}  
-			if (to.equals(clearing_to)) {
+			if (timeout==CLEARING_TIMEOUT) {
 				log(LogLevel.INFO,"Clearing timeout expired");
 				doTerminate();
 			}
@@ -171,9 +161,7 @@ public class TransactionClient extends Transaction {
 	/** Moves to terminate state. */
 	protected void doTerminate() {
 		if (!statusIs(STATE_TERMINATED)) {
-			retransmission_to.halt();
-			transaction_to.halt();     
-			clearing_to.halt();
+			haltTimeouts();
 			sip_provider.removeSelectiveListener(transaction_id);
 			changeStatus(STATE_TERMINATED);
 		}
@@ -32,7 +32,6 @@ import org.mjsip.sip.provider.SipProvider;
 import org.mjsip.sip.provider.SipStack;
 import org.mjsip.sip.provider.TransactionServerId;
 import org.zoolu.util.LogLevel;
-import org.zoolu.util.Timer;
 
 
 
@@ -49,8 +48,7 @@ public class TransactionServer extends Transaction {
 	/** Last response message */
 	SipMessage response;
 	
-	/** Clearing timeout ("Timer J" in RFC 3261) */
-	Timer clearing_to;
+	// timeouts: clearing timeout ("Timer J" in RFC 3261)
 
 
 	// ************************** Costructors **************************
@@ -85,8 +83,8 @@ public class TransactionServer extends Transaction {
 		this.transaction_id=transaction_id;
 		this.connection_id=connection_id;
 		this.response=null;
-		// init the timer just to set the timeout value and label, without listener (never started)
-		clearing_to=new Timer(SipStack.transaction_timeout,null);
+		// just set the timeout value (not started)
+		setTimeout(CLEARING_TIMEOUT,SipStack.transaction_timeout);
 		log(LogLevel.INFO,"new transaction-id: "+transaction_id.toString());
 	}  
 
@@ -121,12 +119,11 @@ public class TransactionServer extends Transaction {
 			if (code>=200 && code<700) {
 				changeStatus(STATE_COMPLETED);
 				if (connection_id==null) {
-					clearing_to=new Timer(clearing_to.getTime(),this);
-					clearing_to.start();
+					startTimeout(CLEARING_TIMEOUT);
 				}
 				else {
 					log(LogLevel.TRACE,"clearing_to=0 for reliable transport");
-					onTimeout(clearing_to);
+					processTimeout(CLEARING_TIMEOUT);
 				}
 			}
 		}
@@ -165,10 +162,10 @@ public class TransactionServer extends Transaction {
 		}
 	}
 
-	/** From TimerListener. It's fired from an active Timer. */
-	public void onTimeout(Timer to) {
+	/** When a transaction timeout expires. */
+	protected void processTimeout(int timeout) {
 		try {
-			if (to.equals(clearing_to)) {
+			if (timeout==CLEARING_TIMEOUT) {
 				log(LogLevel.INFO,"Clearing timeout expired");
 				doTerminate();
 			}
@@ -184,8 +181,7 @@ public class TransactionServer extends Transaction {
 	/** Moves to terminate state. */
 	protected void doTerminate() {
 		if (!statusIs(STATE_TERMINATED)) {
-			clearing_to.halt();
-			//clearing_to=null;
+			haltTimeouts();
 			sip_provider.removeSelectiveListener(transaction_id);
 			changeStatus(STATE_TERMINATED);
 		}
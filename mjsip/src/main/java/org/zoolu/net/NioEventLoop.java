@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.zoolu.net;
+
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.zoolu.util.ExceptionPrinter;
+import org.zoolu.util.LogLevel;
+import org.zoolu.util.Logger;
+
+
+
+/** NioEventLoop runs a java.nio Selector in its own thread.
+  * <p>
+  * Non-blocking channels are registered with the loop together with a {@link NioEventHandler}
+  * that is called (by the loop thread) when the channel is ready for I/O.
+  * Other threads can run tasks within the loop thread through the {@link #execute(Runnable)} method;
+  * this is also the way to change the interest set of a registered channel.
+  */
+public class NioEventLoop extends Thread {
+	
+	/** The reading buffer size */
+	static final int BUFFER_SIZE=65535;
+
+	/** The selector */
+	Selector selector;
+
+	/** Tasks to be run within the loop thread (Queue of <code>Runnable</code>) */
+	ConcurrentLinkedQueue tasks=new ConcurrentLinkedQueue();
+
+	/** Reading buffer shared by all channels handled by this loop */
+	ByteBuffer buffer=ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** Whether it has been halted */
+	volatile boolean stop=false; 
+
+	/** Logger */
+	Logger logger;
+
+
+
+	/** Costructs a new NioEventLoop. */
+	public NioEventLoop() throws IOException {
+		this(null);
+	}
+
+
+	/** Costructs a new NioEventLoop.
+	  * @param logger the logger used for reporting errors of handlers and tasks (or null) */
+	public NioEventLoop(Logger logger) throws IOException {
+		this.logger=logger;
+		selector=Selector.open();
+		setDaemon(true);
+		start();
+	}
+
+
+	/** Gets the selector. */
+	public Selector getSelector() {
+		return selector;
+	}
+
+
+	/** Gets the reading buffer.
+	  * The buffer is shared by all channels handled by this loop and must be used only within the loop thread. */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+
+	/** Whether the current thread is the loop thread. */
+	public boolean inEventLoop() {
+		return Thread.currentThread()==this;
+	}
+
+
+	/** Runs a task within the loop thread.
+	  * @param task the task to be run */
+	public void execute(Runnable task) {
+		tasks.add(task);
+		if (!inEventLoop()) selector.wakeup();
+	}
+
+
+	/** Registers a channel with this loop.
+	  * The channel is registered by the loop thread, and the handler is attached to the resulting selection key.
+	  * @param channel the non-blocking channel
+	  * @param ops the interest set
+	  * @param handler the handler of the channel events */
+	public void register(final SelectableChannel channel, final int ops, final NioEventHandler handler) {
+		execute(new Runnable() {
+			public void run() {
+				try {  channel.register(selector,ops,handler);  } catch (ClosedChannelException e) {}
+			}
+		});
+	}
+
+
+	/** Stops running. */
+	public void halt() {
+		stop=true;
+		selector.wakeup();
+	}
+
+
+	/** Runs the loop. */
+	public void run() {
+		while (!stop) {
+			try {
+				selector.select();
+			}
+			catch (IOException e) {
+				log(LogLevel.WARNING,e);
+				break;
+			}
+			// process ready channels
+			for (Iterator i=selector.selectedKeys().iterator(); i.hasNext(); ) {
+				SelectionKey key=(SelectionKey)i.next();
+				i.remove();
+				if (!key.isValid()) continue;
+				// else
+				try {  ((NioEventHandler)key.attachment()).onSelected(key);  } catch (Exception e) {  log(LogLevel.INFO,e);  }
+			}
+			// run pending tasks, including the ones added by the handlers
+			Runnable task;
+			while ((task=(Runnable)tasks.poll())!=null) {
+				try {  task.run();  } catch (Exception e) {  log(LogLevel.INFO,e);  }
+			}
+		}
+		// close all channels
+		for (Iterator i=selector.keys().iterator(); i.hasNext(); ) {
+			try {  ((SelectionKey)i.next()).channel().close();  } catch (IOException e) {}
+		}
+		try {  selector.close();  } catch (IOException e) {}
+	}
+
+
+	/** Gets a String representation of the Object */
+	public String toString() {
+		return "nio-loop:"+getName();
+	}   
+
+
+	// ****************************** Logs *****************************
+
+	/** Adds a new string to the default log. */
+	private void log(LogLevel level, String str) {
+		if (logger!=null) logger.log(level,toString()+": "+str);
+	}
+
+
+	/** Prints an exception to the event log. */
+	private void log(LogLevel level, Exception e) {
+		log(level,"Exception: "+ExceptionPrinter.getStackTraceOf(e));
+	}
+
+}
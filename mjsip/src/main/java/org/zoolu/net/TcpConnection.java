@@ -32,10 +32,12 @@ import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
 
+import org.zoolu.util.Threads;
+
 
 /** TcpConnection provides a TCP connection oriented transport service.
   */
-public class TcpConnection extends Thread {
+public class TcpConnection implements Runnable {
 	
 	/** The reading buffer size */
 	static final int BUFFER_SIZE=65535;
@@ -62,7 +64,7 @@ public class TcpConnection extends Thread {
 	Exception error;
 
 	/** Whether it has been halted */
-	boolean stop; 
+	volatile boolean stop; 
 
 	/** Whether it is running */
 	boolean is_running; 
@@ -165,6 +167,12 @@ public class TcpConnection extends Thread {
 	}
 
 
+	/** Starts running in a new thread (see {@link Threads}). */
+	public void start() {
+		Threads.start(this,"tcp-connection");
+	}
+
+
 	/** Runs the tcp receiver. */
 	public void run() {
 		
@@ -28,11 +28,13 @@ import java.io.InterruptedIOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 
+import org.zoolu.util.Threads;
+
 
 
 /** TcpServer implements a TCP server wainting for incoming connection.
   */
-public class TcpServer extends Thread {
+public class TcpServer implements Runnable {
 	
 	/** Default value for the maximum time that the tcp server can remain active after been halted (in milliseconds) */
 	public static final int DEFAULT_SOCKET_TIMEOUT=5000; // 5sec 
@@ -59,7 +61,7 @@ public class TcpServer extends Thread {
 	long alive_time; 
 
 	/** Whether it has been halted */
-	boolean stop; 
+	volatile boolean stop; 
 
 	/** Whether it is running */
 	boolean is_running; 
@@ -135,6 +137,12 @@ public class TcpServer extends Thread {
 	}
 
 
+	/** Starts running in a new thread (see {@link Threads}). */
+	public void start() {
+		Threads.start(this,"tcp-server");
+	}
+
+
 	/** Runs the server */
 	public void run() {
 		Exception error=null;
@@ -32,6 +32,9 @@ import java.security.KeyStore;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
 
 
 /** TLS security context.
@@ -155,6 +158,23 @@ public class TlsContext {
 	}
 
 
+	/** Sets the size and the timeout of the client and server session caches of a SSL context.
+	  * Sessions cached by the client side are resumed by new connections to the same peer, with an abbreviated handshake.
+	  * @param ssl_context the SSL context
+	  * @param cache_size the maximum number of cached sessions; if 0, the current value is kept
+	  * @param timeout the timeout of cached sessions (in seconds); if 0, the current value is kept */
+	public static void setSessionCache(SSLContext ssl_context, int cache_size, int timeout) {
+		SSLSessionContext[] session_contexts={ ssl_context.getClientSessionContext(), ssl_context.getServerSessionContext() };
+		for (int i=0; i<session_contexts.length; i++) {
+			SSLSessionContext session_context=session_contexts[i];
+			if (session_context==null) continue;
+			// else
+			if (cache_size>0) session_context.setSessionCacheSize(cache_size);
+			if (timeout>0) session_context.setSessionTimeout(timeout);
+		}
+	}
+
+
 	/** Prints out a message. */
 	static void printOut(String str) {
 		System.out.println("TlsContext: "+str);
@@ -27,6 +27,8 @@ package org.zoolu.net;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 
+import org.zoolu.util.Threads;
+
 
 /** UdpProvider provides an UDP send/receive service.
   * On the receiver side it waits for UDP datagrams and passes them
@@ -38,7 +40,7 @@ import java.io.InterruptedIOException;
   * <p> Method onServiceTerminated(UdpProvider) is fired when the the UdpProvider stops 
   * receiving packets.
   */
-public class UdpProvider extends Thread {
+public class UdpProvider implements Runnable {
 	
 	/** The reading buffer size */
 	public static final int BUFFER_SIZE=65535;
@@ -62,7 +64,7 @@ public class UdpProvider extends Thread {
 	protected int minimum_length; 
 
 	/** Whether it has been halted */
-	protected boolean stop; 
+	protected volatile boolean stop; 
 
 	/** Whether it is running */
 	protected boolean is_running; 
@@ -157,6 +159,12 @@ public class UdpProvider extends Thread {
 	}
 
 
+	/** Starts running in a new thread (see {@link Threads}). */
+	public void start() {
+		Threads.start(this,"udp-provider");
+	}
+
+
 	/** The main thread. */
 	public void run() {
 		
@@ -26,6 +26,11 @@ package org.zoolu.net;
 
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 
 
 /** UdpSocket provides a uniform interface to UDP transport protocol,
@@ -34,6 +39,9 @@ import java.net.DatagramSocket;
 public class UdpSocket {
 	
 
+	/** The SO_REUSEPORT socket option, or null if not available in the running JRE */
+	static final SocketOption SO_REUSEPORT=getStandardSocketOption("SO_REUSEPORT");
+
 	/** DatagramSocket */
 	DatagramSocket socket;
 
@@ -71,6 +79,45 @@ public class UdpSocket {
 		socket=new DatagramSocket(port,ipaddr.getInetAddress());
 	}
 	
+	/** Creates a new UdpSocket, possibly bound to a port shared with other sockets.
+	  * If <i>reuse_port</i> is true, the SO_REUSEPORT option is set, and datagrams received on the port
+	  * are distributed by the OS among all sockets bound to it. 
+	  * @param port the local port
+	  * @param ipaddr the local address (null for binding to all interfaces)
+	  * @param reuse_port whether setting the SO_REUSEPORT option; if the option is not supported (see {@link #isReusePortSupported()}), it is ignored */ 
+	public UdpSocket(int port, IpAddress ipaddr, boolean reuse_port) throws java.io.IOException {
+		DatagramChannel channel=DatagramChannel.open();
+		try {
+			if (reuse_port && SO_REUSEPORT!=null && channel.supportedOptions().contains(SO_REUSEPORT)) channel.setOption(SO_REUSEPORT,Boolean.TRUE);
+			if (ipaddr==null) channel.bind(new InetSocketAddress(port));
+			else channel.bind(new InetSocketAddress(ipaddr.getInetAddress(),port));
+		}
+		catch (java.io.IOException e) {
+			channel.close();
+			throw e;
+		}
+		socket=channel.socket();
+	}
+
+	/** Whether the SO_REUSEPORT option is supported by the running JRE and OS. */
+	public static boolean isReusePortSupported() {
+		if (SO_REUSEPORT==null) return false;
+		// else
+		try {
+			DatagramChannel channel=DatagramChannel.open();
+			boolean supported=channel.supportedOptions().contains(SO_REUSEPORT);
+			channel.close();
+			return supported;
+		}
+		catch (java.io.IOException e) {  return false;  }
+	}
+
+	/** Gets a standard socket option by name.
+	  * @return the socket option, or null if not available in the running JRE */
+	private static SocketOption getStandardSocketOption(String name) {
+		try {  return (SocketOption)StandardSocketOptions.class.getField(name).get(null);  } catch (Exception e) {  return null;  }
+	}
+	
 	/** Closes this datagram socket. */
 	public void close() {
 		socket.close();
@@ -112,6 +159,25 @@ public class UdpSocket {
 		sender_octect_count+=pkt.getLength();
 	}
 	
+	/** Sends the content of a byte buffer as an UDP datagram from this socket.
+	  * If the socket has been created with an associated channel (see {@link #UdpSocket(int,IpAddress,boolean)}),
+	  * the data is written directly through the channel.
+	  * @param buf the buffer containing the data, between its current position and its limit
+	  * @param ipaddr the destination address
+	  * @param port the destination port */ 
+	public void send(ByteBuffer buf, IpAddress ipaddr, int port) throws java.io.IOException {
+		int len=buf.remaining();
+		DatagramChannel channel=socket.getChannel();
+		if (channel!=null) channel.send(buf,new InetSocketAddress(ipaddr.getInetAddress(),port));
+		else {
+			byte[] data=new byte[len];
+			buf.get(data);
+			socket.send(new DatagramPacket(data,len,ipaddr.getInetAddress(),port));
+		}
+		sender_packet_count++;
+		sender_octect_count+=len;
+	}
+	
 	/** Converts this object to a String. */
 	public String toString() {
 		//return socket.toString();
@@ -27,6 +27,11 @@ package org.zoolu.util;
 
 /** Class Random collects some static methods for generating
   * random numbers and other stuff.
+  * <p>
+  * By default each thread uses its own generator (see {@link java.util.concurrent.ThreadLocalRandom}),
+  * so that concurrent threads never contend for a shared generator.
+  * If a seed is explicitly set, a single shared generator initialized with that seed is used instead,
+  * in order to obtain repeatable sequences.
   */
 public class Random {
 	
@@ -37,6 +42,9 @@ public class Random {
 	static java.util.Random rand=new java.util.Random(seed);
 	//static java.util.Random rand=new java.util.Random();
 
+	/** Whether the shared generator has been explicitly seeded */
+	static volatile boolean seeded=false;
+
 	/** Returns a random integer between 0 and n-1 */
 	/*static public int nextInt(int n) {
 		seed=(seed*37)%987654321;
@@ -48,70 +56,83 @@ public class Random {
 		return integer(100)<p;
 	}*/
 
+	/** Gets the generator to be used by the current thread. */
+	private static java.util.Random getRandom() {
+		return (seeded)? rand : java.util.concurrent.ThreadLocalRandom.current();
+	}
+
 	/** Sets the seed of this random number generator using a single long seed */
 	public static void setSeed(long seed) {
 		rand.setSeed(seed);
+		seeded=true;
 	}
 
 	/** Returns a random integer */
 	public static int nextInt() {
-		return rand.nextInt();
+		return getRandom().nextInt();
 	}
 
 	/** Returns a random integer between 0 and n-1 */
 	public static int nextInt(int n) {
-		return Math.abs(rand.nextInt())%n;
+		return Math.abs(getRandom().nextInt())%n;
 	}
 
 	/** Returns a random long */
 	public static long nextLong() {
-		return rand.nextLong();
+		return getRandom().nextLong();
 	}
 
 	/** Returns a random long between 0 and n-1 */
 	public static long nextLong(long n) {
-		return Math.abs(rand.nextLong())%n;
+		return Math.abs(getRandom().nextLong())%n;
 	}
 	/** Returns a random boolean */
 	public static boolean nextBoolean() {
-		return rand.nextInt(2)==1;
+		return getRandom().nextInt(2)==1;
 	}
 
 	/** Returns a random double between 0 and 1 (exclusive) */
 	public static double nextDouble() {
-		return rand.nextInt();
+		return getRandom().nextInt();
 	}
 
 	/** Returns a random array of bytes */
 	public static byte[] nextBytes(int len) {
 		byte[] buff=new byte[len];
-		for (int i=0; i<len; i++) buff[i]=(byte)nextInt(256);
+		getRandom().nextBytes(buff);
 		return buff;
 	}
 
 	/** Returns a random String */
 	public static String nextString(int len) {
-		byte[] buff=new byte[len];
+		java.util.Random r=getRandom();
+		char[] buff=new char[len];
 		for (int i=0; i<len; i++) {
-			int n=nextInt(62);
-			buff[i]=(byte)((n<10)? 48+n : ((n<36)? 55+n : 61+n));
+			int n=r.nextInt(62);
+			buff[i]=(char)((n<10)? 48+n : ((n<36)? 55+n : 61+n));
 		}
 		return new String(buff);
 	}
 
 	/** Returns a random numeric String */
 	public static String nextNumString(int len) {
-		byte[] buff=new byte[len];
-		for (int i=0; i<len; i++) buff[i]=(byte)(48+nextInt(10));
+		java.util.Random r=getRandom();
+		char[] buff=new char[len];
+		for (int i=0; i<len; i++) buff[i]=(char)(48+r.nextInt(10));
 		return new String(buff);
 	}
 
 	/** Returns a random hexadecimal String */
 	public static String nextHexString(int len) {
-		byte[] buff=new byte[len];
+		java.util.Random r=getRandom();
+		char[] buff=new char[len];
+		long bits=0;
 		for (int i=0; i<len; i++) {
-			int n=nextInt(16);
-			buff[i]=(byte)((n<10)? 48+n : 87+n);
+			// 16 hexadecimal digits for each random long
+			if ((i&15)==0) bits=r.nextLong();
+			int n=(int)(bits&15);
+			bits>>>=4;
+			buff[i]=(char)((n<10)? 48+n : 87+n);
 		}
 		return new String(buff);
 	}
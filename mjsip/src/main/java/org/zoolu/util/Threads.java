@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.zoolu.util;
+
+
+
+import java.lang.reflect.Method;
+
+
+
+/** Threads creates all threads used by long-running I/O tasks (receivers, servers, relays, media streams, keep-alive senders).
+  * <p>
+  * Threads can be either platform threads or, on Java 21 and later, virtual threads.
+  * Virtual threads are cheap, so that tens of thousands of connections, relays, or streams can be
+  * handled with blocking I/O; note however that they are always daemon threads.
+  * <p>
+  * The mode is set through the {@link #VIRTUAL_MODE} attribute, whose default value is taken from
+  * the system property <i>mjsip.virtual_threads</i>. If virtual threads are not supported by the running JRE,
+  * platform threads are used.
+  */
+public class Threads {
+	
+	/** Whether creating virtual threads, if supported */
+	public static boolean VIRTUAL_MODE=Boolean.getBoolean("mjsip.virtual_threads");
+
+	/** Method Thread.ofVirtual(), or null if not supported */
+	static Method of_virtual=null;
+
+	/** Method Thread.Builder.name(String) */
+	static Method builder_name=null;
+
+	/** Method Thread.Builder.unstarted(Runnable) */
+	static Method builder_unstarted=null;
+
+	static {
+		try {
+			Class builder_class=Class.forName("java.lang.Thread$Builder");
+			builder_name=builder_class.getMethod("name",new Class[]{ String.class });
+			builder_unstarted=builder_class.getMethod("unstarted",new Class[]{ Runnable.class });
+			of_virtual=Thread.class.getMethod("ofVirtual",new Class[]{});
+		}
+		catch (Exception e) {
+			of_virtual=null;
+		}
+	}
+
+
+
+	/** Whether virtual threads are supported by the running JRE. */
+	public static boolean isVirtualSupported() {
+		return of_virtual!=null;
+	}
+
+
+	/** Creates a new thread, without starting it.
+	  * It is a virtual thread if {@link #VIRTUAL_MODE} is true and virtual threads are supported.
+	  * @param task the task run by the thread
+	  * @param name the thread name
+	  * @return the new thread */
+	public static Thread newThread(Runnable task, String name) {
+		if (VIRTUAL_MODE && of_virtual!=null) {
+			try {
+				Object builder=builder_name.invoke(of_virtual.invoke(null,new Object[]{}),new Object[]{ name });
+				return (Thread)builder_unstarted.invoke(builder,new Object[]{ task });
+			}
+			catch (Exception e) {
+				// fall back to platform threads
+			}
+		}
+		// else
+		return new Thread(task,name);
+	}
+
+
+	/** Creates a new thread, without starting it.
+	  * Since virtual threads are always daemon threads, a non-daemon thread is always a platform thread.
+	  * @param task the task run by the thread
+	  * @param name the thread name
+	  * @param daemon whether the thread is a daemon thread
+	  * @return the new thread */
+	public static Thread newThread(Runnable task, String name, boolean daemon) {
+		if (daemon) {
+			Thread thread=newThread(task,name);
+			if (!thread.isDaemon()) thread.setDaemon(true);
+			return thread;
+		}
+		// else
+		Thread thread=new Thread(task,name);
+		thread.setDaemon(false);
+		return thread;
+	}
+
+
+	/** Creates and starts a new thread.
+	  * @param task the task run by the thread
+	  * @param name the thread name
+	  * @return the new thread */
+	public static Thread start(Runnable task, String name) {
+		Thread thread=newThread(task,name);
+		thread.start();
+		return thread;
+	}
+
+}
@@ -25,7 +25,7 @@ package org.zoolu.util;
 
 
 
-import java.util.TimerTask;
+import java.util.concurrent.Executor;
 
 
 
@@ -40,30 +40,34 @@ import java.util.TimerTask;
   * <br>
   * Conversely, in 'non-daemon' mode, the program terminates only when the timer
   * expires (or it is explicitly halted).
+  * <p>
+  * Timers are scheduled on hashed timing wheels (see {@link TimingWheel}), with a resolution of {@link #TICK_TIME} milliseconds;
+  * a halted timer is immediately removed from its wheel.
+  * Timeout callbacks are run by the wheel threads, or by the executor set through {@link #setExecutor(Executor)}.
   */
 public class Timer {
 	
 	/** Whether the default mode is 'daemon', or not */
 	public static boolean DEFAULT_DAEMON_MODE=false;
 
-	/** Maximum number of attempts to schedule the task */
-	static final int MAX_ATTEPTS=2;
-	
-	// Non-daemon scheduled tasks:
-
-	/** Current number of total non-daemon scheduled tasks */
-	static int scheduled_tasks=0;
+	/** Timing resolution, in milliseconds. It must be set before any timer is started.
+	  * Timer expirations are rounded up to the next tick, so it also bounds the precision of timers used for pacing (e.g. in regulated UDP sockets). */
+	public static long TICK_TIME=10;
 
-	/** Inner non-daemon scheduler. The program terminates only when all non-daemon timers (associated to this scheduler) have ended (for timeout or explicitly halted) */
-	static java.util.Timer scheduler=null;
+	/** Number of slots of the timing wheels */
+	static final int WHEEL_SLOTS=1024;
 
-	/** Lock for the non-daemon scheduler */
-	static Object scheduler_lock=new Object();
+	/** Executor that runs the timeout callbacks, or null if they are run by the timer threads */
+	static Executor executor=null;
 
-	// Daemon scheduled tasks:
+	/** Inner non-daemon scheduler. The program terminates only when all non-daemon timers (associated to this scheduler) have ended (for timeout or explicitly halted) */
+	static TimingWheel scheduler=null;
 
 	/** Inner daemon scheduler. Daemon timers (associated to the this scheduler) silently terminate (without firing the corresponding timout callbacks) when all program threads end */
-	static java.util.Timer daemon_scheduler=null;
+	static TimingWheel daemon_scheduler=null;
+
+	/** Logger of failing timeout callbacks, or null */
+	static Logger logger=null;
 
 
 	
@@ -81,6 +85,9 @@ public class Timer {
 
 	/** Timer listener */
 	protected TimerListener listener;
+
+	/** Scheduled task, or null */
+	TimingWheel.Entry entry=null;
 	  
 
 
@@ -132,10 +139,10 @@ public class Timer {
 		start_time=System.currentTimeMillis();
 		is_running=true;
 		if (time>0) {
-			TimerTask task=new TimerTask() {
+			Runnable task=new Runnable() {
 				public void run() { processInnerTimeout(); }   
 			};
-			scheduleTask(task,time,daemon_mode);
+			entry=getScheduler(daemon_mode).schedule(task,time);
 		}
 		else {
 			// fire now!			
@@ -144,35 +151,64 @@ public class Timer {
 	}
 	
 	
-	/** Schedule a new task.
-	 * @param task the task to be scheduled
-	 * @param time the time
-	 * @param daemon_mode whether running in 'daemon' mode */
-	private synchronized static void scheduleTask(TimerTask task, long time, boolean daemon_mode) {
-		for (int attempts=0; attempts<MAX_ATTEPTS; attempts++) {
-			if (daemon_mode) {
-				try  {
-					if (daemon_scheduler==null) daemon_scheduler=new java.util.Timer(true); 
-					daemon_scheduler.schedule(task,time);
-					break;
-				}
-				catch (IllegalStateException e) { daemon_scheduler=null; }
+	/** Gets the scheduler shared by all timers.
+	 * It can be also used directly by objects that need to schedule many tasks, without creating Timer objects.
+	 * @param daemon_mode whether running in 'daemon' mode
+	 * @return the scheduler */
+	public synchronized static TimingWheel getScheduler(boolean daemon_mode) {
+		if (daemon_mode) {
+			if (daemon_scheduler==null) {
+				daemon_scheduler=new TimingWheel(TICK_TIME,WHEEL_SLOTS,true,executor,"timer-daemon");
+				daemon_scheduler.setLogger(logger);
 			}
-			else {
-				synchronized (scheduler_lock) {
-					try  {
-						if (scheduler==null) scheduler=new java.util.Timer(false); 
-						scheduler.schedule(task,time);
-						scheduled_tasks++;
-					    break;						
-					}
-					catch (IllegalStateException e) { scheduler=null; }	
-				}
+			return daemon_scheduler;
+		}
+		else {
+			if (scheduler==null) {
+				scheduler=new TimingWheel(TICK_TIME,WHEEL_SLOTS,false,executor,"timer");
+				scheduler.setLogger(logger);
 			}
+			return scheduler;
 		}
 	}
 
 
+	/** Sets the executor that runs the timeout callbacks of all timers.
+	  * By default, timeout callbacks are run by the timer threads, one for daemon and one for non-daemon timers.
+	  * @param executor the executor, or null for running the callbacks in the timer threads */
+	public synchronized static void setExecutor(Executor executor) {
+		Timer.executor=executor;
+		if (scheduler!=null) scheduler.setExecutor(executor);
+		if (daemon_scheduler!=null) daemon_scheduler.setExecutor(executor);
+	}
+
+
+	/** Sets the logger of timeout callbacks that fail with an exception.
+	  * @param logger the logger, or null */
+	public synchronized static void setLogger(Logger logger) {
+		Timer.logger=logger;
+		if (scheduler!=null) scheduler.setLogger(logger);
+		if (daemon_scheduler!=null) daemon_scheduler.setLogger(logger);
+	}
+
+
+	/** Gets the logger of timeout callbacks that fail with an exception.
+	  * @return the logger, or null */
+	public synchronized static Logger getLogger() {
+		return logger;
+	}
+
+
+	/** Gets the number of active timers.
+	  * @return the number of started timers that have not yet expired or been halted */
+	public synchronized static int getActiveTimers() {
+		int n=0;
+		if (scheduler!=null) n+=scheduler.size();
+		if (daemon_scheduler!=null) n+=daemon_scheduler.size();
+		return n;
+	}
+
+
 	/** Whether the timer is running.
 	  * @return <i>true</i> if it is running */
 	public boolean isRunning() {
@@ -199,15 +235,10 @@ public class Timer {
 		if (is_running) {
 			is_running=false;
 			listener=null;
-			if (!daemon_mode && time>0) {
-				// the timer has been scheduled in 'non-daemon' mode
-				synchronized (scheduler_lock) {
-					scheduled_tasks--;
-					if (scheduled_tasks==0) {
-						scheduler.cancel();
-						scheduler.purge();
-					}			
-				}
+			if (entry!=null) {
+				// remove the scheduled task (if not already expired)
+				entry.cancel();
+				entry=null;
 			}		
 		}
 	}
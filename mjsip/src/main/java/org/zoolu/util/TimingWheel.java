@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2026 The Robolive contributors
+ * 
+ * This file is part of MjSip (http://www.mjsip.org)
+ * 
+ * MjSip is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * MjSip is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with MjSip; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.zoolu.util;
+
+
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+
+
+/** TimingWheel is a hashed timing wheel for scheduling a large number of tasks.
+  * <p>
+  * Time is divided into ticks of fixed duration, and tasks are kept in a circular array of slots,
+  * each one containing a doubly-linked list of the tasks that expire in the corresponding tick (modulo the number of slots).
+  * Both scheduling and cancelling a task take constant time, and cancelled tasks are immediately removed.
+  * <p>
+  * Tasks are run by the wheel thread, or by a given executor.
+  * The wheel thread is created when a task is scheduled, and terminates when no tasks are pending.
+  */
+public class TimingWheel {
+	
+	/** A scheduled task, that can be cancelled.
+	  * The same entry can be scheduled again (see {@link TimingWheel#schedule(Entry,long)}), e.g. for periodic or re-armed tasks. */
+	public static class Entry {
+		
+		/** The task */
+		Runnable task;
+
+		/** The tick when the task expires */
+		long deadline;
+
+		/** Whether it is scheduled */
+		boolean scheduled=false;
+
+		/** Slot index */
+		int slot;
+
+		/** Previous entry of the same slot */
+		Entry prev=null;
+
+		/** Next entry of the same slot */
+		Entry next=null;
+
+		/** The timing wheel, or null if never scheduled */
+		TimingWheel wheel=null;
+
+		/** Creates a new entry.
+		  * @param task the task to be run when the entry expires */
+		public Entry(Runnable task) {
+			this.task=task;
+		}
+
+		/** Cancels the task. It does nothing if the task has been already run or cancelled.
+		  * @return true if the task has been cancelled, false if it was not scheduled */
+		public boolean cancel() {
+			TimingWheel wheel=this.wheel;
+			return wheel!=null && wheel.remove(this);
+		}
+	}
+
+
+	/** Tick duration, in nanoseconds */
+	long tick_time;
+
+	/** Mask for obtaining the slot index from a tick */
+	int mask;
+
+	/** Heads of the entry lists, one for each slot */
+	Entry[] slots;
+
+	/** Whether the wheel thread is a daemon thread */
+	boolean daemon;
+
+	/** Executor that runs the expired tasks, or null if they are run by the wheel thread */
+	Executor executor;
+
+	/** Wheel thread name */
+	String name;
+
+	/** Reference time, in nanoseconds */
+	long start_time=System.nanoTime();
+
+	/** Next tick to be processed */
+	long tick=0;
+
+	/** Number of pending tasks */
+	int size=0;
+
+	/** Wheel thread, or null if not running */
+	Thread thread=null;
+
+	/** Logger of failing tasks, or null */
+	Logger logger=null;
+
+
+
+	/** Creates a new TimingWheel.
+	  * @param tick_time the tick duration (i.e. the timing resolution), in milliseconds
+	  * @param nslots the number of slots (it is rounded up to a power of 2)
+	  * @param daemon whether the wheel thread is a daemon thread
+	  * @param executor the executor that runs the expired tasks, or null for running them in the wheel thread
+	  * @param name the wheel thread name */
+	public TimingWheel(long tick_time, int nslots, boolean daemon, Executor executor, String name) {
+		this.tick_time=((tick_time>0)? tick_time : 1)*1000000L;
+		int n=1;
+		while (n<nslots) n<<=1;
+		mask=n-1;
+		slots=new Entry[n];
+		this.daemon=daemon;
+		this.executor=executor;
+		this.name=name;
+	}
+
+
+	/** Sets the executor that runs the expired tasks.
+	  * @param executor the executor, or null for running the tasks in the wheel thread */
+	public void setExecutor(Executor executor) {
+		this.executor=executor;
+	}
+
+
+	/** Sets the logger of failing tasks.
+	  * @param logger the logger, or null */
+	public void setLogger(Logger logger) {
+		this.logger=logger;
+	}
+
+
+	/** Gets the number of pending tasks. */
+	public synchronized int size() {
+		return size;
+	}
+
+
+	/** Schedules a task.
+	  * @param task the task to be run
+	  * @param delay the delay, in milliseconds
+	  * @return the scheduled entry, that can be used to cancel the task */
+	public Entry schedule(Runnable task, long delay) {
+		Entry entry=new Entry(task);
+		schedule(entry,delay);
+		return entry;
+	}
+
+
+	/** Schedules an entry.
+	  * If the entry is already scheduled, it is rescheduled with the new delay.
+	  * @param entry the entry; it must not be scheduled on a different wheel
+	  * @param delay the delay, in milliseconds */
+	public synchronized void schedule(Entry entry, long delay) {
+		if (entry.scheduled) remove(entry);
+		long elapsed=System.nanoTime()-start_time;
+		// round up, so that the task is never run before the given delay
+		long deadline=(elapsed+delay*1000000L+tick_time-1)/tick_time;
+		if (thread==null) {
+			// the wheel has been idle, and the next tick is the current one
+			tick=elapsed/tick_time;
+			thread=Threads.newThread(new Runnable() {
+				public void run() {
+					runWheel();
+				}
+			},name,daemon);
+			thread.start();
+		}
+		if (deadline<tick) deadline=tick;
+		entry.wheel=this;
+		entry.deadline=deadline;
+		int i=(int)(deadline&mask);
+		entry.slot=i;
+		entry.scheduled=true;
+		entry.next=slots[i];
+		if (slots[i]!=null) slots[i].prev=entry;
+		slots[i]=entry;
+		size++;
+	}
+
+
+	/** Removes an entry.
+	  * @param entry the entry
+	  * @return true if it has been removed, false if it was not scheduled */
+	synchronized boolean remove(Entry entry) {
+		if (!entry.scheduled) return false;
+		// else
+		if (entry.prev!=null) entry.prev.next=entry.next;
+		else slots[entry.slot]=entry.next;
+		if (entry.next!=null) entry.next.prev=entry.prev;
+		entry.prev=null;
+		entry.next=null;
+		entry.scheduled=false;
+		size--;
+		return true;
+	}
+
+
+	/** Wheel thread. */
+	private void runWheel() {
+		while (true) {
+			ArrayList<Runnable> expired=null;
+			// wait for the beginning of the next tick to be processed
+			long wait_time;
+			synchronized (this) {
+				if (size==0) {
+					thread=null;
+					return;
+				}
+				// else
+				wait_time=start_time+tick*tick_time-System.nanoTime();
+			}
+			if (wait_time>0) {
+				try {
+					Thread.sleep(wait_time/1000000L,(int)(wait_time%1000000L));
+				}
+				catch (InterruptedException e) {}
+				continue;
+			}
+			// else
+			synchronized (this) {
+				int i=(int)(tick&mask);
+				for (Entry e=slots[i]; e!=null; ) {
+					Entry next=e.next;
+					if (e.deadline<=tick) {
+						remove(e);
+						if (expired==null) expired=new ArrayList<Runnable>();
+						expired.add(e.task);
+					}
+					e=next;
+				}
+				tick++;
+			}
+			// run expired tasks, outside the lock (since they may schedule the same entries again)
+			if (expired!=null) {
+				for (int i=0; i<expired.size(); i++) runTask(expired.get(i));
+			}
+		}
+	}
+
+
+	/** Runs a task. */
+	private void runTask(Runnable task) {
+		Executor executor=this.executor;
+		try {
+			if (executor!=null) executor.execute(task);
+			else task.run();
+		}
+		catch (Exception e) {
+			// a failing task must not stop the wheel
+			log(LogLevel.WARNING,e);
+		}
+	}
+
+
+	/** Gets a String representation of this object. */
+	public String toString() {
+		return name+": tick="+(tick_time/1000000L)+"ms, slots="+slots.length+", tasks="+size();
+	}
+
+
+	// ****************************** Logs *****************************
+
+	/** Adds a new string to the default log. */
+	private void log(LogLevel level, String str) {
+		Logger logger=this.logger;
+		if (logger!=null) logger.log(level,name+": "+str);
+	}
+
+
+	/** Prints an exception to the event log. */
+	private void log(LogLevel level, Exception e) {
+		log(level,"Exception: "+ExceptionPrinter.getStackTraceOf(e));
+	}
+
+}